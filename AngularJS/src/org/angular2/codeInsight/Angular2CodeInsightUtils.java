@@ -85,7 +85,7 @@ public class Angular2CodeInsightUtils {
   public static StreamEx<Angular2DirectiveSelector.SimpleSelectorWithPsi> getAvailableNgContentSelectorsStream(@NotNull XmlTag xmlTag,
                                                                                                                @NotNull Angular2DeclarationsScope scope) {
     return StreamEx.ofNullable(xmlTag.getParentTag())
-      .flatCollection(tag -> new Angular2ApplicableDirectivesProvider(tag).getMatched())
+      .flatCollection(tag -> Angular2ApplicableDirectivesProvider.get(tag).getMatched())
       .select(Angular2Component.class)
       .filter(scope::contains)
       .flatCollection(c -> c.getNgContentSelectors())
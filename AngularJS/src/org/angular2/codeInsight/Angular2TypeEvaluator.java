@@ -16,7 +16,7 @@ import com.intellij.psi.ResolveResult;
 import org.angular2.entities.Angular2ComponentLocator;
 import org.angular2.lang.expr.psi.Angular2EmbeddedExpression;
 import org.angular2.lang.expr.psi.Angular2TemplateBindings;
-import org.angular2.lang.types.Angular2TypeUtils;
+import org.angular2.lang.types.Angular2BindingTypeCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -30,7 +30,7 @@ public class Angular2TypeEvaluator extends TypeScriptTypeEvaluator {
   @Override
   protected boolean addTypeFromDialectSpecificElements(PsiElement resolveResult) {
     if (resolveResult instanceof Angular2TemplateBindings) {
-      JSType type = Angular2TypeUtils.getTemplateBindingsContextType((Angular2TemplateBindings)resolveResult);
+      JSType type = Angular2BindingTypeCache.getTemplateBindingsContextType((Angular2TemplateBindings)resolveResult);
       if (type != null) {
         addType(type, resolveResult);
       }
@@ -2,11 +2,17 @@
 package org.angular2.codeInsight.attributes;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.NotNullLazyValue;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.containers.ContainerUtil;
 import org.angular2.entities.Angular2Directive;
 import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.angular2.lang.expr.psi.impl.Angular2EmptyTemplateBindings;
 import org.angular2.lang.selector.Angular2DirectiveSimpleSelector;
 import org.angular2.lang.selector.Angular2SelectorMatcher;
 import org.jetbrains.annotations.NotNull;
@@ -19,23 +25,50 @@ import static org.angular2.entities.Angular2EntitiesProvider.findElementDirectiv
 
 public class Angular2ApplicableDirectivesProvider {
 
+  private static final Key<CachedValue<Angular2ApplicableDirectivesProvider>> ALL_DIRECTIVES_KEY =
+    Key.create("angular2.applicable.directives");
+  private static final Key<CachedValue<Angular2ApplicableDirectivesProvider>> TAG_NAME_DIRECTIVES_KEY =
+    Key.create("angular2.applicable.directives.tag.name");
+
   private final NotNullLazyValue<List<Angular2Directive>> myDirectiveCandidates;
   private final List<Angular2Directive> myMatchedDirectives;
 
-  public Angular2ApplicableDirectivesProvider(@NotNull XmlTag xmlTag) {
-    this(xmlTag, false);
-  }
-
-  public Angular2ApplicableDirectivesProvider(@NotNull XmlTag xmlTag, boolean onlyMatchingTagName) {
+  private Angular2ApplicableDirectivesProvider(@NotNull XmlTag xmlTag, boolean onlyMatchingTagName) {
     this(xmlTag.getProject(), xmlTag.getLocalName(), onlyMatchingTagName,
          Angular2DirectiveSimpleSelector.createElementCssSelector(xmlTag));
   }
 
-  public Angular2ApplicableDirectivesProvider(@NotNull Angular2TemplateBindings bindings) {
+  private Angular2ApplicableDirectivesProvider(@NotNull Angular2TemplateBindings bindings) {
     this(bindings.getProject(), NG_TEMPLATE, false,
          Angular2DirectiveSimpleSelector.createTemplateBindingsCssSelector(bindings));
   }
 
+  /**
+   * Returns a provider shared by all template inspections and highlighting passes over the tag.
+   * It is recomputed on any PSI change.
+   */
+  public static @NotNull Angular2ApplicableDirectivesProvider get(@NotNull XmlTag xmlTag) {
+    return get(xmlTag, false);
+  }
+
+  public static @NotNull Angular2ApplicableDirectivesProvider get(@NotNull XmlTag xmlTag, boolean onlyMatchingTagName) {
+    if (onlyMatchingTagName) {
+      return CachedValuesManager.getCachedValue(xmlTag, TAG_NAME_DIRECTIVES_KEY, () -> CachedValueProvider.Result.create(
+        new Angular2ApplicableDirectivesProvider(xmlTag, true), PsiModificationTracker.MODIFICATION_COUNT));
+    }
+    return CachedValuesManager.getCachedValue(xmlTag, ALL_DIRECTIVES_KEY, () -> CachedValueProvider.Result.create(
+      new Angular2ApplicableDirectivesProvider(xmlTag, false), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
+  public static @NotNull Angular2ApplicableDirectivesProvider get(@NotNull Angular2TemplateBindings bindings) {
+    if (bindings instanceof Angular2EmptyTemplateBindings) {
+      // created anew for every request, so there is nothing to store the value on
+      return new Angular2ApplicableDirectivesProvider(bindings);
+    }
+    return CachedValuesManager.getCachedValue(bindings, ALL_DIRECTIVES_KEY, () -> CachedValueProvider.Result.create(
+      new Angular2ApplicableDirectivesProvider(bindings), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
   private Angular2ApplicableDirectivesProvider(@NotNull Project project,
                                                @NotNull String tagName,
                                                boolean onlyMatchingTagName,
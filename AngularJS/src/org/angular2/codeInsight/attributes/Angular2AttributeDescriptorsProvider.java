@@ -160,7 +160,7 @@ public class Angular2AttributeDescriptorsProvider implements XmlAttributeDescrip
 
   private static @NotNull Collection<XmlAttributeDescriptor> getDirectiveDescriptors(@NotNull XmlTag xmlTag,
                                                                                      @NotNull Predicate<String> shouldIncludeOneTimeBinding) {
-    Angular2ApplicableDirectivesProvider applicableDirectives = new Angular2ApplicableDirectivesProvider(xmlTag);
+    Angular2ApplicableDirectivesProvider applicableDirectives = Angular2ApplicableDirectivesProvider.get(xmlTag);
 
     List<XmlAttributeDescriptor> result = new ArrayList<>();
     for (Angular2Directive matchedDirective : applicableDirectives.getMatched()) {
@@ -279,14 +279,12 @@ public class Angular2AttributeDescriptorsProvider implements XmlAttributeDescrip
 
   private static @NotNull Collection<XmlAttributeDescriptor> getStandardPropertyAndEventDescriptors(@NotNull XmlTag xmlTag) {
     return CachedValuesManager.getCachedValue(xmlTag, STANDARD_PROPERTIES_KEY, () -> {
-      Set<String> allowedElementProperties = new HashSet<>(DomElementSchemaRegistry.getElementProperties(xmlTag));
-
       JSTypeSource typeSource = Angular2TypeUtils.createJSTypeSourceForXmlElement(xmlTag);
       JSType tagClass = Angular2TypeUtils.getHtmlElementClassType(typeSource, xmlTag.getName());
       JSType elementEventMap = Angular2TypeUtils.getElementEventMap(typeSource);
 
-      Set<String> eventNames = getPossibleEventNames(xmlTag, allowedElementProperties, elementEventMap);
-
+      // schema properties and events declared by the tag class, the rest get descriptors without a declaration
+      Set<String> declaredSchemaNames = new HashSet<>();
       List<XmlAttributeDescriptor> result = new ArrayList<>();
       Set<Object> dependencies = new HashSet<>();
       if (tagClass != null) {
@@ -303,11 +301,11 @@ public class Angular2AttributeDescriptorsProvider implements XmlAttributeDescrip
             String name;
             if (property.getMemberName().startsWith(EVENT_ATTR_PREFIX)) {
               name = EVENT.buildName(property.getMemberName().substring(2));
-              eventNames.remove(name);
+              declaredSchemaNames.add(name);
             }
             else {
               name = PROPERTY_BINDING.buildName(property.getMemberName());
-              if (!allowedElementProperties.remove(name)) {
+              if (!DomElementSchemaRegistry.hasElementProperty(xmlTag, name) || !declaredSchemaNames.add(name)) {
                 continue;
               }
             }
@@ -315,7 +313,12 @@ public class Angular2AttributeDescriptorsProvider implements XmlAttributeDescrip
           }
         }
       }
-      for (String name : ContainerUtil.concat(allowedElementProperties, eventNames)) {
+      DomElementSchemaRegistry.processElementProperties(xmlTag, name -> {
+        if (!declaredSchemaNames.contains(name)) {
+          result.add(new Angular2AttributeDescriptor(xmlTag, name, emptyList(), true));
+        }
+      });
+      for (String name : getPossibleEventNames(xmlTag, elementEventMap)) {
         result.add(new Angular2AttributeDescriptor(xmlTag, name, emptyList(), true));
       }
       if (dependencies.isEmpty()) {
@@ -329,20 +332,13 @@ public class Angular2AttributeDescriptorsProvider implements XmlAttributeDescrip
     });
   }
 
-  @NotNull
-  private static Set<String> getPossibleEventNames(@NotNull XmlTag xmlTag,
-                                                   @NotNull Set<String> allowedElementProperties,
-                                                   @Nullable JSType elementEventMap) {
+  private static @NotNull Set<String> getPossibleEventNames(@NotNull XmlTag xmlTag, @Nullable JSType elementEventMap) {
     Set<String> eventNames = new HashSet<>();
-    allowedElementProperties.forEach(name -> {
-      if (name.startsWith("(")) eventNames.add(name);
-    });
-    allowedElementProperties.removeAll(eventNames);
     getStandardTagEventAttributeNames(xmlTag).forEach(
-      eventName -> allowedElementProperties.add(EVENT.buildName(eventName.substring(2))));
+      eventName -> eventNames.add(EVENT.buildName(eventName.substring(2))));
     if (elementEventMap != null) {
       elementEventMap.asRecordType().getPropertyNames().forEach(
-        name -> allowedElementProperties.add(EVENT.buildName(name)));
+        name -> eventNames.add(EVENT.buildName(name)));
     }
     return eventNames;
   }
@@ -8,15 +8,36 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Consumer;
 
+/**
+ * DOM element properties and events known to Angular. Each property name is stored once and each element type
+ * is represented by a bit set of property ids, which already includes properties inherited from its super type.
+ * The tables are built lazily on first access.
+ */
 public class DomElementSchemaRegistry {
 
-  public static @NotNull Set<String> getElementProperties(@NotNull XmlTag tag) {
+  /**
+   * @param property name in Angular binding form, e.g. {@code [id]} or {@code (click)}
+   */
+  public static boolean hasElementProperty(@NotNull XmlTag tag, @NotNull String property) {
+    Integer id = Schema.PROPERTY_IDS.get(property);
+    return id != null && getElementPropertyIds(tag).get(id);
+  }
+
+  public static void processElementProperties(@NotNull XmlTag tag, @NotNull Consumer<? super String> consumer) {
+    BitSet ids = getElementPropertyIds(tag);
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      consumer.accept(Schema.PROPERTY_NAMES[id]);
+    }
+  }
+
+  private static @NotNull BitSet getElementPropertyIds(@NotNull XmlTag tag) {
     String tagName = StringUtil.toLowerCase(tag.getLocalName());
     if (tag.getNamespace().equals(HtmlUtil.SVG_NAMESPACE)) {
       tagName = ":svg:" + tagName; //NON-NLS
     }
-    return SCHEMA.getOrDefault(tagName, DEFAULT_ELEMENT_PROPERTIES);
+    return Schema.ELEMENTS.getOrDefault(tagName, Schema.DEFAULT_ELEMENT_PROPERTIES);
   }
 
   @NonNls private static final String[] SCHEMA_DEF = new String[]{
@@ -175,39 +196,50 @@ public class DomElementSchemaRegistry {
     ":svg:cursor^:svg:|"
   };
 
-  private static final Map<String, Set<String>> SCHEMA = new HashMap<>();
-  private static final Set<String> DEFAULT_ELEMENT_PROPERTIES;
+  private static final class Schema {
 
-  static {
-    for (String encodedType : SCHEMA_DEF) {
-      Set<String> type = new HashSet<>();
-      List<String> strType_strProperties = StringUtil.split(encodedType, "|", true, false);
-      List<String> properties = StringUtil.split(strType_strProperties.get(1), ",");
-      List<String> typeNames_superName = StringUtil.split(strType_strProperties.get(0), "^", true, false);
-      StringUtil.split(typeNames_superName.get(0), ",").forEach(tag -> SCHEMA.put(StringUtil.toLowerCase(tag),
-                                                                                  Collections.unmodifiableSet(type)));
-      Set<String> superType = typeNames_superName.size() > 1 ? SCHEMA.get(StringUtil.toLowerCase(typeNames_superName.get(1))) : null;
-      if (superType != null) {
-        type.addAll(superType);
-      }
-      properties.forEach(property -> {
-        if (!property.isEmpty()) {
-          switch (property.charAt(0)) {
-            case '*':
-              type.add("(" + property.substring(1) + ")");
-              break;
-            case '!':
-            case '#':
-            case '%':
-              type.add("[" + property.substring(1) + "]");
-              break;
-            default:
-              type.add("[" + property + "]");
-          }
+    private static final Map<String, BitSet> ELEMENTS = new HashMap<>();
+    private static final Map<String, Integer> PROPERTY_IDS = new HashMap<>();
+    private static final String[] PROPERTY_NAMES;
+    private static final BitSet DEFAULT_ELEMENT_PROPERTIES;
+
+    static {
+      List<String> propertyNames = new ArrayList<>();
+      for (String encodedType : SCHEMA_DEF) {
+        BitSet type = new BitSet();
+        List<String> strType_strProperties = StringUtil.split(encodedType, "|", true, false);
+        List<String> properties = StringUtil.split(strType_strProperties.get(1), ",");
+        List<String> typeNames_superName = StringUtil.split(strType_strProperties.get(0), "^", true, false);
+        StringUtil.split(typeNames_superName.get(0), ",").forEach(tag -> ELEMENTS.put(StringUtil.toLowerCase(tag), type));
+        BitSet superType = typeNames_superName.size() > 1 ? ELEMENTS.get(StringUtil.toLowerCase(typeNames_superName.get(1))) : null;
+        if (superType != null) {
+          type.or(superType);
         }
-      });
+        properties.forEach(property -> {
+          if (!property.isEmpty()) {
+            String name;
+            switch (property.charAt(0)) {
+              case '*':
+                name = "(" + property.substring(1) + ")";
+                break;
+              case '!':
+              case '#':
+              case '%':
+                name = "[" + property.substring(1) + "]";
+                break;
+              default:
+                name = "[" + property + "]";
+            }
+            type.set(PROPERTY_IDS.computeIfAbsent(name, n -> {
+              propertyNames.add(n);
+              return propertyNames.size() - 1;
+            }));
+          }
+        });
+      }
+      PROPERTY_NAMES = propertyNames.toArray(new String[0]);
+      //noinspection HardCodedStringLiteral
+      DEFAULT_ELEMENT_PROPERTIES = ELEMENTS.get(StringUtil.toLowerCase("[HTMLElement]"));
     }
-    //noinspection HardCodedStringLiteral
-    DEFAULT_ELEMENT_PROPERTIES = SCHEMA.get(StringUtil.toLowerCase("[HTMLElement]"));
   }
 }
@@ -145,7 +145,7 @@ public class Angular2TagDescriptorsProvider implements XmlElementDescriptorProvi
       return new Angular2TagDescriptor(xmlTag);
     }
 
-    Angular2ApplicableDirectivesProvider provider = new Angular2ApplicableDirectivesProvider(xmlTag, true);
+    Angular2ApplicableDirectivesProvider provider = Angular2ApplicableDirectivesProvider.get(xmlTag, true);
     Collection<?> sources = provider.getMatched();
     boolean implied = false;
     if (sources.isEmpty()) {
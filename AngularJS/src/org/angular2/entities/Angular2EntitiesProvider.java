@@ -19,6 +19,7 @@ import com.intellij.util.ObjectUtils;
 import com.intellij.util.SmartList;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
+import com.intellij.util.indexing.ID;
 import one.util.streamex.StreamEx;
 import org.angular2.entities.ivy.Angular2IvyUtil;
 import org.angular2.entities.metadata.Angular2MetadataUtil;
@@ -50,6 +51,13 @@ public class Angular2EntitiesProvider {
 
   static final String TRANSFORM_METHOD = "transform";
 
+  @SuppressWarnings("unchecked")
+  private static final ID<String, ?>[] DIRECTIVE_INDICES = new ID[]{
+    Angular2SourceDirectiveIndex.KEY, Angular2MetadataDirectiveIndex.KEY, Angular2IvyDirectiveIndex.KEY};
+  @SuppressWarnings("unchecked")
+  private static final ID<String, ?>[] PIPE_INDICES = new ID[]{
+    Angular2SourcePipeIndex.KEY, Angular2MetadataPipeIndex.KEY, Angular2IvyPipeIndex.KEY};
+
   public static Angular2Entity getEntity(@Nullable PsiElement element) {
     if (element == null) {
       return null;
@@ -137,27 +145,26 @@ public class Angular2EntitiesProvider {
 
   public static @NotNull Map<String, List<Angular2Directive>> getAllElementDirectives(@NotNull Project project) {
     return CachedValuesManager.getManager(project).getCachedValue(project, () -> create(
-      StreamEx.of(AngularIndexUtil.getAllKeys(Angular2SourceDirectiveIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2MetadataDirectiveIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2IvyDirectiveIndex.KEY, project))
+      StreamEx.of(AngularIndexUtil.getAllKeys(project, DIRECTIVE_INDICES))
         .map(name -> isElementDirectiveIndexName(name) ? getElementName(name) : null)
         .nonNull()
         .distinct()
         .collect(toMap(Function.identity(),
                        name -> findDirectivesCandidates(
                          project, getElementDirectiveIndexName(name)))),
+      AngularIndexUtil.getIndicesModificationTracker(project, DIRECTIVE_INDICES),
+      // entities hold PSI, which may change without changing the index keys
       PsiModificationTracker.MODIFICATION_COUNT)
     );
   }
 
   public static @NotNull Map<String, List<Angular2Pipe>> getAllPipes(@NotNull Project project) {
     return CachedValuesManager.getManager(project).getCachedValue(project, () -> create(
-      StreamEx.of(AngularIndexUtil.getAllKeys(Angular2SourcePipeIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2MetadataPipeIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2IvyPipeIndex.KEY, project))
-        .distinct()
+      StreamEx.of(AngularIndexUtil.getAllKeys(project, PIPE_INDICES))
         .collect(toMap(Function.identity(),
                        name -> findPipes(project, name))),
+      AngularIndexUtil.getIndicesModificationTracker(project, PIPE_INDICES),
+      // entities hold PSI, which may change without changing the index keys
       PsiModificationTracker.MODIFICATION_COUNT)
     );
   }
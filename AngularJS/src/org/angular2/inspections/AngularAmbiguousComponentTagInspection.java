@@ -31,7 +31,7 @@ public class AngularAmbiguousComponentTagInspection extends AngularHtmlLikeTempl
       return;
     }
     List<Angular2Directive> components = ContainerUtil.filter(
-      new Angular2ApplicableDirectivesProvider(tag).getMatched(), d -> d.isComponent() && scope.contains(d));
+      Angular2ApplicableDirectivesProvider.get(tag).getMatched(), d -> d.isComponent() && scope.contains(d));
     final TextRange startTag = ObjectUtils.notNull(XmlTagUtil.getStartTagRange(tag), () -> tag.getTextRange())
       .shiftLeft(tag.getTextOffset());
     if (isTemplateTag(tag)) {
@@ -58,7 +58,7 @@ public class AngularAmbiguousComponentTagInspection extends AngularHtmlLikeTempl
         && !isTemplateTag(attribute.getParent())) {
       Angular2DeclarationsScope scope = new Angular2DeclarationsScope(attribute);
       List<Angular2Directive> components = ContainerUtil.filter(
-        new Angular2ApplicableDirectivesProvider(Angular2TemplateBindings.get(attribute)).getMatched(),
+        Angular2ApplicableDirectivesProvider.get(Angular2TemplateBindings.get(attribute)).getMatched(),
         d -> d.isComponent() && scope.contains(d));
       if (!components.isEmpty()) {
         holder.registerProblem(attribute, Angular2Bundle.message(
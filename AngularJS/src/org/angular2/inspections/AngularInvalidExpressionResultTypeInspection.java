@@ -7,7 +7,6 @@ import com.intellij.lang.injection.InjectedLanguageManager;
 import com.intellij.lang.javascript.psi.JSElement;
 import com.intellij.lang.javascript.psi.JSExpression;
 import com.intellij.lang.javascript.psi.JSType;
-import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.psi.types.JSTypeComparingContextService;
 import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiElementVisitor;
@@ -19,6 +18,7 @@ import org.angular2.lang.expr.psi.Angular2Binding;
 import org.angular2.lang.expr.psi.Angular2ElementVisitor;
 import org.angular2.lang.expr.psi.Angular2TemplateBinding;
 import org.angular2.lang.html.parser.Angular2AttributeType;
+import org.angular2.lang.types.Angular2BindingTypeCache;
 import org.angular2.lang.types.Angular2PropertyBindingType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -80,7 +80,7 @@ public class AngularInvalidExpressionResultTypeInspection extends LocalInspectio
         if (expectedType == null || expression == null) {
           return;
         }
-        JSType actualType = JSResolveUtil.getElementJSType(expression, true);
+        JSType actualType = Angular2BindingTypeCache.getExpressionType(expression);
         if (actualType != null
             && !expectedType.isDirectlyAssignableType(actualType, JSTypeComparingContextService.getProcessingContextWithCache(binding))) {
           holder.registerProblem(expression, Angular2Bundle.message("angular.inspection.invalid-expr-result-type.message",
@@ -33,7 +33,7 @@ public class AngularInvalidTemplateReferenceVariableInspection extends AngularHt
       String exportName = attribute.getValue();
       if (exportName != null && !exportName.isEmpty()) {
         List<Angular2Directive> allMatching =
-          ContainerUtil.filter(new Angular2ApplicableDirectivesProvider(attribute.getParent()).getMatched(),
+          ContainerUtil.filter(Angular2ApplicableDirectivesProvider.get(attribute.getParent()).getMatched(),
                                dir -> dir.getExportAsList().contains(exportName));
         Angular2DeclarationsScope scope = new Angular2DeclarationsScope(attribute);
         List<Angular2Directive> matching = ContainerUtil.filter(allMatching, d -> scope.contains(d));
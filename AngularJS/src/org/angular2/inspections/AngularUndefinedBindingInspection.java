@@ -64,7 +64,7 @@ public class AngularUndefinedBindingInspection extends AngularHtmlLikeTemplateLo
       }
     }
     else {
-      Set<Angular2Directive> matchedDirectives = new HashSet<>(new Angular2ApplicableDirectivesProvider(
+      Set<Angular2Directive> matchedDirectives = new HashSet<>(Angular2ApplicableDirectivesProvider.get(
         attribute.getParent()).getMatched());
       proximity = scope.getDeclarationsProximity(ContainerUtil.findAll(sourceDirectives, matchedDirectives::contains));
     }
@@ -123,7 +123,7 @@ public class AngularUndefinedBindingInspection extends AngularHtmlLikeTemplateLo
   private static void visitTemplateBindings(@NotNull ProblemsHolder holder,
                                             @NotNull XmlAttribute attribute,
                                             @NotNull Angular2TemplateBindings bindings) {
-    List<Angular2Directive> matched = new Angular2ApplicableDirectivesProvider(bindings).getMatched();
+    List<Angular2Directive> matched = Angular2ApplicableDirectivesProvider.get(bindings).getMatched();
     Angular2DeclarationsScope scope = new Angular2DeclarationsScope(attribute);
     DeclarationProximity proximity = scope.getDeclarationsProximity(matched);
     if (proximity != IN_SCOPE) {
@@ -32,7 +32,7 @@ public class AngularUndefinedTagInspection extends AngularHtmlLikeTemplateLocalI
       return;
     }
     Angular2DeclarationsScope scope = new Angular2DeclarationsScope(tag);
-    Angular2ApplicableDirectivesProvider provider = new Angular2ApplicableDirectivesProvider(tag, true);
+    Angular2ApplicableDirectivesProvider provider = Angular2ApplicableDirectivesProvider.get(tag, true);
     DeclarationProximity proximity = scope.getDeclarationsProximity(provider.getMatched());
     if (proximity == IN_SCOPE) {
       return;
@@ -110,7 +110,7 @@ public class Angular2FixesFactory {
         return MultiMap.empty();
       }
       AttributeInfo info = attributeDescriptor.getInfo();
-      provider = new Angular2ApplicableDirectivesProvider(((XmlAttribute)element).getParent())::getMatched;
+      provider = Angular2ApplicableDirectivesProvider.get(((XmlAttribute)element).getParent())::getMatched;
       secondaryProvider = info.type == Angular2AttributeType.REFERENCE ? null : attributeDescriptor::getSourceDirectives;
 
       switch (info.type) {
@@ -155,11 +155,11 @@ public class Angular2FixesFactory {
       }
     }
     else if (element instanceof XmlTag) {
-      provider = new Angular2ApplicableDirectivesProvider((XmlTag)element, true)::getMatched;
+      provider = Angular2ApplicableDirectivesProvider.get((XmlTag)element, true)::getMatched;
       secondaryProvider = null;
     }
     else if (element instanceof Angular2TemplateBinding) {
-      provider = new Angular2ApplicableDirectivesProvider((Angular2TemplateBindings)element.getParent())::getMatched;
+      provider = Angular2ApplicableDirectivesProvider.get((Angular2TemplateBindings)element.getParent())::getMatched;
       secondaryProvider = createSecondaryProvider((Angular2TemplateBindings)element.getParent());
       if (((Angular2TemplateBinding)element).keyIsVar()) {
         return MultiMap.empty();
@@ -170,7 +170,7 @@ public class Angular2FixesFactory {
                                           input -> key.equals(input.getName())));
     }
     else if (element instanceof Angular2TemplateBindings) {
-      provider = new Angular2ApplicableDirectivesProvider((Angular2TemplateBindings)element)::getMatched;
+      provider = Angular2ApplicableDirectivesProvider.get((Angular2TemplateBindings)element)::getMatched;
       secondaryProvider = createSecondaryProvider((Angular2TemplateBindings)element);
     }
     else if (element instanceof Angular2PipeReferenceExpression) {
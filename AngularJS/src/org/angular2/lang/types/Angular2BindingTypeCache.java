@@ -0,0 +1,124 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.lang.types;
+
+import com.intellij.lang.injection.InjectedLanguageManager;
+import com.intellij.lang.javascript.psi.JSExpression;
+import com.intellij.lang.javascript.psi.JSType;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptClass;
+import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.RecursionGuard;
+import com.intellij.openapi.util.RecursionManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.angular2.entities.Angular2ComponentLocator;
+import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches evaluated types of template binding expressions and template context types of structural directives,
+ * so that inspections, highlighting and {@link org.angular2.codeInsight.Angular2TypeEvaluator} running over
+ * the same template share a single type evaluation per binding.
+ * <p>
+ * The table is stored on the component class and is dropped whenever PSI changes. Entries are keyed
+ * by the element offset in the top-level template file, since the same text may resolve differently
+ * depending on template variables in scope. Hit and miss counters are kept for diagnostics.
+ */
+public final class Angular2BindingTypeCache {
+
+  private static final Key<CachedValue<Map<String, Optional<JSType>>>> BINDING_TYPES_KEY =
+    Key.create("angular2.binding.types");
+
+  private static final AtomicLong ourHits = new AtomicLong();
+  private static final AtomicLong ourMisses = new AtomicLong();
+
+  private Angular2BindingTypeCache() {
+  }
+
+  public static @Nullable JSType getExpressionType(@NotNull JSExpression expression) {
+    return getCachedType(expression, "expr:" + expression.getText(), () -> JSResolveUtil.getElementJSType(expression, true));
+  }
+
+  public static @Nullable JSType getTemplateBindingsContextType(@NotNull Angular2TemplateBindings bindings) {
+    return getCachedType(bindings, "context:" + bindings.getTemplateName(),
+                         () -> BindingsTypeResolver.get(bindings).resolveTemplateContextType());
+  }
+
+  private static @Nullable JSType getCachedType(@NotNull PsiElement element,
+                                                @NotNull String kind,
+                                                @NotNull Supplier<JSType> typeSupplier) {
+    TypeScriptClass componentClass = Angular2ComponentLocator.findComponentClass(element);
+    PsiFile templateFile = InjectedLanguageManager.getInstance(element.getProject()).getTopLevelFile(element);
+    if (componentClass == null || templateFile == null) {
+      return typeSupplier.get();
+    }
+    Map<String, Optional<JSType>> types = CachedValuesManager.getCachedValue(componentClass, BINDING_TYPES_KEY, () ->
+      CachedValueProvider.Result.create(new ConcurrentHashMap<>(), PsiModificationTracker.MODIFICATION_COUNT));
+    String key = getCacheKey(element, templateFile, kind);
+    Optional<JSType> result = types.get(key);
+    if (result != null) {
+      ourHits.incrementAndGet();
+      return result.orElse(null);
+    }
+    ourMisses.incrementAndGet();
+
+    // evaluation may recurse into other bindings of the same template, so don't hold the map while computing;
+    // types computed while recursion was prevented somewhere down the stack are incomplete and are not cached
+    RecursionGuard.StackStamp stamp = RecursionManager.markStack();
+    Ref<JSType> computed = RecursionManager.doPreventingRecursion(Pair.create(componentClass, key), false,
+                                                                  () -> Ref.create(typeSupplier.get()));
+    if (computed == null) {
+      return null;
+    }
+    if (stamp.mayCacheNow()) {
+      Optional<JSType> existing = types.putIfAbsent(key, Optional.ofNullable(computed.get()));
+      if (existing != null) {
+        return existing.orElse(null);
+      }
+    }
+    return computed.get();
+  }
+
+  /**
+   * @return ratio of lookups served from the cache since the start or the last reset of statistics
+   */
+  public static double getHitRate() {
+    long hits = ourHits.get();
+    long total = hits + ourMisses.get();
+    return total == 0 ? 0 : (double)hits / total;
+  }
+
+  public static long getHitCount() {
+    return ourHits.get();
+  }
+
+  public static long getMissCount() {
+    return ourMisses.get();
+  }
+
+  @TestOnly
+  public static void resetStatistics() {
+    ourHits.set(0);
+    ourMisses.set(0);
+  }
+
+  private static @NotNull String getCacheKey(@NotNull PsiElement element, @NotNull PsiFile templateFile, @NotNull String kind) {
+    int offset = InjectedLanguageManager.getInstance(element.getProject())
+      .injectedToHost(element, element.getTextRange().getStartOffset());
+    return templateFile.getName() + ":" + offset + ":" + kind;
+  }
+}
@@ -86,7 +86,7 @@ public class Angular2ReferenceType extends Angular2BaseType<Angular2HtmlAttrVari
       Angular2DeclarationsScope scope = new Angular2DeclarationsScope(reference);
       String exportName = reference.getValue();
       boolean hasExport = exportName != null && !exportName.isEmpty();
-      return StreamEx.of(new Angular2ApplicableDirectivesProvider(tag).getMatched())
+      return StreamEx.of(Angular2ApplicableDirectivesProvider.get(tag).getMatched())
         .filter(directive -> scope.contains(directive)
                              && hasExport ? directive.getExportAsList().contains(exportName)
                                           : directive.isComponent())
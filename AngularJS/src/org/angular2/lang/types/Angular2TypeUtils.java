@@ -62,7 +62,7 @@ public class Angular2TypeUtils {
   }
 
   public static @Nullable JSType getTemplateBindingsContextType(@NotNull Angular2TemplateBindings bindings) {
-    return BindingsTypeResolver.get(bindings).resolveTemplateContextType();
+    return Angular2BindingTypeCache.getTemplateBindingsContextType(bindings);
   }
 
   public static @Nullable JSType getNgTemplateTagContextType(@NotNull XmlTag tag) {
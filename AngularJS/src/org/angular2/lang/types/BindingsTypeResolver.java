@@ -114,7 +114,7 @@ final class BindingsTypeResolver {
   }
 
   private BindingsTypeResolver(@NotNull Angular2TemplateBindings bindings) {
-    this(bindings, new Angular2ApplicableDirectivesProvider(bindings), b ->
+    this(bindings, Angular2ApplicableDirectivesProvider.get(bindings), b ->
       StreamEx.of(b.getBindings())
         .filter(binding -> !binding.keyIsVar())
         .mapToEntry(Angular2TemplateBinding::getKey,
@@ -123,7 +123,7 @@ final class BindingsTypeResolver {
   }
 
   private BindingsTypeResolver(@NotNull XmlTag tag) {
-    this(tag, new Angular2ApplicableDirectivesProvider(tag), t ->
+    this(tag, Angular2ApplicableDirectivesProvider.get(tag), t ->
       StreamEx.of(t.getAttributes())
         .mapToEntry(attr -> Angular2AttributeNameParser.parse(attr.getName(), attr.getParent()),
                     Function.identity())
@@ -190,7 +190,11 @@ final class BindingsTypeResolver {
         JSType propertyType;
         if (inputExpression != null && (propertyType = property.getType()) != null) {
           JSPsiBasedTypeOfType inputType = new JSPsiBasedTypeOfType(inputExpression, true);
-          if (isAnyType(getApparentType(JSTypeWithIncompleteSubstitution.substituteCompletely(inputType)))) {
+          JSType evaluatedInputType = Angular2BindingTypeCache.getExpressionType(inputExpression);
+          if (evaluatedInputType == null) {
+            evaluatedInputType = JSTypeWithIncompleteSubstitution.substituteCompletely(inputType);
+          }
+          if (isAnyType(getApparentType(evaluatedInputType))) {
             // This workaround is needed, because many users expect to have ngForOf working with variable of type `any`.
             // This is not correct according to TypeScript inferring rules for generics, but it's better for Angular type
             // checking to be less strict here. Additionally, if `any` type is passed to e.g. async pipe it's going to be resolved
@@ -17,6 +17,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.text.StringUtil;
@@ -26,6 +27,7 @@ import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.psi.stubs.StubUpdatingIndex;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValueProvider.Result;
 import com.intellij.psi.util.CachedValuesManager;
@@ -40,10 +42,7 @@ import one.util.streamex.StreamEx;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -55,7 +54,10 @@ public class AngularIndexUtil {
 
   private static final ConcurrentMap<String, Key<ParameterizedCachedValue<Collection<String>, Pair<Project, ID<String, ?>>>>> ourCacheKeys =
     new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Key<ParameterizedCachedValue<NavigableSet<String>, Pair<Project, List<ID<String, ?>>>>>>
+    ourMergedCacheKeys = new ConcurrentHashMap<>();
   private static final AngularKeysProvider PROVIDER = new AngularKeysProvider();
+  private static final AngularMergedKeysProvider MERGED_PROVIDER = new AngularMergedKeysProvider();
 
   public static @Nullable JSImplicitElement resolve(@NotNull Project project,
                                                     @NotNull StubIndexKey<? super String, JSImplicitElementProvider> index,
@@ -146,6 +148,51 @@ public class AngularIndexUtil {
     return CachedValuesManager.getManager(project).getParameterizedCachedValue(project, key, PROVIDER, false, pair);
   }
 
+  /**
+   * Returns sorted and deduplicated keys of all the provided indices. The result is recalculated only
+   * when one of the indices or project roots change.
+   */
+  @SafeVarargs
+  public static @NotNull NavigableSet<String> getAllKeys(final @NotNull Project project, final ID<String, ?> @NotNull ... indices) {
+    final List<ID<String, ?>> indexList = Arrays.asList(indices);
+    final String cacheId = StringUtil.join(indexList, ID::getName, ",");
+    final Key<ParameterizedCachedValue<NavigableSet<String>, Pair<Project, List<ID<String, ?>>>>> key =
+      ConcurrencyUtil.cacheOrGet(ourMergedCacheKeys, cacheId, Key.create("angularjs.merged.index." + cacheId));
+    return CachedValuesManager.getManager(project)
+      .getParameterizedCachedValue(project, key, MERGED_PROVIDER, false, Pair.create(project, indexList));
+  }
+
+  /**
+   * @return view of the keys from the sorted set (e.g. {@link #getAllKeys(Project, ID[])}), which start with the provided prefix
+   */
+  public static @NotNull SortedSet<String> getKeysWithPrefix(@NotNull NavigableSet<String> keys, @NotNull String prefix) {
+    if (prefix.isEmpty()) {
+      return keys;
+    }
+    return keys.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+  }
+
+  /**
+   * Tracks modifications of the provided indices and of project roots, for values computed from the contents of these indices only.
+   */
+  @SafeVarargs
+  public static @NotNull ModificationTracker getIndicesModificationTracker(final @NotNull Project project,
+                                                                          final ID<String, ?> @NotNull ... indices) {
+    final List<ModificationTracker> trackers = new ArrayList<>();
+    for (ID<String, ?> id : indices) {
+      trackers.add(getIndexModificationTracker(project, id));
+    }
+    trackers.add(ProjectRootModificationTracker.getInstance(project));
+    // all the stamps only grow, so does their sum
+    return () -> {
+      long result = 0;
+      for (ModificationTracker tracker : trackers) {
+        result += tracker.getModificationCount();
+      }
+      return result;
+    };
+  }
+
   public static boolean hasAngularJS(final @NotNull Project project) {
     if (ApplicationManager.getApplication().isUnitTestMode() && "disabled".equals(System.getProperty("angular.js"))) return false;
     return getAngularJSVersion(project) > 0;
@@ -239,7 +286,30 @@ public class AngularIndexUtil {
                   : !fileIndex.processValues(id, key, null, (file, value) -> false, scope))
         .sorted()
         .toList();
-      return Result.create(filteredKeys, PsiManager.getInstance(project).getModificationTracker());
+      return Result.create(filteredKeys, getIndexModificationTracker(project, id),
+                           ProjectRootModificationTracker.getInstance(project));
+    }
+  }
+
+  private static class AngularMergedKeysProvider
+    implements ParameterizedCachedValueProvider<NavigableSet<String>, Pair<Project, List<ID<String, ?>>>> {
+    @Override
+    public Result<NavigableSet<String>> compute(final Pair<Project, List<ID<String, ?>>> projectAndIndices) {
+      final Project project = projectAndIndices.first;
+      final NavigableSet<String> keys = new TreeSet<>();
+      final List<Object> dependencies = new ArrayList<>();
+      for (ID<String, ?> id : projectAndIndices.second) {
+        keys.addAll(getAllKeys(id, project));
+        dependencies.add(getIndexModificationTracker(project, id));
+      }
+      dependencies.add(ProjectRootModificationTracker.getInstance(project));
+      return Result.create(Collections.unmodifiableNavigableSet(keys), dependencies);
     }
   }
+
+  private static @NotNull ModificationTracker getIndexModificationTracker(@NotNull Project project, @NotNull ID<String, ?> id) {
+    // stub indices are all maintained by a single file based index
+    final ID<?, ?> fileIndexId = id instanceof StubIndexKey ? StubUpdatingIndex.INDEX_ID : id;
+    return () -> FileBasedIndex.getInstance().getIndexModificationStamp(fileIndexId, project);
+  }
 }
@@ -61,8 +61,8 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
     new HashMap<>();
   private static final Map<String, Function<String, String>> NAME_CONVERTERS = new HashMap<>();
   private static final Map<String, Function<PsiElement, String>> DATA_CALCULATORS = new HashMap<>();
-  private final Map<String, PairProcessor<JSProperty, JSElementIndexingData>> CUSTOM_PROPERTY_PROCESSORS = new HashMap<>();
-  private final Map<String, PairProcessor<JSProperty, JSElementIndexingData>> CUSTOM_INDIRECT_PROPERTY_PROCESSORS = new HashMap<>();
+  private final Map<String, PropertyProcessor> CUSTOM_PROPERTY_PROCESSORS = new HashMap<>();
+  private final Map<String, PropertyProcessor> CUSTOM_INDIRECT_PROPERTY_PROCESSORS = new HashMap<>();
   private static final Map<String, Function<String, List<String>>> POLY_NAME_CONVERTERS = new HashMap<>();
   private static final Map<String, Processor<JSArgumentList>> ARGUMENT_LIST_CHECKERS = new HashMap<>();
 
@@ -88,6 +88,7 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
 
   private static final String[] ALL_INTERESTING_METHODS;
   private static final BidirectionalMap<String, StubIndexKey<String, JSImplicitElementProvider>> INDEXES;
+  private static final Map<StubIndexKey<String, JSImplicitElementProvider>, String> INDEX_USER_STRINGS = new HashMap<>();
   public static final String AS_CONNECTOR_WITH_SPACES = " as ";
 
   public static final String ANGULAR_DIRECTIVES_DOC_INDEX_USER_STRING = "addi";
@@ -135,6 +136,7 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
     INDEXES.put("arsgi", AngularUiRouterGenericStatesIndex.KEY);
     INDEXES.put("agmi", AngularGenericModulesIndex.KEY);
     INDEXES.put("ajtui", AngularTemplateUrlIndex.KEY);
+    INDEXES.forEach((userString, index) -> INDEX_USER_STRINGS.put(index, userString));
 
     NAME_CONVERTERS.put(BINDINGS, NAME_CONVERTERS.get(DIRECTIVE));
     NAME_CONVERTERS.put(SCOPE, NAME_CONVERTERS.get(DIRECTIVE));
@@ -163,13 +165,13 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
   private static final String PARAM = "@param";
 
   public AngularJSIndexingHandler() {
-    CUSTOM_PROPERTY_PROCESSORS.put(COMPONENT, (property, data) -> processScopedProperty(property, data, BINDINGS, true));
-    CUSTOM_INDIRECT_PROPERTY_PROCESSORS.put(DIRECTIVE, (property, data) -> {
-      boolean result = processScopedProperty(property, data, SCOPE, false);
-      return processScopedProperty(property, data, BIND_TO_CONTROLLER, false) || result;
+    CUSTOM_PROPERTY_PROCESSORS.put(COMPONENT, (property, call, data) -> processScopedProperty(property, call, data, BINDINGS, true));
+    CUSTOM_INDIRECT_PROPERTY_PROCESSORS.put(DIRECTIVE, (property, call, data) -> {
+      boolean result = processScopedProperty(property, call, data, SCOPE, false);
+      return processScopedProperty(property, call, data, BIND_TO_CONTROLLER, false) || result;
     });
 
-    final PairProcessor<JSProperty, JSElementIndexingData> processor = createRouterParametersProcessor();
+    final PropertyProcessor processor = createRouterParametersProcessor();
     CUSTOM_PROPERTY_PROCESSORS.put(WHEN, processor);
     CUSTOM_PROPERTY_PROCESSORS.put("otherwise", processor);
     CUSTOM_PROPERTY_PROCESSORS.put("state", processor);
@@ -319,9 +321,9 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
       return outData;
     }
     final String command = ((JSReferenceExpression)methodExpression).getReferenceName();
-    final PairProcessor<JSProperty, JSElementIndexingData> customProcessor =
+    final PropertyProcessor customProcessor =
       immediate ? CUSTOM_PROPERTY_PROCESSORS.get(command) : CUSTOM_INDIRECT_PROPERTY_PROCESSORS.get(command);
-    if (customProcessor != null && customProcessor.process(property,
+    if (customProcessor != null && customProcessor.process(property, callExpression,
                                                            (localOutData =
                                                               (outData == null ? new JSElementIndexingDataImpl() : outData)))) {
       return localOutData;
@@ -513,12 +515,12 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
                                    final @Nullable String value,
                                    final @NotNull JSElementIndexingData outData) {
     if (defaultName == null) return;
-    final List<String> keys = INDEXES.getKeysByValue(index);
-    assert keys != null && keys.size() == 1;
+    final String userString = INDEX_USER_STRINGS.get(index);
+    assert userString != null;
     final Consumer<JSImplicitElementImpl.Builder> adder = builder -> {
       builder.setType(elementProvider instanceof JSDocComment ? JSImplicitElement.Type.Tag : JSImplicitElement.Type.Class)
         .setTypeString(value);
-      builder.setUserString(this, keys.get(0));
+      builder.setUserString(this, userString);
       final JSImplicitElementImpl implicitElement = builder.toImplicitElement();
       outData.addImplicitElement(implicitElement);
     };
@@ -541,9 +543,7 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
       JSImplicitElementImpl.Builder symbolElementBuilder = new JSImplicitElementImpl.Builder(name, elementProvider)
         .setType(elementProvider instanceof JSDocComment ? JSImplicitElement.Type.Tag : JSImplicitElement.Type.Class)
         .setTypeString(value);
-      final List<String> symbolKeys = INDEXES.getKeysByValue(AngularSymbolIndex.KEY);
-      assert symbolKeys != null && symbolKeys.size() == 1;
-      symbolElementBuilder.setUserString(this, symbolKeys.get(0));
+      symbolElementBuilder.setUserString(this, ANGULAR_SYMBOL_INDEX_USER_STRING);
       final JSImplicitElementImpl implicitElement2 = symbolElementBuilder.toImplicitElement();
       outData.addImplicitElement(implicitElement2);
     }
@@ -697,10 +697,12 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
     return collection;
   }
 
-  private PairProcessor<JSProperty, JSElementIndexingData> createRouterParametersProcessor() {
-    return new PairProcessor<JSProperty, JSElementIndexingData>() {
+  private PropertyProcessor createRouterParametersProcessor() {
+    return new PropertyProcessor() {
       @Override
-      public boolean process(JSProperty property, JSElementIndexingData outData) {
+      public boolean process(@NotNull JSProperty property,
+                             @NotNull JSCallExpression wrappingCall,
+                             @NotNull JSElementIndexingData outData) {
         if (!(property.getValue() instanceof JSLiteralExpression)) return true;
         final JSLiteralExpression value = (JSLiteralExpression)property.getValue();
         if (!value.isQuotedLiteral()) return true;
@@ -782,19 +784,21 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
     data.addImplicitElement(
       new JSImplicitElementImpl.Builder(fileName, property)
         .setTypeString("TU;;;")
-        .setUserString(this, Objects.requireNonNull(INDEXES.getKeysByValue(AngularTemplateUrlIndex.KEY)).get(0))
+        .setUserString(this, INDEX_USER_STRINGS.get(AngularTemplateUrlIndex.KEY))
         .toImplicitElement());
     return true;
   }
 
-  private boolean processScopedProperty(JSProperty property, JSElementIndexingData data, String propertyName, boolean isComponent) {
+  private boolean processScopedProperty(@NotNull JSProperty property,
+                                        @NotNull JSCallExpression wrappingCall,
+                                        @NotNull JSElementIndexingData data,
+                                        @NotNull String propertyName,
+                                        boolean isComponent) {
     PsiElement parent = property.getParent();
     if (parent instanceof JSObjectLiteralExpression && parent.getParent() instanceof JSProperty
         && propertyName.equals(((JSProperty)parent.getParent()).getName())
         && property.getName() != null) {
-      Trinity<JSCallExpression, Integer, Boolean> call = findWrappingCall(property);
-      assert call != null;
-      JSExpression[] arguments = call.first.getArguments();
+      JSExpression[] arguments = wrappingCall.getArguments();
       if (arguments.length < 2 ||
           !(arguments[0] instanceof JSLiteralExpression) ||
           !((JSLiteralExpression)arguments[0]).isQuotedLiteral()) {
@@ -842,4 +846,12 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
   protected @NotNull Set<@NotNull String> computeJSImplicitElementUserStringKeys() {
     return INDEXES.keySet();
   }
+
+  /**
+   * Processes a property of an object literal passed (directly or through a returned literal) to an AngularJS
+   * registration call. The wrapping call is found once per property and shared by all processors.
+   */
+  private interface PropertyProcessor {
+    boolean process(@NotNull JSProperty property, @NotNull JSCallExpression wrappingCall, @NotNull JSElementIndexingData outData);
+  }
 }
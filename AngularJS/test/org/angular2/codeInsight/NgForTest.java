@@ -1,8 +1,17 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.codeInsight;
 
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.containers.ContainerUtil;
 import org.angular2.Angular2CodeInsightFixtureTestCase;
+import org.angular2.codeInsight.attributes.Angular2ApplicableDirectivesProvider;
+import org.angular2.entities.Angular2Directive;
 import org.angular2.inspections.Angular2TemplateInspectionsProvider;
+import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.angular2.lang.expr.psi.impl.Angular2EmptyTemplateBindings;
 import org.angularjs.AngularTestUtil;
 
 import java.util.List;
@@ -49,4 +58,29 @@ public class NgForTest extends Angular2CodeInsightFixtureTestCase {
     assertEquals("created_at", variants.get(0));
     assertEquals("email", variants.get(1));
   }
+
+  public void testApplicableDirectivesShared() {
+    myFixture.configureByFiles("NgForWithinAttributeHTML.html", "NgForWithinAttributeHTML.ts", "ng_for_of.ts",
+                               "iterable_differs.ts", "package.json");
+    XmlTag tag = PsiTreeUtil.getParentOfType(myFixture.getFile().findElementAt(myFixture.getCaretOffset()), XmlTag.class);
+    assertNotNull(tag);
+    XmlAttribute attribute = tag.getAttribute("*ngFor");
+    assertNotNull(attribute);
+    Angular2TemplateBindings bindings = Angular2TemplateBindings.get(attribute);
+
+    Angular2ApplicableDirectivesProvider provider = Angular2ApplicableDirectivesProvider.get(bindings);
+    assertSameElements(ContainerUtil.map(provider.getMatched(), Angular2Directive::getName), "NgForOf");
+    assertSame(provider, Angular2ApplicableDirectivesProvider.get(bindings));
+    assertSame(Angular2ApplicableDirectivesProvider.get(tag), Angular2ApplicableDirectivesProvider.get(tag));
+    assertNotSame(Angular2ApplicableDirectivesProvider.get(tag), Angular2ApplicableDirectivesProvider.get(tag, true));
+
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> attribute.setValue("let contact of contacts"));
+    Angular2TemplateBindings changedBindings = Angular2TemplateBindings.get(attribute);
+    Angular2ApplicableDirectivesProvider changedProvider = Angular2ApplicableDirectivesProvider.get(changedBindings);
+    assertNotSame(provider, changedProvider);
+    assertSameElements(ContainerUtil.map(changedProvider.getMatched(), Angular2Directive::getName), "NgForOf");
+
+    Angular2TemplateBindings emptyBindings = new Angular2EmptyTemplateBindings(attribute, "ngFor");
+    assertEmpty(Angular2ApplicableDirectivesProvider.get(emptyBindings).getMatched());
+  }
 }
@@ -5,9 +5,21 @@ import com.intellij.codeInspection.htmlInspections.HtmlUnknownAttributeInspectio
 import com.intellij.lang.typescript.inspections.TypeScriptUnresolvedFunctionInspection;
 import com.intellij.lang.typescript.inspections.TypeScriptUnresolvedVariableInspection;
 import com.intellij.lang.typescript.inspections.TypeScriptValidateTypesInspection;
+import com.intellij.lang.javascript.psi.JSType;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.util.containers.ContainerUtil;
 import org.angular2.Angular2CodeInsightFixtureTestCase;
+import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.angular2.lang.types.Angular2BindingTypeCache;
 import org.angularjs.AngularTestUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.angular2.modules.Angular2TestModule.*;
 
 public class Angular2ExpressionTypesInspectionTest extends Angular2CodeInsightFixtureTestCase {
@@ -80,4 +92,47 @@ public class Angular2ExpressionTypesInspectionTest extends Angular2CodeInsightFi
     myFixture.configureByFiles("inputValue.html", "inputValue.ts");
     myFixture.checkHighlighting();
   }
+
+  public void testBindingTypesSharedBetweenPasses() {
+    configureCopy(myFixture, ANGULAR_CORE_8_2_14, ANGULAR_COMMON_8_2_14);
+    myFixture.configureByFiles("template.html", "template.ts");
+    myFixture.checkHighlighting();
+    List<JSType> contextTypes = getTemplateContextTypes();
+    assertFalse(contextTypes.isEmpty());
+
+    Angular2BindingTypeCache.resetStatistics();
+    myFixture.checkHighlighting();
+    List<JSType> secondPass = getTemplateContextTypes();
+    assertTrue("Second pass should be served from the cache",
+               Angular2BindingTypeCache.getHitCount() > Angular2BindingTypeCache.getMissCount());
+    assertEquals(contextTypes.size(), secondPass.size());
+    for (int i = 0; i < contextTypes.size(); i++) {
+      assertSame(contextTypes.get(i), secondPass.get(i));
+    }
+
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      Document document = myFixture.getEditor().getDocument();
+      document.insertString(document.getTextLength(), "\n");
+    });
+    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+    List<JSType> afterChange = getTemplateContextTypes();
+    assertEquals(ContainerUtil.map(contextTypes, Angular2ExpressionTypesInspectionTest::getTypeText),
+                 ContainerUtil.map(afterChange, Angular2ExpressionTypesInspectionTest::getTypeText));
+  }
+
+  private List<JSType> getTemplateContextTypes() {
+    List<JSType> result = new ArrayList<>();
+    for (XmlAttribute attribute : PsiTreeUtil.findChildrenOfType(myFixture.getFile(), XmlAttribute.class)) {
+      Angular2TemplateBindings bindings = attribute.getName().startsWith("*") ? Angular2TemplateBindings.get(attribute) : null;
+      JSType type = bindings != null ? Angular2BindingTypeCache.getTemplateBindingsContextType(bindings) : null;
+      if (type != null) {
+        result.add(type);
+      }
+    }
+    return result;
+  }
+
+  private static String getTypeText(JSType type) {
+    return type.getTypeText(JSType.TypeTextFormat.PRESENTABLE);
+  }
 }
@@ -1,5 +1,9 @@
 package org.angularjs.performance;
 
+import com.intellij.lang.javascript.JavaScriptFileType;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.impl.source.PsiFileImpl;
 import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.testFramework.fixtures.BasePlatformTestCase;
 import org.angularjs.AngularTestUtil;
@@ -19,4 +23,27 @@ public class AngularJSPerformanceTest extends BasePlatformTestCase {
     PlatformTestUtil.startPerformanceTest(getTestName(false), 100_000, () -> myFixture.checkHighlighting()).attempts(1).usesAllCPUCores().assertTiming();
   }
 
+  public void testLargeAppIndexing() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      text.append("angular.module('module").append(i).append("', ['dep").append(i).append("'])\n")
+        .append("  .controller('Controller").append(i).append("', function($scope) {})\n")
+        .append("  .filter('filter").append(i).append("', function() { return function(input) { return input; }; })\n")
+        .append("  .directive('directive").append(i).append("', function() {\n")
+        .append("    return {restrict: 'EA', templateUrl: 'directive").append(i).append(".html', controller: 'Controller")
+        .append(i).append("', scope: {value: '=', name: '@', onChange: '&'}};\n")
+        .append("  })\n")
+        .append("  .component('component").append(i).append("', {templateUrl: 'component").append(i)
+        .append(".html', bindings: {item: '<', label: '@'}})\n")
+        .append("  .config(function($stateProvider) {\n")
+        .append("    $stateProvider.state('state").append(i).append(".child', {url: '/s").append(i)
+        .append("', controller: 'Controller").append(i).append(" as ctrl'});\n")
+        .append("  });\n");
+    }
+    PsiFileFactory factory = PsiFileFactory.getInstance(getProject());
+    PlatformTestUtil.startPerformanceTest(getTestName(false), 10_000, () -> {
+      PsiFile file = factory.createFileFromText("app.js", JavaScriptFileType.INSTANCE, text);
+      assertNotNull(((PsiFileImpl)file).calcStubTree());
+    }).attempts(3).assertTiming();
+  }
 }
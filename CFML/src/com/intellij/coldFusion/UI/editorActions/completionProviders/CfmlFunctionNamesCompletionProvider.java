@@ -4,6 +4,7 @@ package com.intellij.coldFusion.UI.editorActions.completionProviders;
 import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionProvider;
 import com.intellij.codeInsight.completion.CompletionResultSet;
+import com.intellij.codeInsight.completion.PrefixMatcher;
 import com.intellij.coldFusion.UI.CfmlLookUpItemUtil;
 import com.intellij.coldFusion.model.info.CfmlFunctionDescription;
 import com.intellij.coldFusion.model.info.CfmlLangInfo;
@@ -15,9 +16,13 @@ class CfmlFunctionNamesCompletionProvider extends CompletionProvider<CompletionP
   public void addCompletions(@NotNull final CompletionParameters parameters,
                              @NotNull final ProcessingContext context,
                              @NotNull final CompletionResultSet result) {
-    for (CfmlFunctionDescription s : CfmlLangInfo.getInstance(parameters.getPosition().getProject()).getFunctionParameters().values()) {
-      addFunctionName(result.caseInsensitive(), s);
-    }/*
+    final CompletionResultSet caseInsensitiveResult = result.caseInsensitive();
+    final PrefixMatcher matcher = caseInsensitiveResult.getPrefixMatcher();
+    CfmlLangInfo.getInstance(parameters.getPosition().getProject()).getFunctionsTable().processMatching(
+      name -> matcher.prefixMatches(name), (name, s) -> {
+        addFunctionName(caseInsensitiveResult, s);
+        return true;
+      });/*
         for (String s : CfmlPsiUtil.getFunctionsNamesDefined(parameters.getOriginalFile())) {
             addFunctionName(result, lookupElementFactory, s);
         }
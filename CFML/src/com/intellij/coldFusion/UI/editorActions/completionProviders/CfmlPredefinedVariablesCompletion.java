@@ -18,8 +18,10 @@ package com.intellij.coldFusion.UI.editorActions.completionProviders;
 import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionProvider;
 import com.intellij.codeInsight.completion.CompletionResultSet;
+import com.intellij.codeInsight.completion.PrefixMatcher;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.coldFusion.model.info.CfmlLangInfo;
+import com.intellij.coldFusion.model.info.CfmlNameTable;
 import com.intellij.coldFusion.model.psi.CfmlReference;
 import com.intellij.coldFusion.model.psi.CfmlReferenceExpression;
 import com.intellij.coldFusion.model.psi.impl.CfmlTagImpl;
@@ -28,8 +30,6 @@ import com.intellij.util.ProcessingContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
-
 /**
  * @author Nadya Zabrodina
  */
@@ -38,19 +38,23 @@ public class CfmlPredefinedVariablesCompletion extends CompletionProvider<Comple
   protected void addCompletions(@NotNull CompletionParameters parameters,
                                 @NotNull ProcessingContext context,
                                 @NotNull CompletionResultSet result) {
-    Map<String, Integer> myPredefinedVariables = CfmlLangInfo.getInstance(parameters.getPosition().getProject()).getPredefinedVariables();
+    CfmlNameTable<Integer> predefinedVariables = CfmlLangInfo.getInstance(parameters.getPosition().getProject()).getPredefinedVariablesTable();
     String tagName = getNameForCfmlTag(parameters);
-    for (String s : myPredefinedVariables.keySet()) {
-      if (!s.contains("[x]")) {
-        if (tagName != null && s.startsWith(tagName)) {
+    if (tagName != null) {
+      predefinedVariables.processByPrefix(tagName, (s, type) -> {
+        if (!s.contains("[x]")) {
           result.addElement(LookupElementBuilder.create(s.substring(s.indexOf(".") + 1)).withCaseSensitivity(false));
         }
-        else if (tagName == null &&
-                 !result.getPrefixMatcher().getPrefix().isEmpty() &&
-                 parameters.getPosition().getParent() instanceof CfmlReference) {
-          result.addElement(LookupElementBuilder.create(s).withCaseSensitivity(false));
-        }
-      }
+        return true;
+      });
+    }
+    else if (!result.getPrefixMatcher().getPrefix().isEmpty() &&
+             parameters.getPosition().getParent() instanceof CfmlReference) {
+      final PrefixMatcher matcher = result.caseInsensitive().getPrefixMatcher();
+      predefinedVariables.processMatching(s -> !s.contains("[x]") && matcher.prefixMatches(s), (s, type) -> {
+        result.addElement(LookupElementBuilder.create(s).withCaseSensitivity(false));
+        return true;
+      });
     }
   }
 
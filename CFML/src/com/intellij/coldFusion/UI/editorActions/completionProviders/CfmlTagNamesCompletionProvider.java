@@ -4,9 +4,11 @@ package com.intellij.coldFusion.UI.editorActions.completionProviders;
 import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionProvider;
 import com.intellij.codeInsight.completion.CompletionResultSet;
+import com.intellij.codeInsight.completion.PrefixMatcher;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.coldFusion.model.CfmlUtil;
 import com.intellij.coldFusion.model.files.CfmlFileViewProvider;
+import com.intellij.coldFusion.model.info.CfmlLangInfo;
 import com.intellij.coldFusion.model.psi.CfmlImport;
 import com.intellij.coldFusion.model.psi.stubs.CfmlIndex;
 import com.intellij.openapi.util.io.FileUtilRt;
@@ -15,7 +17,6 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.ProcessingContext;
-import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 
@@ -30,9 +31,12 @@ class CfmlTagNamesCompletionProvider extends CompletionProvider<CompletionParame
       return;
     }
 
-    for (String s : CfmlUtil.getTagList(parameters.getPosition().getProject())) {
-      result.addElement(LookupElementBuilder.create(s).withCaseSensitivity(false));
-    }
+    final PrefixMatcher matcher = result.caseInsensitive().getPrefixMatcher();
+    CfmlLangInfo.getInstance(parameters.getPosition().getProject()).getTagsTable().processMatching(
+      name -> matcher.prefixMatches(name), (name, description) -> {
+        result.addElement(LookupElementBuilder.create(name).withCaseSensitivity(false));
+        return true;
+      });
 
     CfmlImport[] imports = PsiTreeUtil.getChildrenOfType(parameters.getOriginalFile(), CfmlImport.class);
     if (imports == null) {
@@ -50,9 +54,14 @@ class CfmlTagNamesCompletionProvider extends CompletionProvider<CompletionParame
     final PsiFile originalFile = parameters.getOriginalFile();
     final VirtualFile folder = CfmlUtil.findFileByLibTag(originalFile, libtag);
     if (folder != null && folder.isDirectory()) {
-      final Set<String> names = new THashSet<>(CfmlIndex.getInstance(originalFile.getProject()).getAllComponentsNames());
-      names.retainAll(ContainerUtil.map(folder.getChildren(),
-                                        virtualFile -> StringUtil.toLowerCase(FileUtilRt.getNameWithoutExtension(virtualFile.getName()))));
+      final CfmlIndex index = CfmlIndex.getInstance(originalFile.getProject());
+      final Set<String> names = new THashSet<>();
+      for (VirtualFile child : folder.getChildren()) {
+        String name = StringUtil.toLowerCase(FileUtilRt.getNameWithoutExtension(child.getName()));
+        if (!names.contains(name) && index.containsComponentName(name)) {
+          names.add(name);
+        }
+      }
       for (String componentName : names) {
         result.addElement(LookupElementBuilder.create(prefix + ':' + componentName).withCaseSensitivity(false));
       }
@@ -27,7 +27,6 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.util.ArrayUtil;
 import com.intellij.util.ArrayUtilRt;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
@@ -221,8 +220,7 @@ public class CfmlUtil {
   }
 
   public static boolean isPredefinedFunction(String functionName, Project project) {
-    return ArrayUtil.find(getCfmlLangInfo(project).getPredefinedFunctionsInLowCase(), StringUtil.toLowerCase(functionName)) !=
-           -1;
+    return getCfmlLangInfo(project).getFunctionParameters().containsKey(StringUtil.toLowerCase(functionName));
   }
 
   public static boolean isPredefinedTagVariables(CfmlReferenceExpression cfmlRef, Project project) {
@@ -7,7 +7,6 @@ import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.reference.SoftReference;
 import com.intellij.util.text.LineReader;
 import org.jetbrains.annotations.Nullable;
 import org.xml.sax.InputSource;
@@ -15,19 +14,22 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import java.io.InputStream;
-import java.lang.ref.Reference;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author vnikolaenko
  */
 public class CfmlLangInfo {
+  private static final String SCOPES_FILE_NAME = "scopes.txt";
+  // language level -> dictionary
+  private static final ConcurrentMap<String, CfmlLangDictionary> ourDictionaries = new ConcurrentHashMap<>();
+
   private final Project myProject;
-  private Reference<CfmlLangDictionary> myCFDictionary;
-  private String myCFDictionaryLevel;
 
   private static class InstanceWithoutApplication {
     static CfmlLangInfo instanceWithoutApplication = new CfmlLangInfo(null);
@@ -68,6 +70,15 @@ public class CfmlLangInfo {
       myPredefinedFunctionsInLowCase = cfmlTagsParser.getFunctionsListLowerCased();
       myPredefinedVariables = cfmlTagsParser.getPredefinedVariables();
       myOnlineDocumentationLink = cfmlTagsParser.getOnlineDocumentationLink();
+
+      myTagsTable = new CfmlNameTable<>(myTagAttributes);
+      // the keys of myFunctionParameters are lower-cased, completion matches camel humps of the function names as they are declared
+      Map<String, CfmlFunctionDescription> functionsByName = new HashMap<>();
+      for (CfmlFunctionDescription function : myFunctionParameters.values()) {
+        functionsByName.put(function.getName(), function);
+      }
+      myFunctionsTable = new CfmlNameTable<>(functionsByName);
+      myPredefinedVariablesTable = new CfmlNameTable<>(myPredefinedVariables);
     }
 
     public String[] myPredefinedFunctions;
@@ -77,27 +88,23 @@ public class CfmlLangInfo {
     public Map<String, CfmlTagDescription> myTagAttributes;
     public Map<String, CfmlFunctionDescription> myFunctionParameters;
     public String myOnlineDocumentationLink;
+    public CfmlNameTable<CfmlTagDescription> myTagsTable;
+    public CfmlNameTable<CfmlFunctionDescription> myFunctionsTable;
+    public CfmlNameTable<Integer> myPredefinedVariablesTable;
   }
 
   private CfmlLangDictionary getProjectDictionary() {
-    String languageLevel = getLanguageLevel();
-    CfmlLangDictionary dictionary;
-
-    if (Objects.equals(myCFDictionaryLevel, languageLevel)) {
-      dictionary = SoftReference.dereference(myCFDictionary);
-      if (dictionary != null) return dictionary;
-    }
-
-    synchronized (CfmlLangInfo.class) {
-      dictionary = SoftReference.dereference(myCFDictionary);
-      if (dictionary == null || !Objects.equals(myCFDictionaryLevel, languageLevel)) {
-        dictionary = new CfmlLangDictionary("scopes.txt", languageLevel);
-        myCFDictionary = new SoftReference<>(dictionary);
-        myCFDictionaryLevel = languageLevel;
-      }
-    }
+    return getDictionary(getLanguageLevel());
+  }
 
-    return dictionary;
+  /**
+   * Dictionaries are shared by all projects and kept for every language level once it is used, so neither memory pressure
+   * nor switching between projects of different levels makes them parsed again. Only requests of a level being parsed wait for it.
+   */
+  private static CfmlLangDictionary getDictionary(@Nullable String languageLevel) {
+    // the level may be unset in the project configuration, and the map doesn't accept null keys
+    return ourDictionaries.computeIfAbsent(languageLevel != null ? languageLevel : CfmlLanguage.CF10,
+                                           level -> new CfmlLangDictionary(SCOPES_FILE_NAME, level));
   }
 
   public String getLanguageLevel() {
@@ -134,6 +141,18 @@ public class CfmlLangInfo {
     return getProjectDictionary().myFunctionParameters;
   }
 
+  public CfmlNameTable<CfmlTagDescription> getTagsTable() {
+    return getProjectDictionary().myTagsTable;
+  }
+
+  public CfmlNameTable<CfmlFunctionDescription> getFunctionsTable() {
+    return getProjectDictionary().myFunctionsTable;
+  }
+
+  public CfmlNameTable<Integer> getPredefinedVariablesTable() {
+    return getProjectDictionary().myPredefinedVariablesTable;
+  }
+
   public String getOnlineDocumentationLink() {
     return getProjectDictionary().myOnlineDocumentationLink;
   }
@@ -0,0 +1,68 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.coldFusion.model.info;
+
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.PairProcessor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Names of a language dictionary sorted ignoring case, shared by completion providers.
+ * Names with a given prefix are found by binary search; names accepted by a completion prefix matcher (which also matches
+ * camel humps and the middle of names) are found by checking the names only, so lookup elements are created for the matching ones only.
+ */
+public final class CfmlNameTable<T> {
+  private final String[] myNames;
+  private final String[] myLowerCaseNames;
+  private final List<T> myValues;
+
+  public CfmlNameTable(@NotNull Map<String, ? extends T> nameToValue) {
+    List<String> names = new ArrayList<>(nameToValue.keySet());
+    names.sort(String.CASE_INSENSITIVE_ORDER);
+
+    myNames = new String[names.size()];
+    myLowerCaseNames = new String[names.size()];
+    myValues = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      myNames[i] = name;
+      myLowerCaseNames[i] = StringUtil.toLowerCase(name);
+      myValues.add(nameToValue.get(name));
+    }
+  }
+
+  public int size() {
+    return myNames.length;
+  }
+
+  /**
+   * Processes names starting with the prefix ignoring case, in the sorted order.
+   */
+  public boolean processByPrefix(@NotNull String prefix, @NotNull PairProcessor<? super String, ? super T> processor) {
+    String lowerCasePrefix = StringUtil.toLowerCase(prefix);
+    int index = Arrays.binarySearch(myLowerCaseNames, lowerCasePrefix);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    for (; index < myLowerCaseNames.length && myLowerCaseNames[index].startsWith(lowerCasePrefix); index++) {
+      if (!processor.process(myNames[index], myValues.get(index))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Processes names accepted by the matcher, e.g. {@code result.getPrefixMatcher()::prefixMatches}.
+   */
+  public boolean processMatching(@NotNull Condition<? super String> matcher, @NotNull PairProcessor<? super String, ? super T> processor) {
+    for (int i = 0; i < myNames.length; i++) {
+      if (matcher.value(myNames[i]) && !processor.process(myNames[i], myValues.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
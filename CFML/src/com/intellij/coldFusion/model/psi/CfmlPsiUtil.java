@@ -25,14 +25,20 @@ import com.intellij.coldFusion.model.psi.impl.CfmlNamedAttributeImpl;
 import com.intellij.coldFusion.model.psi.impl.CfmlTagScriptImpl;
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.*;
 import com.intellij.psi.scope.PsiScopeProcessor;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -43,6 +49,11 @@ import java.util.Set;
  * Created by Lera Nikolaenko
  */
 public class CfmlPsiUtil {
+  private static final Key<CachedValue<CfmlFunction[]>> FUNCTIONS_KEY = Key.create("cfml.functions.with.supers");
+  private static final Key<CachedValue<CfmlFunction[]>> SUPER_FIRST_FUNCTIONS_KEY = Key.create("cfml.functions.with.supers.first");
+  private static final Key<CachedValue<CfmlProperty[]>> PROPERTIES_KEY = Key.create("cfml.properties.with.supers");
+  private static final Key<CachedValue<CfmlProperty[]>> SUPER_FIRST_PROPERTIES_KEY = Key.create("cfml.properties.with.supers.first");
+
   @NotNull
   public static Collection<String> findBetween(@NotNull String source, @NotNull String startMarker, @NotNull String endMarker) {
     int fromIndex = 0;
@@ -321,8 +332,9 @@ public class CfmlPsiUtil {
                                                                                       Result[] EMPTY_ARRAY, boolean isSuperPriority) {
     CfmlComponent currentComponent = isSuperPriority ? component.getSuper() : component;
     Set<String> names = new HashSet<>();
-    List<Result> result = new LinkedList<>();
-    while (currentComponent != null) {
+    Set<CfmlComponent> visited = new HashSet<>();
+    List<Result> result = new ArrayList<>();
+    while (currentComponent != null && visited.add(currentComponent)) {  // extends clauses may be cyclic
       for (Result candidate : gatherer.get(currentComponent)) {
         if (names.add(candidate.getName())) {
           result.add(candidate);
@@ -341,8 +353,22 @@ public class CfmlPsiUtil {
     return result.toArray(EMPTY_ARRAY);
   }
 
+  /**
+   * Members of the component and its supers are cached until any PSI change, as the supers are usually in other files.
+   * The returned array is shared and should not be modified.
+   */
+  private static <Result extends PsiNamedElement> Result[] getCachedMembersWithSupers(final CfmlComponent component,
+                                                                                     Key<CachedValue<Result[]>> key,
+                                                                                     final Getter<Result[], ? super CfmlComponent> gatherer,
+                                                                                     final Result[] EMPTY_ARRAY,
+                                                                                     final boolean isSuperPriority) {
+    return CachedValuesManager.getCachedValue(component, key, () -> CachedValueProvider.Result.create(
+      componentHierarchyGatherer(component, gatherer, EMPTY_ARRAY, isSuperPriority), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
   public static CfmlFunction @NotNull [] getFunctionsWithSupers(CfmlComponent component, boolean isSuperPriority) {
-    return componentHierarchyGatherer(component, new Getter<CfmlFunction[], CfmlComponent>() {
+    return getCachedMembersWithSupers(component, isSuperPriority ? SUPER_FIRST_FUNCTIONS_KEY : FUNCTIONS_KEY,
+                                      new Getter<CfmlFunction[], CfmlComponent>() {
       @Override
       public CfmlFunction[] get(CfmlComponent component) {
         return component.getFunctions();
@@ -351,7 +377,8 @@ public class CfmlPsiUtil {
   }
 
   public static CfmlProperty @NotNull [] getPropertiesWithSupers(CfmlComponent component, boolean isSuperPriority) {
-    return componentHierarchyGatherer(component, new Getter<CfmlProperty[], CfmlComponent>() {
+    return getCachedMembersWithSupers(component, isSuperPriority ? SUPER_FIRST_PROPERTIES_KEY : PROPERTIES_KEY,
+                                      new Getter<CfmlProperty[], CfmlComponent>() {
       @Override
       public CfmlProperty[] get(CfmlComponent component) {
         return component.getProperties();
@@ -363,44 +390,72 @@ public class CfmlPsiUtil {
                                                            final PsiScopeProcessor processor,
                                                            final ResolveState state,
                                                            final PsiElement lastParent) {
-    boolean res = true;
-    try {
-      component.accept(new CfmlRecursiveElementVisitor() {
-        public void visitCfmlAssignmentExpression(CfmlAssignmentExpression expression) {
-          if (expression.getFirstChild().getNode().getElementType() != CfscriptTokenTypes.VAR_KEYWORD &&
-              expression.getParent() != lastParent) {
-            if (expression.getAssignedVariable() != null && !processor.execute(expression.getAssignedVariable(), state)) {
-              throw Stop.DONE;
-            }
+    for (CfmlAssignmentExpression assignment : getGlobalAssignments(component)) {
+      if (assignment == lastParent) {
+        // assignments nested into the one we are inside are visible
+        for (CfmlAssignmentExpression nested : collectGlobalAssignments(assignment, lastParent)) {
+          if (!processAssignedVariable(nested, processor, state)) {
+            return false;
           }
         }
+        continue;
+      }
+      if (assignment.getParent() == lastParent ||
+          lastParent instanceof CfmlFunction && PsiTreeUtil.isAncestor(lastParent, assignment, true)) {  // skip function we are inside
+        continue;
+      }
+      if (!processAssignedVariable(assignment, processor, state)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean processAssignedVariable(CfmlAssignmentExpression assignment,
+                                                 PsiScopeProcessor processor,
+                                                 ResolveState state) {
+    CfmlVariable variable = assignment.getAssignedVariable();
+    return variable == null || processor.execute(variable, state);
+  }
+
+  /**
+   * Non-var assignments of the component in document order, except ones nested into other assignments.
+   * The list is cached until the containing file is changed.
+   */
+  @NotNull
+  private static List<CfmlAssignmentExpression> getGlobalAssignments(@NotNull CfmlComponent component) {
+    return CachedValuesManager.getCachedValue(component, () -> CachedValueProvider.Result.create(
+      collectGlobalAssignments(component, null), component.getContainingFile()));
+  }
 
-        @Override
-        public void visitCfmlComponent(CfmlComponent component) {
-          super.visitElement(component);
+  @NotNull
+  private static List<CfmlAssignmentExpression> collectGlobalAssignments(@NotNull PsiElement root, @Nullable final PsiElement lastParent) {
+    final List<CfmlAssignmentExpression> result = new ArrayList<>();
+    root.acceptChildren(new CfmlRecursiveElementVisitor() {
+      public void visitCfmlAssignmentExpression(CfmlAssignmentExpression expression) {
+        if (expression.getFirstChild().getNode().getElementType() != CfscriptTokenTypes.VAR_KEYWORD &&
+            expression.getParent() != lastParent) {
+          result.add(expression);
         }
+      }
 
-        @Override
-        public void visitCfmlFunction(CfmlFunction function) {
-          if (function != lastParent) {  // skip function we are inside
-            super.visitCfmlFunction(function);
-          }
+      @Override
+      public void visitCfmlFunction(CfmlFunction function) {
+        if (function != lastParent) {  // skip function we are inside
+          super.visitCfmlFunction(function);
         }
+      }
 
-        @Override
-        public void visitElement(@NotNull PsiElement element) {
-          if (element != lastParent && element instanceof CfmlAssignmentExpression) {
-            visitCfmlAssignmentExpression((CfmlAssignmentExpression)element);
-          }
-          else {
-            super.visitElement(element);
-          }
+      @Override
+      public void visitElement(@NotNull PsiElement element) {
+        if (element != lastParent && element instanceof CfmlAssignmentExpression) {
+          visitCfmlAssignmentExpression((CfmlAssignmentExpression)element);
         }
-      });
-    }
-    catch (CfmlRecursiveElementVisitor.Stop e) {
-      res = false;
-    }
-    return res;
+        else {
+          super.visitElement(element);
+        }
+      }
+    });
+    return result;
   }
 }
@@ -85,6 +85,39 @@ public abstract class CfmlIndex implements Disposable {
     return workaroundIndexBug(cfmlComponents, CfmlComponent.class, CfmlInterfaceIndex.KEY);
   }
 
+  /**
+   * Components which extend the given one directly. The extends clause may refer to the component by its short or qualified
+   * name, so candidates are looked up by keys ending with the short name and checked by resolving their supers.
+   */
+  @NotNull
+  public Collection<CfmlComponent> getDirectInheritors(@NotNull CfmlComponent component) {
+    String name = component.getName();
+    if (name == null) return Collections.emptyList();
+    String shortName = StringUtil.toLowerCase(name);
+
+    List<CfmlComponent> result = new ArrayList<>();
+    for (String superName : StubIndex.getInstance().getAllKeys(CfmlInheritanceIndex.KEY, project)) {
+      if (!superName.equals(shortName) && !superName.endsWith("." + shortName)) continue;
+
+      Collection<CfmlComponent> candidates = StubIndex.getElements(CfmlInheritanceIndex.KEY, superName, project, getSearchScope(),
+                                                                   CfmlComponent.class);
+      for (CfmlComponent candidate : workaroundIndexBug(candidates, CfmlComponent.class, CfmlInheritanceIndex.KEY)) {
+        if (component.equals(candidate.getSuper())) {
+          result.add(candidate);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@code getAllComponentsNames().contains(name)}, but looks up the single key instead of collecting all of them.
+   */
+  public boolean containsComponentName(@NotNull String name) {
+    return !StubIndex.getInstance().processElements(CfmlComponentIndex.KEY, StringUtil.toLowerCase(name), project,
+                                                    GlobalSearchScope.allScope(project), CfmlComponent.class, component -> false);
+  }
+
   @NotNull
   public Collection<String> getAllComponentsNames() {
     return StubIndex.getInstance().getAllKeys(CfmlComponentIndex.KEY, project);
@@ -16,6 +16,7 @@
 package com.intellij.coldFusion
 
 import com.intellij.codeInsight.completion.impl.CamelHumpMatcher
+import com.intellij.codeInsight.lookup.LookupManager
 import com.intellij.coldFusion.UI.config.CfmlMappingsConfig
 import com.intellij.coldFusion.UI.config.CfmlProjectConfiguration
 import com.intellij.coldFusion.model.CfmlLanguage
@@ -25,6 +26,7 @@ import com.intellij.openapi.vfs.LocalFileSystem
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiFile
+import com.intellij.testFramework.PlatformTestUtil
 import com.intellij.testFramework.fixtures.JavaCodeInsightFixtureTestCase
 import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture
 import com.intellij.xml.util.XmlUtil
@@ -159,6 +161,28 @@ class CfmlCompletionTest : JavaCodeInsightFixtureTestCase() {
     doTestCompletionVariants("mid", "min", "mineFunc", "minute")
   }
 
+  fun testFunctionNamesCamelHumpsCompletion() {
+    myFixture.configureByText("a.cfml", "<cfset a = aA<caret>>")
+    myFixture.completeBasic()
+    val variants = myFixture.lookupElementStrings!!
+    TestCase.assertTrue(variants.toString(), variants.containsAll(listOf("arrayAppend", "arrayAvg")))
+  }
+
+  fun testFunctionAndTagNamesCompletionPerformance() {
+    myFixture.configureByText("a.cfml", "<cfset a = mi<caret>>\n<cfq")
+    val tagOffset = myFixture.file.textLength
+    val functionOffset = myFixture.caretOffset
+    PlatformTestUtil.startPerformanceTest(getTestName(false), 2_000) {
+      for (i in 0 until 100) {
+        for (offset in intArrayOf(functionOffset, tagOffset)) {
+          myFixture.editor.caretModel.moveToOffset(offset)
+          myFixture.completeBasic()
+          LookupManager.getInstance(project).hideActiveLookup()
+        }
+      }
+    }.attempts(3).assertTiming()
+  }
+
   fun testVariableNamesCompletion() {
     doTestCompletionVariants("mid", "min", "mineVariable", "minute")
   }
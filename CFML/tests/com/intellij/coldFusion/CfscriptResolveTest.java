@@ -18,17 +18,25 @@ package com.intellij.coldFusion;
 import com.intellij.coldFusion.UI.config.CfmlMappingsConfig;
 import com.intellij.coldFusion.UI.config.CfmlProjectConfiguration;
 import com.intellij.coldFusion.model.CfmlUtil;
+import com.intellij.coldFusion.model.files.CfmlFile;
 import com.intellij.coldFusion.model.parsers.CfmlElementTypes;
 import com.intellij.coldFusion.model.psi.*;
 import com.intellij.coldFusion.model.psi.impl.*;
+import com.intellij.coldFusion.model.psi.stubs.CfmlIndex;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.testFramework.builders.JavaModuleFixtureBuilder;
 import com.intellij.testFramework.fixtures.JavaCodeInsightFixtureTestCase;
 import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -264,6 +272,21 @@ public class CfscriptResolveTest extends JavaCodeInsightFixtureTestCase {
                  CfmlElementTypes.INTEGER_LITERAL);
   }
 
+  public void testResolveComponentVariableAfterChange() {
+    PsiElement element = doTest("counter");
+    assertAssignmentVariable(element);
+    assertEquals("counter = 0", element.getParent().getParent().getText());
+
+    Document document = myFixture.getEditor().getDocument();
+    int offset = document.getText().indexOf("counter = 0");
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.replaceString(offset, offset + "counter = 0".length(), "counter = 1"));
+    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+    element = myFixture.getReferenceAtCaretPositionWithAssertion().resolve();
+    assertInstanceOf(element, CfmlVariable.class);
+    assertEquals("counter = 1", element.getParent().getParent().getText());
+  }
+
   public void testResolveToScriptFunctionParameter() {
     final PsiElement element = doTest("var2");
     assertInstanceOf(element, CfmlFunctionParameterImpl.class);
@@ -509,6 +532,29 @@ public class CfscriptResolveTest extends JavaCodeInsightFixtureTestCase {
     assertEquals(assertInstanceOf(resolveReferenceAtCaret(), CfmlFunction.class).getName(), "func");
   }
 
+  public void testFunctionsWithSupersAfterChange() {
+    PsiFile base = myFixture.addFileToProject("Base.cfc", "component {\n  function baseFunc() {}\n  function func() {}\n}");
+    PsiFile child = myFixture.addFileToProject("Child.cfc", "component extends=\"Base\" {\n  function func() {}\n  function childFunc() {}\n}");
+    myFixture.addFileToProject("GrandChild.cfc", "component extends=\"Child\" {\n}");
+    CfmlComponent baseComponent = ((CfmlFile)base).getComponentDefinition();
+    CfmlComponent childComponent = ((CfmlFile)child).getComponentDefinition();
+
+    assertEquals(Collections.singletonList(childComponent), new ArrayList<>(CfmlIndex.getInstance(getProject()).getDirectInheritors(baseComponent)));
+    assertEquals("func, childFunc, baseFunc", getFunctionNames(childComponent.getFunctionsWithSupers(false)));
+    assertEquals("baseFunc, func, childFunc", getFunctionNames(childComponent.getFunctionsWithSupers(true)));
+    assertSame(childComponent, PsiTreeUtil.getParentOfType(childComponent.getFunctionsWithSupers(false)[0], CfmlComponent.class));
+
+    Document document = PsiDocumentManager.getInstance(getProject()).getDocument(base);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.insertString(document.getText().indexOf("{") + 1, "\n  function newFunc() {}"));
+    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+    assertEquals("func, childFunc, newFunc, baseFunc", getFunctionNames(childComponent.getFunctionsWithSupers(false)));
+  }
+
+  private static String getFunctionNames(CfmlFunction[] functions) {
+    return StringUtil.join(functions, CfmlFunction::getName, ", ");
+  }
+
   public void testMethodResolveInComponentAfterSuper() {
     addComponentsTo(myFixture);
     PsiElement element = resolveReferenceAtCaret();
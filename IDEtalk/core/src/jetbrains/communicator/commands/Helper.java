@@ -9,6 +9,7 @@ import jetbrains.communicator.core.transport.Transport;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.vfs.ProjectsData;
 import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileTransfer;
 import jetbrains.communicator.ide.CanceledException;
 import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.util.CommunicatorStrings;
@@ -65,19 +66,30 @@ public final class Helper {
               @Override
               public void run() {
 
+                VFileTransfer transfer = VFileTransfer.getTransfer(user.getTransportCode() + ':' + user.getName(), vFile);
+                transfer.start();
+
                 final Semaphore semaphore = new Semaphore(1);
                 try {
                   semaphore.acquire();
 
-                  transport.sendXmlMessage(user, new GetVFileContentsXmlMessage(vFile) {
-                    @Override
-                    public void processResponse(Element responseElement) {
-                      super.processResponse(responseElement);
-                      semaphore.release();
-                    }
-                  });
+                  int attemptsWithoutProgress = 0;
+                  while (!transfer.isFinished() && attemptsWithoutProgress < 2) {
+                    int receivedLength = transfer.getReceivedLength();
 
-                  semaphore.tryAcquire(getWaitTimeout(), TimeUnit.MILLISECONDS);
+                    transport.sendXmlMessage(user, new GetVFileContentsXmlMessage(vFile, transfer) {
+                      @Override
+                      public void processResponse(Element responseElement) {
+                        super.processResponse(responseElement);
+                        semaphore.release();
+                      }
+                    });
+
+                    // received chunks are kept in the transfer, so it is resumed next time if interrupted here
+                    if (!semaphore.tryAcquire(getWaitTimeout(), TimeUnit.MILLISECONDS)) break;
+
+                    attemptsWithoutProgress = transfer.getReceivedLength() > receivedLength ? 0 : attemptsWithoutProgress + 1;
+                  }
 
                 } catch (InterruptedException ignored) {
                   // noop
@@ -1,6 +1,7 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package jetbrains.communicator.core.impl.dispatcher;
 
+import com.intellij.openapi.util.io.FileUtil;
 import com.thoughtworks.xstream.XStream;
 import jetbrains.communicator.core.EventBroadcaster;
 import jetbrains.communicator.core.EventVisitor;
@@ -19,6 +20,9 @@ import java.io.File;
 import java.util.*;
 
 /**
+ * Pending messages are persisted in a directory named after {@link #getEventsFileName()}, one file per user, so that a change in the
+ * queue of one user rewrites only the file of this user.
+ *
  * @author Kir
  */
 public abstract class AbstractMessageDispatcher implements MessageDispatcher, Disposable {
@@ -108,7 +112,7 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
   public boolean sendNow(User user, Message message) {
     boolean result = performDispatch(user, message);
     if (result) {
-      save();
+      save(user);
     }
     return result;
   }
@@ -123,7 +127,7 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
           LOG.debug("Added pending message " + message + "\nfor user " + user);
         }
         userMessages.add(message);
-        save();
+        save(user);
       }
     }
   }
@@ -141,41 +145,96 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
 
   protected final void load() {
     synchronized (myUser2MessagesLock) {
-      Object pendingEventsStorable = XStreamUtil.fromXml(getXStream(), getFileName(), false);
-      if (pendingEventsStorable instanceof MessagesStorable) {
-        loadFromStorableMessages((MessagesStorable)pendingEventsStorable);
+      myUser2Messages.clear();
+
+      File[] files = getQueuesDir().listFiles();
+      if (files != null) {
+        for (File file : files) {
+          loadFromFile(file.getAbsolutePath());
+        }
+      }
+
+      // pending messages of all users were kept in one file before
+      File legacyFile = new File(myDataDir, getEventsFileName());
+      if (legacyFile.isFile()) {
+        loadFromFile(legacyFile.getAbsolutePath());
+        save();
+        legacyFile.delete();
       }
     }
   }
 
-  protected void loadFromStorableMessages(MessagesStorable messagesStorable) {
-    myUser2Messages.clear();
-    myUser2Messages.putAll(messagesStorable.getUser2Messages());
+  private void loadFromFile(String fileName) {
+    Object pendingEventsStorable = XStreamUtil.fromXml(getXStream(), fileName, false);
+    if (pendingEventsStorable instanceof MessagesStorable) {
+      myUser2Messages.putAll(((MessagesStorable)pendingEventsStorable).getUser2Messages());
+    }
+  }
+
+  private File getQueuesDir() {
+    return new File(myDataDir, FileUtil.getNameWithoutExtension(getEventsFileName()));
   }
 
-  private String getFileName() {
-    return new File(myDataDir, getEventsFileName()).getAbsolutePath();
+  private File getQueueFile(User user) {
+    String userKey = user.getTransportCode() + '_' + user.getName();
+    return new File(getQueuesDir(), FileUtil.sanitizeFileName(userKey, false) + '_' + Integer.toHexString(userKey.hashCode()) + ".xml");
   }
 
   private void removeUser(User user) {
     synchronized (myUser2MessagesLock) {
       myUser2Messages.remove(user);
-      save();
+      save(user);
     }
   }
 
+  /**
+   * Saves queues of all users.
+   */
   protected void save() {
     if (myDataDir == null || !myDataDir.exists()) return;
 
     LOG.debug("Save start");
     synchronized (myUser2MessagesLock) {
-      XStreamUtil.toXml(getXStream(), getFileName(), createStorableMessages());
+      File[] files = getQueuesDir().listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      for (User user : myUser2Messages.keySet()) {
+        doSave(user);
+      }
     }
     LOG.debug("Save finish");
   }
 
-  protected MessagesStorable createStorableMessages() {
-    return new MessagesStorable(myUser2Messages);
+  /**
+   * Saves queue of the given user only.
+   */
+  protected void save(User user) {
+    if (myDataDir == null || !myDataDir.exists()) return;
+
+    synchronized (myUser2MessagesLock) {
+      doSave(user);
+    }
+  }
+
+  private void doSave(User user) {
+    List<Message> messages = myUser2Messages.get(user);
+    File file = getQueueFile(user);
+    if (messages == null || messages.isEmpty()) {
+      file.delete();
+    }
+    else {
+      file.getParentFile().mkdirs();
+      XStreamUtil.toXml(getXStream(), file.getAbsolutePath(), createStorableMessages(user, messages));
+    }
+  }
+
+  protected MessagesStorable createStorableMessages(User user, List<Message> messages) {
+    Map<User, List<Message>> user2Messages = new HashMap<>();
+    user2Messages.put(user, messages);
+    return new MessagesStorable(user2Messages);
   }
 
   private XStream getXStream() {
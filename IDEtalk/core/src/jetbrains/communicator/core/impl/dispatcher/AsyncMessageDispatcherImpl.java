@@ -13,13 +13,24 @@ import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.util.WaitFor;
 import org.apache.log4j.Logger;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
+ * Each user has own queue of pending messages. Queues of different users are delivered concurrently on pooled threads,
+ * at most {@link #MAX_PARALLEL_DELIVERIES} at a time, so an unreachable user doesn't delay delivery to others.
+ * Delivery to a user stops at first failure and is retried with growing delay, or when the user becomes online.
+ *
  * @author Kir
  */
 public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implements AsyncMessageDispatcher, Runnable {
   private static final Logger LOG = Logger.getLogger(AsyncMessageDispatcherImpl.class);
 
   private static final String FILE_NAME = "pendingNetworkMessages.xml";
+  static final int MAX_PARALLEL_DELIVERIES = 4;
+  static final long INITIAL_RETRY_DELAY = 5 * 1000;
+  static final long MAX_RETRY_DELAY = 5 * 60 * 1000;
+
   private final MyEventListener myEventListener;
   private final IDEFacade myIdeFacade;
 
@@ -29,6 +40,10 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
 
   private boolean myShouldDeliverNow;
 
+  // guarded by myWorkingThreadLock
+  private final Map<User, DeliveryState> myDeliveryStates = new HashMap<>();
+  private int myActiveDeliveries;
+
   public AsyncMessageDispatcherImpl(EventBroadcaster broadcaster, IDEFacade ideFacade) {
     super(broadcaster, ideFacade.getCacheDir());
 
@@ -49,6 +64,12 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     return myThread != null && myThread.isAlive();
   }
 
+  public boolean isMessageDispatchInProgress() {
+    synchronized (myWorkingThreadLock) {
+      return myActiveDeliveries > 0;
+    }
+  }
+
   @Override
   public void run() {
     LOG.debug("Starting " + Thread.currentThread().getName());
@@ -59,18 +80,20 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     }
     try {
       LOG.debug("Started Network Message Dispatcher thread");
-      while (notDisposed()) {
-        synchronized(myWorkingThreadLock) {
+      synchronized (myWorkingThreadLock) {
+        while (notDisposed()) {
+          long delay = startDeliveries();
           while (!myShouldDeliverNow && notDisposed()) {
-            myWorkingThreadLock.wait();
+            if (delay == Long.MAX_VALUE) {
+              myWorkingThreadLock.wait();
+            }
+            else {
+              myWorkingThreadLock.wait(Math.max(delay, 1));
+              break;
+            }
           }
           myShouldDeliverNow = false;
         }
-        LOG.debug("Process pending network messages");
-
-        if (notDisposed()) {
-          dispatchAllMessages();
-        }
       }
     } catch (InterruptedException e) {
       LOG.warn(e.getMessage(), e);
@@ -86,16 +109,57 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     return myWorkingThread != null;
   }
 
-  private void dispatchAllMessages() {
-    User[] usersWithMessages = getUsersWithMessages();
-    for (int i = 0; i < usersWithMessages.length && isRunning(); i++) {
-      User user = usersWithMessages[i];
+  /**
+   * Starts delivery to users whose queues are not being delivered and whose retry time has come.
+   * Returns delay until the next retry, or {@code Long.MAX_VALUE} if nothing is to be retried.
+   * Should be called under myWorkingThreadLock.
+   */
+  private long startDeliveries() {
+    LOG.debug("Process pending network messages");
+    long now = System.currentTimeMillis();
+    long delay = Long.MAX_VALUE;
+
+    for (User user : getUsersWithMessages()) {
+      DeliveryState state = myDeliveryStates.computeIfAbsent(user, u -> new DeliveryState());
+      if (state.myInProgress) continue;
+      if (state.myNextAttempt > now) {
+        delay = Math.min(delay, state.myNextAttempt - now);
+        continue;
+      }
+      if (myActiveDeliveries >= MAX_PARALLEL_DELIVERIES) break; // will be continued when some delivery is finished
+
+      state.myInProgress = true;
+      myActiveDeliveries++;
+      myIdeFacade.runOnPooledThread(() -> deliver(user));
+    }
+    return delay;
+  }
+
+  private void deliver(User user) {
+    boolean delivered = true;
+    try {
       Message[] pendingMessages = getPendingMessages(user);
-      for (int j = 0; j < pendingMessages.length && isRunning(); j++) {
-        performDispatch(user, pendingMessages[j]);
+      for (int i = 0; i < pendingMessages.length && delivered && notDisposed(); i++) {
+        delivered = performDispatch(user, pendingMessages[i]);
+      }
+      save(user);
+    }
+    finally {
+      synchronized (myWorkingThreadLock) {
+        myActiveDeliveries--;
+        DeliveryState state = myDeliveryStates.get(user);
+        if (delivered || state == null) {
+          myDeliveryStates.remove(user);
+        }
+        else {
+          state.myInProgress = false;
+          state.myRetryDelay = state.myRetryDelay == 0 ? INITIAL_RETRY_DELAY : Math.min(state.myRetryDelay * 2, MAX_RETRY_DELAY);
+          state.myNextAttempt = System.currentTimeMillis() + state.myRetryDelay;
+        }
+        myShouldDeliverNow = true;
+        myWorkingThreadLock.notifyAll();
       }
     }
-    save();
   }
 
   @Override
@@ -125,7 +189,7 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
   public void sendLater(User user, Message message) {
     synchronized(myWorkingThreadLock) {
       addPendingMessage(user, message);
-      triggerDelivery();
+      triggerDelivery(user);
     }
   }
 
@@ -141,6 +205,19 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     }
   }
 
+  /**
+   * Triggers delivery to the user without waiting for the retry delay after previous failures.
+   */
+  void triggerDelivery(User user) {
+    synchronized(myWorkingThreadLock) {
+      DeliveryState state = myDeliveryStates.get(user);
+      if (state != null) {
+        state.myNextAttempt = 0;
+      }
+      triggerDelivery();
+    }
+  }
+
   private class MyEventListener extends IDEtalkAdapter {
     private final EventBroadcaster myBroadcaster;
 
@@ -157,9 +234,15 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     public void afterChange(IDEtalkEvent event) {
       event.accept(new EventVisitor(){
         @Override public void visitUserOnline(UserEvent.Online online) {
-          triggerDelivery();
+          triggerDelivery(online.getUser());
         }
       });
     }
   }
+
+  private static class DeliveryState {
+    private boolean myInProgress;
+    private long myRetryDelay;
+    private long myNextAttempt;
+  }
 }
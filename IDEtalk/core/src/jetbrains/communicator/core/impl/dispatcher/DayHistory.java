@@ -3,17 +3,16 @@ package jetbrains.communicator.core.impl.dispatcher;
 
 import jetbrains.communicator.core.dispatcher.LocalMessage;
 import jetbrains.communicator.core.users.User;
-import jetbrains.communicator.util.TimeUtil;
 
 import java.util.*;
 
 /**
+ * History of one day in the former XML format; it is only read to convert it to {@link HistorySegment}.
+ *
  * @author Kir
 */
 class DayHistory {
   private final Map<User, List<LocalMessage>> myData = new HashMap<>();
-  private transient Date myOldestDate;
-  private transient boolean myHasFullHistory;
 
   private List<LocalMessage> getMessages(User user) {
     List<LocalMessage> list = myData.get(user);
@@ -29,43 +28,13 @@ class DayHistory {
   }
 
   public void addMessage(User user, LocalMessage message) {
-    if (myOldestDate == null || myOldestDate.after(message.getWhen())) {
-      myOldestDate = TimeUtil.getDay(message.getWhen());
-    }
     getMessages(user).add(message);
   }
 
-  public void clear() {
-    myOldestDate = null;
-    myHasFullHistory = false;
-    myData.clear();
-  }
-
   public Iterable<? extends User> keySet() {
     return myData.keySet();
   }
 
-  public List<LocalMessage> get(User user) {
-    return myData.get(user);
-  }
-
-  public boolean hasHistorySince(Date since) {
-    if (myHasFullHistory) return true;
-    return myOldestDate != null && since != null && !since.before(myOldestDate) ;
-  }
-
-  public void copyTo(DayHistory history) {
-    for (User user : keySet()) {
-      for (LocalMessage message : readMessages(user)) {
-        history.addMessage(user, message);
-      }
-    }
-  }
-
-  public void setHasFullHistory() {
-    myHasFullHistory = true;
-  }
-
   public void resort() {
     for (User user : myData.keySet()) {
       List<LocalMessage> list = myData.get(user);
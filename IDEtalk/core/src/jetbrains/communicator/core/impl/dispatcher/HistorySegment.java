@@ -0,0 +1,171 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package jetbrains.communicator.core.impl.dispatcher;
+
+import com.thoughtworks.xstream.XStream;
+import jetbrains.communicator.core.dispatcher.LocalMessage;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NonNls;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Append-only file with history messages of one day. Each record is
+ * {@code [short key length][user key][long when][int payload length][payload]}, where payload is XStream XML of the message.<br>
+ * Records are indexed by user and time on first access, reading record headers only, so that only messages of the requested user
+ * and period are deserialized.
+ */
+class HistorySegment {
+  @NonNls
+  private static final Logger LOG = Logger.getLogger(HistorySegment.class);
+
+  private final File myFile;
+
+  /**
+   * Length of the file before anything was appended to it by this session. Records written later are already known to
+   * {@link MessageHistory}, so only records before this offset are read.
+   */
+  private long myInitialLength;
+  private boolean myHasBrokenTail;
+  private Map<String, UserRecords> myUserKeyToRecords;
+
+  HistorySegment(File file) {
+    myFile = file;
+    myInitialLength = file.length();
+  }
+
+  /**
+   * Reads messages of the user with {@code after < when <= upTo}.
+   */
+  synchronized List<LocalMessage> readMessages(String userKey, long after, long upTo, XStream xStream) {
+    UserRecords records = getIndex().get(userKey);
+    if (records == null) return Collections.emptyList();
+
+    List<LocalMessage> result = new ArrayList<>();
+    try (RandomAccessFile file = new RandomAccessFile(myFile, "r")) {
+      for (int i = 0; i < records.mySize; i++) {
+        if (records.myWhens[i] <= after || records.myWhens[i] > upTo) continue;
+
+        long offset = records.myOffsets[i];
+        file.seek(offset);
+        file.skipBytes(file.readUnsignedShort() + 8);
+        byte[] payload = new byte[file.readInt()];
+        file.readFully(payload);
+        try {
+          Object message = xStream.fromXML(new String(payload, StandardCharsets.UTF_8));
+          if (message instanceof LocalMessage) {
+            result.add((LocalMessage)message);
+          }
+        }
+        catch (RuntimeException e) {
+          LOG.info("Unable to read history record of " + userKey + " at " + offset + " in " + myFile, e);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Unable to read history of " + userKey + " from " + myFile, e);
+    }
+    return result;
+  }
+
+  synchronized void append(List<Record> records) throws IOException {
+    getIndex();
+    if (myHasBrokenTail) {
+      // Drop the record left by an interrupted write, otherwise records appended after it can't be read
+      try (RandomAccessFile file = new RandomAccessFile(myFile, "rw")) {
+        file.setLength(myInitialLength);
+      }
+      myHasBrokenTail = false;
+    }
+
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myFile, true)))) {
+      for (Record record : records) {
+        byte[] key = record.myUserKey.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(key.length);
+        output.write(key);
+        output.writeLong(record.myWhen);
+        output.writeInt(record.myPayload.length);
+        output.write(record.myPayload);
+      }
+    }
+  }
+
+  private Map<String, UserRecords> getIndex() {
+    if (myUserKeyToRecords == null) {
+      myUserKeyToRecords = buildIndex();
+    }
+    return myUserKeyToRecords;
+  }
+
+  private Map<String, UserRecords> buildIndex() {
+    Map<String, UserRecords> result = new HashMap<>();
+    if (myInitialLength == 0) return result;
+
+    long offset = 0;
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(myFile)))) {
+      while (offset < myInitialLength) {
+        byte[] key = new byte[input.readUnsignedShort()];
+        input.readFully(key);
+        long when = input.readLong();
+        int payloadLength = input.readInt();
+        long next = offset + 2 + key.length + 8 + 4 + payloadLength;
+        if (payloadLength < 0 || next > myInitialLength) break;
+
+        skipFully(input, payloadLength);
+        result.computeIfAbsent(new String(key, StandardCharsets.UTF_8), k -> new UserRecords()).add(offset, when);
+        offset = next;
+      }
+    }
+    catch (EOFException ignored) {
+      // broken tail, handled below
+    }
+    catch (IOException e) {
+      LOG.info("Unable to index " + myFile, e);
+      return result;
+    }
+
+    if (offset < myInitialLength) {
+      LOG.info("Broken history record at " + offset + " in " + myFile + ", ignoring the rest of the file");
+      myInitialLength = offset;
+      myHasBrokenTail = true;
+    }
+    return result;
+  }
+
+  private static void skipFully(DataInputStream input, int count) throws IOException {
+    while (count > 0) {
+      int skipped = input.skipBytes(count);
+      if (skipped <= 0) throw new EOFException();
+      count -= skipped;
+    }
+  }
+
+  private static class UserRecords {
+    private long[] myOffsets = new long[4];
+    private long[] myWhens = new long[4];
+    private int mySize;
+
+    void add(long offset, long when) {
+      if (mySize == myOffsets.length) {
+        myOffsets = Arrays.copyOf(myOffsets, mySize * 2);
+        myWhens = Arrays.copyOf(myWhens, mySize * 2);
+      }
+      myOffsets[mySize] = offset;
+      myWhens[mySize] = when;
+      mySize++;
+    }
+  }
+
+  static class Record {
+    private final String myUserKey;
+    private final long myWhen;
+    private final byte[] myPayload;
+
+    Record(String userKey, long when, byte[] payload) {
+      myUserKey = userKey;
+      myWhen = when;
+      myPayload = payload;
+    }
+  }
+}
@@ -7,19 +7,24 @@ import jetbrains.communicator.core.impl.users.UserImpl;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserModel;
 import jetbrains.communicator.ide.IDEFacade;
-import jetbrains.communicator.util.TimeUtil;
 import jetbrains.communicator.util.XStreamUtil;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.text.ParseException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Future;
 
 /**
+ * History is stored as one append-only {@link HistorySegment} per day, named {@code yyyy-MM-dd.log}. New messages are appended to
+ * segments in background, and history of a user is read only from segments of the requested period, and only once per session.
+ * Day files of the former XML format are converted to segments when they are first needed.
+ *
  * @author Kir
  */
 class MessageHistory {
@@ -29,56 +34,83 @@ class MessageHistory {
   public static final long SAVE_TIMEOUT = 300;
   @NonNls
   private static final String HISTORY = "history";
+  @NonNls
+  private static final String SEGMENT_EXTENSION = ".log";
+  @NonNls
+  private static final String XML_EXTENSION = ".xml";
+  @NonNls
+  private static final String BACKUP_EXTENSION = ".bak";
 
-  private final DayHistory myHistory = new DayHistory();
   @NonNls
   private final XStream myXStream;
-  private final UserModel myUserModel;
   private final IDEFacade myFacade;
 
+  private final Map<User, UserHistory> myUserHistories = new HashMap<>();
+  private List<PendingMessage> myPendingMessages = new ArrayList<>();
   private Future<?> myPendingSave;
 
+  // guarded by mySegments
+  private final Map<String, HistorySegment> mySegments = new HashMap<>();
+  private final TreeSet<String> myDays = new TreeSet<>();
+  private final Set<String> myXmlDays = new HashSet<>();
+  private int myGeneration;
+
   @NonNls
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
 
   MessageHistory(IDEFacade facade, UserModel userModel) {
     myFacade = facade;
-    myUserModel = userModel;
 
     getHistoryDir().mkdir();
 
-    myXStream = XStreamUtil.createXStream();
-    setupXStream();
+    myXStream = createXStream(userModel);
 
-    loadHistorySince(new Date());
+    collectDays();
   }
 
-  public synchronized void dispose() {
-    if (myPendingSave != null) {
-      myPendingSave.cancel(true);
+  public void dispose() {
+    Future<?> pendingSave;
+    synchronized (this) {
+      pendingSave = myPendingSave;
       myPendingSave = null;
     }
+    if (pendingSave != null) {
+      pendingSave.cancel(true);
+    }
+    saveHistory();
 
-    myHistory.clear();
+    synchronized (this) {
+      myUserHistories.clear();
+    }
   }
 
-  private void setupXStream() {
-    myXStream.alias("user", UserImpl.class);
-    myXStream.alias("dayHistory", DayHistory.class);
-    myXStream.aliasField("historyEntries", DayHistory.class, "myData");
+  static XStream createXStream(UserModel userModel) {
+    XStream xStream = XStreamUtil.createXStream();
+    xStream.alias("user", UserImpl.class);
+    xStream.alias("dayHistory", DayHistory.class);
+    xStream.aliasField("historyEntries", DayHistory.class, "myData");
 
-    myXStream.registerConverter(new UserConverter(myUserModel));
+    xStream.registerConverter(new UserConverter(userModel));
+    return xStream;
   }
 
   public synchronized void addMessage(User user, LocalMessage message) {
-    myHistory.addMessage(user, message);
+    getUserHistory(user).myMessages.add(message);
+    myPendingMessages.add(new PendingMessage(user, message));
     triggerSave();
   }
 
   public synchronized void clear() {
-    myHistory.clear();
-
-    deleteAllHistoryFiles();
+    myUserHistories.clear();
+    myPendingMessages.clear();
+
+    synchronized (mySegments) {
+      myGeneration++;
+      mySegments.clear();
+      myDays.clear();
+      myXmlDays.clear();
+      deleteAllHistoryFiles();
+    }
   }
 
   private void deleteAllHistoryFiles() {
@@ -95,69 +127,136 @@ class MessageHistory {
     return new File(myFacade.getCacheDir(), HISTORY);
   }
 
-  public synchronized LocalMessage[] getHistory(User user, @Nullable Date since) {
-    loadHistorySince(since);
+  private void collectDays() {
+    String[] fileNames = getHistoryDir().list();
+    if (fileNames == null) return;
 
-    List<LocalMessage> list = filterHistoryByDate(user, since);
-    return list.toArray(new LocalMessage[0]);
+    synchronized (mySegments) {
+      for (String fileName : fileNames) {
+        if (fileName.endsWith(SEGMENT_EXTENSION)) {
+          myDays.add(fileName.substring(0, fileName.length() - SEGMENT_EXTENSION.length()));
+        }
+        else if (fileName.endsWith(XML_EXTENSION)) {
+          String day = fileName.substring(0, fileName.length() - XML_EXTENSION.length());
+          myDays.add(day);
+          myXmlDays.add(day);
+        }
+      }
+    }
   }
 
-  private List<LocalMessage> filterHistoryByDate(User user, Date since) {
-    List<LocalMessage> list = myHistory.readMessages(user);
-    if (since != null) {
-      List<LocalMessage> result = new ArrayList<>(list.size());
-      for (LocalMessage message : list) {
-        if (message.getWhen().after(since)) {
-          result.add(message);
-        }
+  public synchronized LocalMessage[] getHistory(User user, @Nullable Date since) {
+    UserHistory history = getUserHistory(user);
+    long after = since == null ? Long.MIN_VALUE : since.getTime();
+
+    if (after < history.myLoadedAfter) {
+      loadHistory(user, history, after);
+    }
+
+    if (since == null) {
+      return history.myMessages.toArray(new LocalMessage[0]);
+    }
+
+    List<LocalMessage> result = new ArrayList<>();
+    for (LocalMessage message : history.myMessages) {
+      if (message.getWhen().after(since)) {
+        result.add(message);
       }
-      list = result;
     }
-    return list;
+    return result.toArray(new LocalMessage[0]);
   }
 
-  private void loadHistorySince(@Nullable Date since) {
-    if (since != null) {
-      since = TimeUtil.getDay(since);
+  private void loadHistory(User user, UserHistory history, long after) {
+    String userKey = getUserKey(user);
+    long upTo = history.myLoadedAfter;
+
+    List<LocalMessage> loaded = new ArrayList<>();
+    for (HistorySegment segment : getSegments(after, upTo)) {
+      loaded.addAll(segment.readMessages(userKey, after, upTo, myXStream));
     }
+    history.myLoadedAfter = after;
+
+    if (!loaded.isEmpty()) {
+      history.myMessages.addAll(loaded);
+      history.myMessages.sort(Comparator.comparing(LocalMessage::getWhen));
+    }
+  }
+
+  private List<HistorySegment> getSegments(long after, long upTo) {
+    synchronized (mySegments) {
+      if (myDays.isEmpty()) return Collections.emptyList();
 
-    if (!myHistory.hasHistorySince(since)) {
-      if (since == null) {
-        doLoadHistorySince(new Date(0));
-        myHistory.setHasFullHistory();
+      String fromDay = after == Long.MIN_VALUE ? myDays.first() : formatDay(after);
+      String toDay = upTo == Long.MAX_VALUE ? myDays.last() : formatDay(upTo);
+      if (fromDay.compareTo(toDay) > 0) return Collections.emptyList();
+
+      List<HistorySegment> result = new ArrayList<>();
+      for (String day : myDays.subSet(fromDay, true, toDay, true)) {
+        result.add(getSegment(day));
       }
-      else {
-        doLoadHistorySince(since);
+      return result;
+    }
+  }
+
+  // should be called under mySegments lock
+  private HistorySegment getSegment(String day) {
+    HistorySegment segment = mySegments.get(day);
+    if (segment == null) {
+      if (myXmlDays.remove(day)) {
+        convertXmlHistory(day);
       }
+      segment = new HistorySegment(new File(getHistoryDir(), day + SEGMENT_EXTENSION));
+      mySegments.put(day, segment);
+      myDays.add(day);
     }
+    return segment;
   }
 
-  private void doLoadHistorySince(Date since) {
-    File historyDir = getHistoryDir();
+  private void convertXmlHistory(String day) {
+    File xmlFile = new File(getHistoryDir(), day + XML_EXTENSION);
+    DayHistory dayHistory = (DayHistory)XStreamUtil.fromXml(myXStream, xmlFile.getPath(), false);
+    if (dayHistory == null) {
+      if (xmlFile.exists()) {
+        // keep the messages for the user, the backup is not picked up as a history day
+        File backup = new File(getHistoryDir(), day + XML_EXTENSION + BACKUP_EXTENSION);
+        LOG.warn("Unable to read history of " + day + ", moving it to " + backup.getName());
+        if (!xmlFile.renameTo(backup)) {
+          LOG.warn("Unable to move " + xmlFile + " to " + backup.getName());
+        }
+      }
+      return;
+    }
 
-    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(".xml"));
+    dayHistory.resort();
 
-    Arrays.sort(historyFiles);
-    for (int i = historyFiles.length - 1; i >= 0; i--) {
-      String historyFile = historyFiles[i];
-      try {
-        Date date = DATE_FORMAT.parse(historyFile);
-        if (!date.before(since) && !myHistory.hasHistorySince(date)) {
-          DayHistory dayHistory = (DayHistory)XStreamUtil.fromXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), false);
-          if (dayHistory != null) {
-            dayHistory.copyTo(myHistory);
-          }
-        }
+    List<HistorySegment.Record> records = new ArrayList<>();
+    for (User user : dayHistory.keySet()) {
+      for (LocalMessage message : dayHistory.readMessages(user)) {
+        records.add(createRecord(user, message));
       }
-      catch (ParseException e) {
-        // ignore file of wrong format
+    }
+
+    File segmentFile = new File(getHistoryDir(), day + SEGMENT_EXTENSION);
+    long segmentLength = segmentFile.length();
+    try {
+      // the segment is not registered yet, so its records are read as ones written before this session
+      new HistorySegment(segmentFile).append(records);
+    }
+    catch (IOException e) {
+      LOG.error("Unable to convert history of " + day + ", keeping " + xmlFile.getName(), e);
+      // drop the records written so far, the conversion is repeated in the next session
+      try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+        file.setLength(segmentLength);
       }
-      catch (NumberFormatException e) {
-        // ignore file of wrong format
+      catch (IOException e1) {
+        LOG.error("Unable to restore " + segmentFile, e1);
       }
+      return;
     }
 
-    myHistory.resort();
+    if (!xmlFile.delete()) {
+      LOG.warn("Unable to delete converted history " + xmlFile);
+    }
   }
 
   private void triggerSave() {
@@ -169,60 +268,92 @@ class MessageHistory {
           // Ignore here.
         }
         finally {
+          synchronized (this) {
+            myPendingSave = null;
+          }
           saveHistory();
-          myPendingSave = null;
         }
       });
     }
   }
 
-  private synchronized void saveHistory() {
+  private void saveHistory() {
+    List<PendingMessage> pendingMessages;
+    int generation;
+    synchronized (this) {
+      if (myPendingMessages.isEmpty()) return;
+      pendingMessages = myPendingMessages;
+      myPendingMessages = new ArrayList<>();
+      synchronized (mySegments) {
+        generation = myGeneration;
+      }
+    }
+
     LOG.debug("Start history save");
-    Map<Date, DayHistory> map = getHistory();
-    for (Date date : map.keySet()) {
-      DayHistory dayHistory = map.get(date);
+    Map<String, List<HistorySegment.Record>> dayToRecords = new TreeMap<>();
+    for (PendingMessage pendingMessage : pendingMessages) {
       try {
-        XStreamUtil.toXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), dayHistory);
-      } catch (RuntimeException e) {
-        LOG.error("Unable to save dayHistory for " + date + ": " + dayHistory, e);
+        HistorySegment.Record record = createRecord(pendingMessage.myUser, pendingMessage.myMessage);
+        dayToRecords.computeIfAbsent(formatDay(pendingMessage.myMessage.getWhen().getTime()), d -> new ArrayList<>()).add(record);
+      }
+      catch (RuntimeException e) {
+        LOG.error("Unable to save message for " + pendingMessage.myUser + ": " + pendingMessage.myMessage, e);
       }
     }
 
-    LOG.debug("Done history save");
-  }
-
-  private synchronized Map<Date, DayHistory> getHistory() {
-    Map<Date, DayHistory> result = new HashMap<>();
-
-    for (User user : myHistory.keySet()) {
-      List<LocalMessage> messages = myHistory.get(user);
-      for (LocalMessage message : messages) {
-        DayHistory dayHistory = getDayHistoryFor(message, result);
+    synchronized (mySegments) {
+      if (generation != myGeneration) return; // history was cleared meanwhile
 
-        dayHistory.addMessage(user, message);
+      for (Map.Entry<String, List<HistorySegment.Record>> entry : dayToRecords.entrySet()) {
+        try {
+          getSegment(entry.getKey()).append(entry.getValue());
+        }
+        catch (IOException e) {
+          LOG.error("Unable to save history for " + entry.getKey(), e);
+        }
       }
     }
+    LOG.debug("Done history save");
+  }
 
-    return result;
+  private HistorySegment.Record createRecord(User user, LocalMessage message) {
+    byte[] payload = myXStream.toXML(message).getBytes(StandardCharsets.UTF_8);
+    return new HistorySegment.Record(getUserKey(user), message.getWhen().getTime(), payload);
   }
 
-  private static DayHistory getDayHistoryFor(LocalMessage message, Map<Date, DayHistory> result) {
-    Date day = TimeUtil.getDay(message.getWhen());
-    DayHistory dayHistory = result.get(day);
-    if (dayHistory == null) {
-      dayHistory = new DayHistory();
-      result.put(day, dayHistory);
-    }
-    return dayHistory;
+  private UserHistory getUserHistory(User user) {
+    return myUserHistories.computeIfAbsent(user, u -> new UserHistory());
+  }
+
+  private static String getUserKey(User user) {
+    return user.getTransportCode() + ':' + user.getName();
   }
 
   @NonNls
-  private static String getFileNameForDate(Date date) {
-    return HISTORY + '/' + DATE_FORMAT.format(date) + ".xml";
+  private static String formatDay(long time) {
+    synchronized (DATE_FORMAT) {
+      return DATE_FORMAT.format(new Date(time));
+    }
   }
 
   public boolean isEmpty() {
     File historyDir = getHistoryDir();
     return !(historyDir.isDirectory() && historyDir.list().length > 0);
   }
+
+  private static class UserHistory {
+    private final List<LocalMessage> myMessages = new ArrayList<>();
+    /** Messages stored before this session with time after this one are in {@link #myMessages} already. */
+    private long myLoadedAfter = Long.MAX_VALUE;
+  }
+
+  private static class PendingMessage {
+    private final User myUser;
+    private final LocalMessage myMessage;
+
+    PendingMessage(User user, LocalMessage message) {
+      myUser = user;
+      myMessage = message;
+    }
+  }
 }
@@ -4,6 +4,7 @@ package jetbrains.communicator.core.impl.transport;
 import jetbrains.communicator.core.transport.GetVFileContentsXmlMessage;
 import jetbrains.communicator.core.users.UserModel;
 import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileTransfer;
 import jetbrains.communicator.ide.IDEFacade;
 import org.jdom.Element;
 
@@ -11,6 +12,9 @@ import org.jdom.Element;
  * @author Kir
  */
 public class GetVFileContentsProvider extends FileAccessProvider {
+  // contents and hash of the file served last, to avoid hashing the same contents for each chunk
+  private String myLastContents;
+  private String myLastContentHash;
 
   public GetVFileContentsProvider(IDEFacade ideFacade, UserModel userModel) {
     super(ideFacade, userModel);
@@ -25,6 +29,24 @@ public class GetVFileContentsProvider extends FileAccessProvider {
   protected void doProcess(Element request, Element response) {
     VFile from = VFile.createFrom(request);
     myIdeFacade.fillFileContents(from);
+
+    String contents = from.getContents();
+    if (!VFileTransfer.isChunkedRequest(request)) {
+      from.saveTo(response);
+      return;
+    }
+
+    from.setContents(null);
     from.saveTo(response);
+    VFileTransfer.fillResponse(request, response, contents, getContentHash(contents));
+  }
+
+  private synchronized String getContentHash(String contents) {
+    if (contents == null) return null;
+    if (!contents.equals(myLastContents)) {
+      myLastContents = contents;
+      myLastContentHash = VFileTransfer.hash(contents);
+    }
+    return myLastContentHash;
   }
 }
@@ -26,7 +26,7 @@ public class UserModelImpl implements UserModel, Disposable {
 
   protected final transient Object myUsersGroupsLock = new Object();
 
-  private final transient AtomicReference<User[]> myCachedUsers = new AtomicReference<>();
+  private final transient AtomicReference<UsersIndex> myCachedIndex = new AtomicReference<>();
 
   public UserModelImpl(EventBroadcaster eventBroadcaster) {
     myBroadcaster = eventBroadcaster;
@@ -61,6 +61,7 @@ public class UserModelImpl implements UserModel, Disposable {
         myUsers.add(user);
         myGroups.add(user.getGroup());
       }
+      myCachedIndex.set(null);
     });
   }
 
@@ -76,6 +77,7 @@ public class UserModelImpl implements UserModel, Disposable {
       synchronized (myUsersGroupsLock) {
         myUsers.remove(user);
       }
+      myCachedIndex.set(null);
     });
   }
 
@@ -86,43 +88,36 @@ public class UserModelImpl implements UserModel, Disposable {
       result = new TreeSet<>(myGroups);
     }
 
-    String lastGroup = null;
-    for (User user : getAllUsers()) {
-      if (!user.getGroup().equals(lastGroup)) {
-        lastGroup = user.getGroup();
-        result.add(lastGroup);
-      }
-    }
+    result.addAll(getIndex().myGroupToUsers.keySet());
     return ArrayUtilRt.toStringArray(result);
   }
 
   @Override
   public User[] getUsers(String groupName) {
-    List<User> result = new ArrayList<>();
-    for (User user : getAllUsers()) {
-      if (user.getGroup().equals(groupName)) {
-        result.add(user);
-      }
-    }
-    return result.toArray(new User[0]);
+    User[] users = getIndex().myGroupToUsers.get(groupName);
+    return users == null ? new User[0] : users.clone();
+  }
+
+  @Override
+  public User[] getOnlineUsers(String groupName) {
+    UsersIndex index = getIndex();
+    User[] users = index.myGroupToUsers.get(groupName);
+    return users == null ? new User[0] : Arrays.copyOf(users, index.myGroupToOnlineCount.get(groupName));
   }
 
   @Override
   public User @NotNull [] getAllUsers() {
-    User[] usersList = myCachedUsers.get();
-    if (usersList != null) {
-      return usersList;
-    }
+    return getIndex().myAllUsers;
+  }
 
-    usersList = getUsersList();
-    Arrays.sort(usersList, (u1, u2) -> {
-      if (u1.getGroup().equals(u2.getGroup())) {
-        return UIUtil.compareUsers(u1, u2);
-      }
-      return u1.getGroup().compareTo(u2.getGroup());
-    });
+  private UsersIndex getIndex() {
+    UsersIndex index = myCachedIndex.get();
+    if (index != null) {
+      return index;
+    }
 
-    return myCachedUsers.compareAndSet(null, usersList) ? usersList : getAllUsers();
+    index = new UsersIndex(getUsersList());
+    return myCachedIndex.compareAndSet(null, index) ? index : getIndex();
   }
 
   @Override
@@ -134,12 +129,8 @@ public class UserModelImpl implements UserModel, Disposable {
 
   @Override
   public String getGroup(User user) {
-    for (User user1 : getUsersList()) {
-      if (user1.equals(user)) {
-        return user1.getGroup();
-      }
-    }
-    return null;
+    User user1 = getIndex().myKeyToUser.get(UsersIndex.key(user.getName(), user.getTransportCode()));
+    return user1 != null && user1.equals(user) ? user1.getGroup() : null;
   }
 
   @Override
@@ -187,12 +178,7 @@ public class UserModelImpl implements UserModel, Disposable {
 
   @Override
   public User findUser(String userName, String transportCode) {
-    for (User user : getUsersList()) {
-      if (user.getName().equals(userName) && user.getTransportCode().equals(transportCode)) {
-        return user;
-      }
-    }
-    return null;
+    return getIndex().myKeyToUser.get(UsersIndex.key(userName, transportCode));
   }
 
   @Override
@@ -240,6 +226,7 @@ public class UserModelImpl implements UserModel, Disposable {
         }
         myGroups.add(newName);
       }
+      myCachedIndex.set(null);
     });
 
     return newName;
@@ -263,9 +250,59 @@ public class UserModelImpl implements UserModel, Disposable {
         @Override
         public void visitUserEvent(UserEvent event) {
           super.visitUserEvent(event);
-          myCachedUsers.set(null);
+          myCachedIndex.set(null);
+        }
+
+        @Override
+        public void visitGroupEvent(GroupEvent event) {
+          super.visitGroupEvent(event);
+          myCachedIndex.set(null);
         }
       });
     }
   }
+
+  /**
+   * Snapshot of users sorted by group and then by {@link UIUtil#compareUsers}, so that online users of a group go first,
+   * indexed by group and by name. It is dropped on any change of users or groups and rebuilt on the next request.
+   */
+  private static class UsersIndex {
+    private final User[] myAllUsers;
+    private final Map<String, User[]> myGroupToUsers = new HashMap<>();
+    private final Map<String, Integer> myGroupToOnlineCount = new HashMap<>();
+    // users are equal by name and transport, the same name may be used on several transports
+    private final Map<String, User> myKeyToUser = new HashMap<>();
+
+    UsersIndex(User[] users) {
+      Arrays.sort(users, (u1, u2) -> {
+        if (u1.getGroup().equals(u2.getGroup())) {
+          return UIUtil.compareUsers(u1, u2);
+        }
+        return u1.getGroup().compareTo(u2.getGroup());
+      });
+      myAllUsers = users;
+
+      int start = 0;
+      while (start < users.length) {
+        String group = users[start].getGroup();
+        int end = start;
+        int onlineCount = 0;
+        while (end < users.length && users[end].getGroup().equals(group)) {
+          if (users[end].isOnline()) onlineCount++;
+          end++;
+        }
+        myGroupToUsers.put(group, Arrays.copyOfRange(users, start, end));
+        myGroupToOnlineCount.put(group, onlineCount);
+        start = end;
+      }
+
+      for (User user : users) {
+        myKeyToUser.put(key(user.getName(), user.getTransportCode()), user);
+      }
+    }
+
+    static String key(String userName, String transportCode) {
+      return transportCode + '\n' + userName;
+    }
+  }
 }
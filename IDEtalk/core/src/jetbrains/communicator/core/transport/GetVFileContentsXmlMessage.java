@@ -3,7 +3,9 @@
 package jetbrains.communicator.core.transport;
 
 import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileTransfer;
 import org.jdom.Element;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Kir
@@ -11,9 +13,18 @@ import org.jdom.Element;
 public class GetVFileContentsXmlMessage implements XmlMessage {
   public static final String TAG = "fillContents";
   private final VFile myFile;
+  private final VFileTransfer myTransfer;
 
   public GetVFileContentsXmlMessage(VFile file) {
+    this(file, null);
+  }
+
+  /**
+   * @param transfer if not null, the next chunk of contents is requested, see {@link VFileTransfer}
+   */
+  public GetVFileContentsXmlMessage(VFile file, @Nullable VFileTransfer transfer) {
     myFile = file;
+    myTransfer = transfer;
   }
 
   @Override
@@ -34,12 +45,21 @@ public class GetVFileContentsXmlMessage implements XmlMessage {
   @Override
   public void fillRequest(Element element) {
     myFile.saveTo(element);
+    if (myTransfer != null) {
+      myTransfer.fillRequest(element);
+    }
   }
 
   @Override
   public void processResponse(Element responseElement) {
     VFile from = VFile.createFrom(responseElement);
-    if (from != null) {
+    if (myTransfer != null) {
+      myTransfer.processResponse(responseElement, from == null ? null : from.getContents());
+      if (myTransfer.getContents() != null) {
+        myFile.setContents(myTransfer.getContents());
+      }
+    }
+    else if (from != null) {
       myFile.setContents(from.getContents());
     }
   }
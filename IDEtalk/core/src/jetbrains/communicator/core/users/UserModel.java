@@ -28,6 +28,9 @@ public interface UserModel {
 
   User[] getUsers(String groupName);
 
+  /** online users of the group, sorted the same way as {@link #getUsers(String)} */
+  User[] getOnlineUsers(String groupName);
+
   User @NotNull [] getAllUsers();
 
   boolean hasUser(User user);
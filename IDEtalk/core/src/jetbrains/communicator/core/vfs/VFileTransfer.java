@@ -0,0 +1,256 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+
+package jetbrains.communicator.core.vfs;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transfer of {@link VFile} contents from a remote user by compressed chunks.<p>
+ *
+ * Each request asks for the chunk starting at {@link #getReceivedLength()} and tells the hash of contents known to this side,
+ * if any. Response carries hash and length of the whole contents and a deflated, Base64 encoded chunk with CRC32 of its text,
+ * or only says that contents are the same as the known ones. Received chunks are kept between requests, so an interrupted
+ * transfer is resumed unless contents were changed meanwhile.<p>
+ *
+ * Peers that don't know about chunks ignore the request attributes and respond with whole contents, which is accepted too.
+ */
+public final class VFileTransfer {
+  private static final Logger LOG = Logger.getLogger(VFileTransfer.class);
+
+  @NonNls public static final String CHUNK_OFFSET_ATTR = "chunkOffset";
+  @NonNls public static final String KNOWN_HASH_ATTR = "knownHash";
+  @NonNls public static final String CONTENT_HASH_ATTR = "contentHash";
+  @NonNls public static final String TOTAL_LENGTH_ATTR = "totalLength";
+  @NonNls public static final String SAME_CONTENTS_ATTR = "sameContents";
+  @NonNls public static final String CHUNK_ELEMENT = "chunk";
+  @NonNls public static final String CHECKSUM_ATTR = "checksum";
+
+  public static final int CHUNK_SIZE = 64 * 1024;
+  // a chunk of CHUNK_SIZE chars takes at most 3 * CHUNK_SIZE bytes in UTF-8
+  private static final int MAX_DECODED_CHUNK_SIZE = 4 * CHUNK_SIZE;
+  private static final int MAX_CACHED_TRANSFERS = 20;
+
+  private static final Map<String, VFileTransfer> ourTransfers = new LinkedHashMap<String, VFileTransfer>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, VFileTransfer> eldest) {
+      return size() > MAX_CACHED_TRANSFERS;
+    }
+  };
+
+  // contents received completely, and their hash
+  private String myContents;
+  private String myContentHash;
+  // chunks of contents being received, and hash of these contents
+  private final StringBuilder myReceived = new StringBuilder();
+  private String myReceivedHash;
+
+  private boolean myFinished;
+  private boolean myFailed;
+
+  /**
+   * Returns transfer of the given file from the given user; the same object is returned for later requests of the same file,
+   * so that it is resumed or skipped if the contents are not changed.
+   */
+  public static VFileTransfer getTransfer(String userKey, VFile file) {
+    String key = userKey + '\n' + file.getProjectName() + '\n' + file.getFullPath();
+    synchronized (ourTransfers) {
+      return ourTransfers.computeIfAbsent(key, k -> new VFileTransfer());
+    }
+  }
+
+  public synchronized void start() {
+    myFinished = false;
+    myFailed = false;
+  }
+
+  public synchronized boolean isFinished() {
+    return myFinished;
+  }
+
+  /** Returns received contents, or null if transfer is not finished or failed. */
+  @Nullable
+  public synchronized String getContents() {
+    return myFinished && !myFailed ? myContents : null;
+  }
+
+  public synchronized int getReceivedLength() {
+    return myReceived.length();
+  }
+
+  public synchronized void fillRequest(Element request) {
+    request.setAttribute(CHUNK_OFFSET_ATTR, String.valueOf(myReceived.length()));
+    if (myContentHash != null) {
+      request.setAttribute(KNOWN_HASH_ATTR, myContentHash);
+    }
+  }
+
+  /**
+   * @param wholeContents contents sent by a peer which doesn't support chunks
+   */
+  public synchronized void processResponse(Element response, @Nullable String wholeContents) {
+    String contentHash = response.getAttributeValue(CONTENT_HASH_ATTR);
+    if (contentHash == null) {
+      myContents = wholeContents;
+      myContentHash = wholeContents == null ? null : hash(wholeContents);
+      finish(wholeContents == null);
+      return;
+    }
+
+    if ("true".equals(response.getAttributeValue(SAME_CONTENTS_ATTR)) && contentHash.equals(myContentHash)) {
+      finish(false);
+      return;
+    }
+
+    Element chunk = response.getChild(CHUNK_ELEMENT, response.getNamespace());
+    int totalLength = StringUtil.parseInt(response.getAttributeValue(TOTAL_LENGTH_ATTR), -1);
+    if (chunk == null || totalLength < 0) {
+      LOG.info("Invalid VFile contents response");
+      finish(true);
+      return;
+    }
+
+    if (!contentHash.equals(myReceivedHash)) {
+      // other contents, or they were changed since previous chunks were received
+      myReceived.setLength(0);
+      myReceivedHash = contentHash;
+    }
+
+    int offset = StringUtil.parseInt(chunk.getAttributeValue(CHUNK_OFFSET_ATTR), -1);
+    if (offset != myReceived.length()) return; // will be requested again from the right offset
+
+    String text = decodeChunk(chunk.getText());
+    if (text == null || !String.valueOf(checksum(text)).equals(chunk.getAttributeValue(CHECKSUM_ATTR))) {
+      LOG.info("Broken VFile contents chunk at " + offset);
+      finish(true);
+      return;
+    }
+    myReceived.append(text);
+
+    if (myReceived.length() >= totalLength) {
+      String contents = myReceived.toString();
+      myReceived.setLength(0);
+      myReceivedHash = null;
+      if (contentHash.equals(hash(contents))) {
+        myContents = contents;
+        myContentHash = contentHash;
+        finish(false);
+      }
+      else {
+        LOG.info("VFile contents hash mismatch");
+        finish(true);
+      }
+    }
+  }
+
+  private void finish(boolean failed) {
+    myFinished = true;
+    myFailed = failed;
+  }
+
+  public static boolean isChunkedRequest(Element request) {
+    return request.getAttribute(CHUNK_OFFSET_ATTR) != null;
+  }
+
+  /**
+   * Fills response of the chunked request with the chunk of given contents requested by it.
+   */
+  public static void fillResponse(Element request, Element response, @Nullable String contents, @Nullable String contentHash) {
+    int offset = StringUtil.parseInt(request.getAttributeValue(CHUNK_OFFSET_ATTR), -1);
+    if (offset < 0 || contents == null) return;
+
+    if (contentHash == null) {
+      contentHash = hash(contents);
+    }
+    response.setAttribute(CONTENT_HASH_ATTR, contentHash);
+    response.setAttribute(TOTAL_LENGTH_ATTR, String.valueOf(contents.length()));
+
+    if (offset == 0 && contentHash.equals(request.getAttributeValue(KNOWN_HASH_ATTR))) {
+      response.setAttribute(SAME_CONTENTS_ATTR, "true");
+      return;
+    }
+
+    offset = Math.min(offset, contents.length());
+    int end = Math.min(contents.length(), offset + CHUNK_SIZE);
+    if (end < contents.length() && end - offset > 1 && Character.isHighSurrogate(contents.charAt(end - 1))) {
+      end--; // a surrogate pair split between chunks can't be encoded in UTF-8
+    }
+    String text = contents.substring(offset, end);
+    Element chunk = new Element(CHUNK_ELEMENT, response.getNamespace());
+    chunk.setAttribute(CHUNK_OFFSET_ATTR, String.valueOf(offset));
+    chunk.setAttribute(CHECKSUM_ATTR, String.valueOf(checksum(text)));
+    chunk.setText(encodeChunk(text));
+    response.addContent(chunk);
+  }
+
+  public static String hash(String contents) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return StringUtil.toHexString(digest.digest(contents.getBytes(StandardCharsets.UTF_8)));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static long checksum(String text) {
+    CRC32 crc = new CRC32();
+    crc.update(text.getBytes(StandardCharsets.UTF_8));
+    return crc.getValue();
+  }
+
+  static String encodeChunk(String text) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+      deflater.finish();
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        output.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return Base64.getEncoder().encodeToString(output.toByteArray());
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  @Nullable
+  static String decodeChunk(String encoded) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(Base64.getDecoder().decode(encoded.trim()));
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) return null;
+        if (output.size() + count > MAX_DECODED_CHUNK_SIZE) return null;
+        output.write(buffer, 0, count);
+      }
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+    catch (IllegalArgumentException | DataFormatException e) {
+      return null;
+    }
+    finally {
+      inflater.end();
+    }
+  }
+}
@@ -6,6 +6,7 @@ import jetbrains.communicator.core.EventBroadcaster;
 import jetbrains.communicator.core.EventVisitor;
 import jetbrains.communicator.core.IDEtalkAdapter;
 import jetbrains.communicator.core.IDEtalkEvent;
+import jetbrains.communicator.core.Pico;
 import jetbrains.communicator.core.dispatcher.LocalMessageDispatcher;
 import jetbrains.communicator.core.transport.TransportEvent;
 import jetbrains.communicator.core.users.*;
@@ -14,14 +15,20 @@ import jetbrains.communicator.util.UIUtil;
 import org.picocontainer.Disposable;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
+import java.util.*;
 
 /**
+ * Changes of users are collected for {@link #UPDATE_DELAY} ms and applied at once. Presence and name changes
+ * rebuild only the nodes of the affected groups; other changes rebuild the whole tree.
+ *
  * @author Kir Maximov
  */
 public class UsersTreeModel extends DefaultTreeModel implements Disposable {
+  static final int UPDATE_DELAY = 100;
 
   private final UserModel myUserModel;
   private final EventBroadcaster myBroadcaster;
@@ -29,6 +36,13 @@ public class UsersTreeModel extends DefaultTreeModel implements Disposable {
   private final IDEtalkAdapter myListener;
   private final LocalMessageDispatcher myLocalMessageDispatcher;
 
+  // accessed in EDT only
+  private final Set<User> myChangedUsers = new LinkedHashSet<>();
+  private final List<GroupEvent.Updated> myRenamedGroups = new ArrayList<>();
+  private boolean myRebuildNeeded;
+  private boolean mySelectFirstRow;
+  private final Timer myUpdateTimer;
+
   public UsersTreeModel(JTree tree, UserModel userModel, LocalMessageDispatcher localMessageDispatcher) {
     super(new RootNode(userModel, localMessageDispatcher));
     myUserModel = userModel;
@@ -36,24 +50,38 @@ public class UsersTreeModel extends DefaultTreeModel implements Disposable {
     myBroadcaster = myUserModel.getBroadcaster();
     myTree = tree;
 
+    myUpdateTimer = new Timer(UPDATE_DELAY, e -> flushUpdates());
+    myUpdateTimer.setRepeats(false);
+
     myListener = new IDEtalkAdapter() {
       @Override
       public void afterChange(IDEtalkEvent event) {
         event.accept(new EventVisitor(){
 
           @Override public void visitUserRemoved(UserEvent.Removed event) {
-            updateTree(null);
             UIUtil.invokeLater(() -> {
-              if (myTree.getRowCount() > 1) {
-                myTree.setSelectionRow(0);
-              }
+              mySelectFirstRow = true;
+              requestRebuild(null);
             });
           }
 
-          @Override public void visitUserEvent(UserEvent event) {
+          @Override public void visitUserAdded(UserEvent.Added event) {
             updateTree(null);
           }
 
+          @Override public void visitUserUpdated(UserEvent.Updated event) {
+            if (UserEvent.Updated.GROUP.equals(event.getPropertyName())) {
+              updateTree(null);
+            }
+            else {
+              userChanged(event.getUser());
+            }
+          }
+
+          @Override public void visitUserEvent(UserEvent event) {
+            userChanged(event.getUser());
+          }
+
           @Override public void visitGroupEvent(GroupEvent event) {
             updateTree(event);
           }
@@ -63,7 +91,13 @@ public class UsersTreeModel extends DefaultTreeModel implements Disposable {
           }
 
           @Override public void visitTransportEvent(TransportEvent event) {
-            updateTree(null);
+            User user = myUserModel.findUser(event.getRemoteUser(), event.getTransport().getName());
+            if (user != null) {
+              userChanged(user);
+            }
+            else {
+              updateTree(null);
+            }
           }
         });
       }
@@ -72,21 +106,140 @@ public class UsersTreeModel extends DefaultTreeModel implements Disposable {
   }
 
   void updateTree(final GroupEvent updated) {
+    UIUtil.invokeLater(() -> requestRebuild(updated));
+  }
 
+  private void userChanged(final User user) {
     UIUtil.invokeLater(() -> {
-      TreeState state = new TreeState(myTree);
-      if (updated instanceof GroupEvent.Updated) {
-        GroupEvent.Updated evt = ((GroupEvent.Updated) updated);
-        state.addReplacement(evt.getOldGroup(), evt.getNewGroup());
+      myChangedUsers.add(user);
+      scheduleUpdate();
+    });
+  }
+
+  private void requestRebuild(GroupEvent updated) {
+    if (updated instanceof GroupEvent.Updated) {
+      myRenamedGroups.add((GroupEvent.Updated)updated);
+    }
+    myRebuildNeeded = true;
+    scheduleUpdate();
+  }
+
+  private void scheduleUpdate() {
+    if (Pico.isUnitTest()) { // the same way as UIUtil.invokeLater
+      flushUpdates();
+    }
+    else if (!myUpdateTimer.isRunning()) {
+      myUpdateTimer.start();
+    }
+  }
+
+  private void flushUpdates() {
+    myUpdateTimer.stop();
+
+    if (!myRebuildNeeded) {
+      Set<String> groups = new LinkedHashSet<>();
+      for (User user : myChangedUsers) {
+        groups.add(user.getGroup());
       }
+      for (String group : groups) {
+        if (!updateGroup(group, myChangedUsers)) {
+          myRebuildNeeded = true;
+          break;
+        }
+      }
+    }
+    myChangedUsers.clear();
 
-      setRoot(new RootNode(myUserModel, myLocalMessageDispatcher));
-      state.restore(myTree);
-    });
+    if (myRebuildNeeded) {
+      rebuild();
+    }
+  }
+
+  private void rebuild() {
+    TreeState state = new TreeState(myTree);
+    for (GroupEvent.Updated evt : myRenamedGroups) {
+      state.addReplacement(evt.getOldGroup(), evt.getNewGroup());
+    }
+    myRenamedGroups.clear();
+    myRebuildNeeded = false;
+
+    setRoot(new RootNode(myUserModel, myLocalMessageDispatcher));
+    state.restore(myTree);
+
+    if (mySelectFirstRow) {
+      mySelectFirstRow = false;
+      if (myTree.getRowCount() > 1) {
+        myTree.setSelectionRow(0);
+      }
+    }
+  }
+
+  /**
+   * Replaces user nodes of the group node, keeping its expansion and selection of its users.
+   * @return false if the group node should appear or disappear, so the whole tree should be rebuilt
+   */
+  private boolean updateGroup(String group, Set<User> changedUsers) {
+    DefaultMutableTreeNode groupNode = findGroupNode(group);
+    List<User> users = getVisibleUsers(group, myUserModel, myLocalMessageDispatcher);
+    if (groupNode == null || users.isEmpty() && OptionFlag.OPTION_HIDE_OFFLINE_USERS.isSet()) {
+      return false;
+    }
+
+    List<User> oldUsers = new ArrayList<>();
+    for (int i = 0; i < groupNode.getChildCount(); i++) {
+      oldUsers.add((User)((DefaultMutableTreeNode)groupNode.getChildAt(i)).getUserObject());
+    }
+
+    if (oldUsers.equals(users)) {
+      for (int i = 0; i < groupNode.getChildCount(); i++) {
+        DefaultMutableTreeNode userNode = (DefaultMutableTreeNode)groupNode.getChildAt(i);
+        if (changedUsers.contains(userNode.getUserObject())) {
+          nodeChanged(userNode);
+        }
+      }
+      return true;
+    }
+
+    TreePath groupPath = new TreePath(groupNode.getPath());
+    List<User> selectedUsers = new ArrayList<>();
+    TreePath[] selectionPaths = myTree.getSelectionPaths();
+    if (selectionPaths != null) {
+      for (TreePath path : selectionPaths) {
+        if (groupPath.equals(path.getParentPath())) {
+          selectedUsers.add((User)((DefaultMutableTreeNode)path.getLastPathComponent()).getUserObject());
+        }
+      }
+    }
+
+    groupNode.removeAllChildren();
+    for (User user : users) {
+      groupNode.add(createUserNode(user));
+    }
+    nodeStructureChanged(groupNode);
+
+    for (int i = 0; i < groupNode.getChildCount(); i++) {
+      DefaultMutableTreeNode userNode = (DefaultMutableTreeNode)groupNode.getChildAt(i);
+      if (selectedUsers.contains(userNode.getUserObject())) {
+        myTree.addSelectionPath(groupPath.pathByAddingChild(userNode));
+      }
+    }
+    return true;
+  }
+
+  private DefaultMutableTreeNode findGroupNode(String group) {
+    DefaultMutableTreeNode rootNode = (DefaultMutableTreeNode)getRoot();
+    for (int i = 0; i < rootNode.getChildCount(); i++) {
+      DefaultMutableTreeNode groupNode = (DefaultMutableTreeNode)rootNode.getChildAt(i);
+      if (group.equals(groupNode.getUserObject())) {
+        return groupNode;
+      }
+    }
+    return null;
   }
 
   @Override
   public void dispose() {
+    myUpdateTimer.stop();
     myBroadcaster.removeListener(myListener);
   }
 
@@ -105,27 +258,42 @@ public class UsersTreeModel extends DefaultTreeModel implements Disposable {
     }
   }
 
+  private static List<User> getVisibleUsers(String group, UserModel userModel, LocalMessageDispatcher localMessageDispatcher) {
+    if (!OptionFlag.OPTION_HIDE_OFFLINE_USERS.isSet()) {
+      return Arrays.asList(userModel.getUsers(group));
+    }
+
+    User[] users = userModel.getUsers(group);
+    List<User> result = new ArrayList<>(Arrays.asList(userModel.getOnlineUsers(group)));
+    for (int i = result.size(); i < users.length; i++) {
+      if (users[i].isOnline() || 0 != localMessageDispatcher.getPendingMessages(users[i]).length) {
+        result.add(users[i]);
+      }
+    }
+    return result;
+  }
+
+  private static DefaultMutableTreeNode createUserNode(final User user) {
+    return new DefaultMutableTreeNode(user, false) {
+      public String toString() {
+        // For speed search:
+        return user.getDisplayName();
+      }
+    };
+  }
+
   private static class RootNode extends DefaultMutableTreeNode {
     RootNode(UserModel userModel, LocalMessageDispatcher localMessageDispatcher) {
       super(RootNode.class);
 
       for (String group : userModel.getGroups()) {
+        List<User> users = getVisibleUsers(group, userModel, localMessageDispatcher);
+        if (users.isEmpty() && OptionFlag.OPTION_HIDE_OFFLINE_USERS.isSet()) continue;
+
         DefaultMutableTreeNode groupNode = new DefaultMutableTreeNode(group, true);
         add(groupNode);
-
-        for (final User user : userModel.getUsers(group)) {
-          if (!OptionFlag.OPTION_HIDE_OFFLINE_USERS.isSet() || user.isOnline()
-              || 0 != localMessageDispatcher.getPendingMessages(user).length) {
-            groupNode.add(new DefaultMutableTreeNode(user, false) {
-              public String toString() {
-                // For speed search:
-                return user.getDisplayName();
-              }
-            });
-          }
-        }
-        if (groupNode.getChildCount() == 0 && OptionFlag.OPTION_HIDE_OFFLINE_USERS.isSet()) {
-          remove(groupNode);
+        for (User user : users) {
+          groupNode.add(createUserNode(user));
         }
       }
     }
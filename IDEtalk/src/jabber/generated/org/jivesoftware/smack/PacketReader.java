@@ -20,7 +20,10 @@
 
 package org.jivesoftware.smack;
 
+import org.jivesoftware.smack.filter.AndFilter;
 import org.jivesoftware.smack.filter.PacketFilter;
+import org.jivesoftware.smack.filter.PacketIDFilter;
+import org.jivesoftware.smack.filter.PacketTypeFilter;
 import org.jivesoftware.smack.packet.*;
 import org.jivesoftware.smack.provider.IQProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
@@ -48,8 +51,7 @@ class PacketReader {
     private XMPPConnection connection;
     private XmlPullParser parser;
     private boolean done = false;
-    private final VolatileMemberCollection<PacketCollector> collectors =
-            new VolatileMemberCollection<PacketCollector>(50);
+    private final CollectorIndex collectors = new CollectorIndex();
     private final VolatileMemberCollection listeners = new VolatileMemberCollection(50);
     protected final List<ConnectionListener> connectionListeners =
             new ArrayList<ConnectionListener>();
@@ -397,8 +399,8 @@ class PacketReader {
 
     /**
      * Processes a packet after it's been fully parsed by looping through the installed
-     * packet collectors and listeners and letting them examine the packet to see if
-     * they are a match with the filter.
+     * packet collectors and listeners whose filters may match the packet and letting them
+     * examine the packet to see if they are a match with the filter.
      *
      * @param packet the packet to process.
      */
@@ -407,10 +409,8 @@ class PacketReader {
             return;
         }
 
-        // Loop through all collectors and notify the appropriate ones.
-        Iterator it = collectors.getIterator();
-        while (it.hasNext()) {
-            PacketCollector collector = (PacketCollector) it.next();
+        // Loop through the collectors that may accept the packet and notify the appropriate ones.
+        for (PacketCollector collector : collectors.getCollectors(packet)) {
             collector.processPacket(packet);
         }
 
@@ -858,6 +858,139 @@ class PacketReader {
         }
     }
 
+    /**
+     * Packet collectors indexed by the packet ID or the packet type their filters require, so
+     * that a packet is offered only to the collectors that may accept it. Most collectors wait
+     * for a reply with a known packet ID, so a packet is usually checked by a few filters
+     * instead of all of them. Collectors with other filters are offered every packet.
+     */
+    static class CollectorIndex {
+
+        private final Object mutex = new Object();
+        private final Map<String, List<PacketCollector>> byPacketID =
+                new HashMap<String, List<PacketCollector>>();
+        private final Map<Class, List<PacketCollector>> byPacketType =
+                new HashMap<Class, List<PacketCollector>>();
+        private final List<PacketCollector> unindexed = new ArrayList<PacketCollector>();
+
+        public void add(PacketCollector collector) {
+            PacketFilter filter = collector.getPacketFilter();
+            String packetID = getPacketID(filter);
+            Class packetType = packetID == null ? getPacketType(filter) : null;
+            synchronized (mutex) {
+                if (packetID != null) {
+                    addTo(byPacketID, packetID, collector);
+                }
+                else if (packetType != null) {
+                    addTo(byPacketType, packetType, collector);
+                }
+                else {
+                    unindexed.add(collector);
+                }
+            }
+        }
+
+        public void remove(PacketCollector collector) {
+            PacketFilter filter = collector.getPacketFilter();
+            String packetID = getPacketID(filter);
+            Class packetType = packetID == null ? getPacketType(filter) : null;
+            synchronized (mutex) {
+                if (packetID != null) {
+                    removeFrom(byPacketID, packetID, collector);
+                }
+                else if (packetType != null) {
+                    removeFrom(byPacketType, packetType, collector);
+                }
+                else {
+                    unindexed.remove(collector);
+                }
+            }
+        }
+
+        /**
+         * Returns the collectors whose filters may accept the packet.
+         *
+         * @param packet the packet to process.
+         * @return the collectors to offer the packet to.
+         */
+        public List<PacketCollector> getCollectors(Packet packet) {
+            List<PacketCollector> result = new ArrayList<PacketCollector>();
+            synchronized (mutex) {
+                result.addAll(unindexed);
+                if (!byPacketID.isEmpty()) {
+                    String packetID = packet.getPacketID();
+                    List<PacketCollector> collectors = packetID == null ? null : byPacketID.get(packetID);
+                    if (collectors != null) {
+                        result.addAll(collectors);
+                    }
+                }
+                if (!byPacketType.isEmpty()) {
+                    for (Class type = packet.getClass(); type != null; type = type.getSuperclass()) {
+                        List<PacketCollector> collectors = byPacketType.get(type);
+                        if (collectors != null) {
+                            result.addAll(collectors);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static <K> void addTo(Map<K, List<PacketCollector>> map, K key, PacketCollector collector) {
+            List<PacketCollector> collectors = map.get(key);
+            if (collectors == null) {
+                collectors = new ArrayList<PacketCollector>(1);
+                map.put(key, collectors);
+            }
+            collectors.add(collector);
+        }
+
+        private static <K> void removeFrom(Map<K, List<PacketCollector>> map, K key, PacketCollector collector) {
+            List<PacketCollector> collectors = map.get(key);
+            if (collectors != null && collectors.remove(collector) && collectors.isEmpty()) {
+                map.remove(key);
+            }
+        }
+
+        /**
+         * Returns the packet ID every packet accepted by the filter has, or <tt>null</tt> if
+         * the filter doesn't require it.
+         */
+        private static String getPacketID(PacketFilter filter) {
+            if (filter instanceof PacketIDFilter) {
+                return ((PacketIDFilter) filter).getPacketID();
+            }
+            if (filter instanceof AndFilter) {
+                for (PacketFilter andFilter : ((AndFilter) filter).getFilters()) {
+                    String packetID = getPacketID(andFilter);
+                    if (packetID != null) {
+                        return packetID;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the type every packet accepted by the filter is an instance of, or <tt>null</tt> if
+         * the filter doesn't require it.
+         */
+        private static Class getPacketType(PacketFilter filter) {
+            if (filter instanceof PacketTypeFilter) {
+                return ((PacketTypeFilter) filter).getPacketType();
+            }
+            if (filter instanceof AndFilter) {
+                for (PacketFilter andFilter : ((AndFilter) filter).getFilters()) {
+                    Class packetType = getPacketType(andFilter);
+                    if (packetType != null) {
+                        return packetType;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
     /**
      * A wrapper class to associate a packet collector with a listener.
      */
@@ -32,12 +32,29 @@ import java.util.List;
 /**
  * Writes packets to a XMPP server. Packets are sent using a dedicated thread. Packet
  * interceptors can be registered to dynamically modify packets before they're actually
- * sent. Packet listeners can be registered to listen for all outgoing packets.
+ * sent. Packet listeners can be registered to listen for all outgoing packets.<p>
+ *
+ * Packets queued while the writer thread is busy are written together and the stream
+ * is flushed once the queue becomes empty, so a burst of packets doesn't result in a
+ * burst of small writes. The queue is bounded: threads sending packets wait while it
+ * is full.
  *
  * @author Matt Tucker
  */
 class PacketWriter {
 
+    /**
+     * Max number of packets waiting to be written. When it is reached, {@link #sendPacket(Packet)}
+     * blocks until the writer thread catches up.
+     */
+    private static final int MAX_QUEUE_SIZE = 500;
+
+    /**
+     * Max number of packets written before the stream is flushed, even if more packets
+     * are waiting in the queue.
+     */
+    private static final int MAX_BATCH_SIZE = 50;
+
     private Thread writerThread;
     private Writer writer;
     private XMPPConnection connection;
@@ -64,6 +81,14 @@ class PacketWriter {
      */
     private boolean interceptorDeleted = false;
 
+    /**
+     * Statistics of the outbound queue, guarded by the queue.
+     */
+    private long writtenPacketCount = 0;
+    private long flushCount = 0;
+    private long blockedSendCount = 0;
+    private int maxQueueSize = 0;
+
     /**
      * Creates a new packet writer with the specified connection.
      *
@@ -95,7 +120,19 @@ class PacketWriter {
             processInterceptors(packet);
 
             synchronized(queue) {
+                if (queue.size() >= MAX_QUEUE_SIZE) {
+                    blockedSendCount++;
+                    while (!done && queue.size() >= MAX_QUEUE_SIZE) {
+                        try {
+                            queue.wait(2000);
+                        }
+                        catch (InterruptedException ie) {
+                            // Do nothing
+                        }
+                    }
+                }
                 queue.addFirst(packet);
+                maxQueueSize = Math.max(maxQueueSize, queue.size());
                 queue.notifyAll();
             }
 
@@ -221,6 +258,66 @@ class PacketWriter {
      */
     public void shutdown() {
         done = true;
+        // Wake up the writer thread and the threads waiting for room in the queue
+        synchronized (queue) {
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the number of packets waiting to be written.
+     *
+     * @return the number of queued packets.
+     */
+    int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Returns the largest number of packets that were waiting to be written at once.
+     *
+     * @return the peak size of the queue.
+     */
+    int getMaxQueueSize() {
+        synchronized (queue) {
+            return maxQueueSize;
+        }
+    }
+
+    /**
+     * Returns the number of packets written to the server.
+     *
+     * @return the count of written packets.
+     */
+    long getWrittenPacketCount() {
+        synchronized (queue) {
+            return writtenPacketCount;
+        }
+    }
+
+    /**
+     * Returns the number of times the stream was flushed after writing packets. Together with
+     * {@link #getWrittenPacketCount()} it shows how well packets are batched.
+     *
+     * @return the count of flushes.
+     */
+    long getFlushCount() {
+        synchronized (queue) {
+            return flushCount;
+        }
+    }
+
+    /**
+     * Returns the number of times a packet couldn't be queued at once because the queue was full.
+     *
+     * @return the count of blocked sends.
+     */
+    long getBlockedSendCount() {
+        synchronized (queue) {
+            return blockedSendCount;
+        }
     }
 
     /**
@@ -238,7 +335,22 @@ class PacketWriter {
                     // Do nothing
                 }
             }
+            return pollPacket();
+        }
+    }
+
+    /**
+     * Returns the next packet from the queue for writing, or <tt>null</tt> if the queue is empty.
+     *
+     * @return the next packet for writing.
+     */
+    private Packet pollPacket() {
+        synchronized(queue) {
             if (queue.size() > 0) {
+                if (queue.size() == MAX_QUEUE_SIZE) {
+                    // Let the senders waiting for room in the queue proceed
+                    queue.notifyAll();
+                }
                 return queue.removeLast();
             }
             else {
@@ -255,12 +367,23 @@ class PacketWriter {
             while (!done) {
                 Packet packet = nextPacket();
                 if (packet != null) {
+                    int batchSize = 0;
                     synchronized (writer) {
-                        writer.write(packet.toXML());
+                        // Write out the packets queued meanwhile too, and flush once
+                        // the queue is drained.
+                        do {
+                            writer.write(packet.toXML());
+                            batchSize++;
+                        }
+                        while (batchSize < MAX_BATCH_SIZE && (packet = pollPacket()) != null);
                         writer.flush();
                         // Keep track of the last time a stanza was sent to the server
                         lastActive = System.currentTimeMillis();
                     }
+                    synchronized (queue) {
+                        writtenPacketCount += batchSize;
+                        flushCount++;
+                    }
                 }
             }
             // Close the stream.
@@ -88,6 +88,17 @@ public class AndFilter implements PacketFilter {
         size++;
     }
 
+    /**
+     * Returns the filters of the AND operation.
+     *
+     * @return the filter list.
+     */
+    public PacketFilter[] getFilters() {
+        PacketFilter [] result = new PacketFilter[size];
+        System.arraycopy(filters, 0, result, 0, size);
+        return result;
+    }
+
     public boolean accept(Packet packet) {
         for (int i=0; i<size; i++) {
             if (!filters[i].accept(packet)) {
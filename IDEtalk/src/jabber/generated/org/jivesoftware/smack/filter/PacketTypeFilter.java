@@ -51,6 +51,15 @@ public class PacketTypeFilter implements PacketFilter {
         this.packetType = packetType;
     }
 
+    /**
+     * Returns the type of packets to filter for.
+     *
+     * @return the Class type.
+     */
+    public Class getPacketType() {
+        return packetType;
+    }
+
     public boolean accept(Packet packet) {
         return packetType.isInstance(packet);
     }
@@ -50,7 +50,7 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
 
   static final String CODE = "P2P";
 
-  static final int XML_RPC_PORT = MulticastPingThread.MULTICAST_PORT + 1;
+  static final int XML_RPC_PORT = UserMonitorThread.MULTICAST_PORT + 1;
 
   private final UserMonitorThread myUserMonitorThread;
 
@@ -58,6 +58,8 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
   private final Map<User, OnlineUserInfo> myUserToInfo = new THashMap<>();
   private final Map<User, OnlineUserInfo> myUserToInfoNew = new THashMap<>();
   private final Collection<User> myOnlineUsers = new THashSet<>();
+  // users whose Online event is being dispatched; responses arrive on several threads and must not announce a user twice
+  private final Collection<User> myUsersGoingOnline = new THashSet<>();
 
   private final EventBroadcaster myEventBroadcaster;
   private final IDEtalkListener myUserAddedCallbackListener;
@@ -360,6 +362,11 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
     }
   }
 
+  @Override
+  public void userFound(@NotNull User user) {
+    addNewOnlineUsers(Collections.singleton(user));
+  }
+
   public void setAvailable(String remoteUser) {
     final User user = myUserModel.findUser(remoteUser, getName());
     if (user != null) {
@@ -415,9 +422,11 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
 
   private void addNewOnlineUsers(@NotNull Collection<User> onlineUsers) {
     List<Pair<IDEtalkEvent, Runnable>> events = new SmartList<>();
+    List<User> usersGoingOnline = new SmartList<>();
     synchronized (myLock) {
       for (final User user : onlineUsers) {
-        if (!myOnlineUsers.contains(user) && myUserToInfoNew.containsKey(user)) {
+        if (!myOnlineUsers.contains(user) && myUserToInfoNew.containsKey(user) && myUsersGoingOnline.add(user)) {
+          usersGoingOnline.add(user);
           events.add(new Pair<>(new UserEvent.Online(user), new MySyncRunnable() {
             @Override
             protected void execute() {
@@ -429,7 +438,14 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
       }
     }
 
-    dispatchEvents(events);
+    try {
+      dispatchEvents(events);
+    }
+    finally {
+      synchronized (myLock) {
+        myUsersGoingOnline.removeAll(usersGoingOnline);
+      }
+    }
   }
 
   private void removeOfflineUsersAndUpdateOldOnlineUsers(@NotNull Collection onlineUsers) {
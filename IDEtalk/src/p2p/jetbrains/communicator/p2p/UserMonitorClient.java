@@ -26,6 +26,11 @@ import java.util.Collection;
 public interface UserMonitorClient {
   void setOnlineUsers(Collection<User> onlineUsers);
 
+  /**
+   * Called as soon as a user responds during the scan, before the whole list is passed to {@link #setOnlineUsers(Collection)}
+   */
+  void userFound(User user);
+
   User createUser(String remoteUsername, OnlineUserInfo onlineUserInfo);
   int getPort();
   UserPresence getOwnPresence();
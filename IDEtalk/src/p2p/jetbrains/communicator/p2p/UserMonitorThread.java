@@ -6,22 +6,32 @@ import gnu.trove.THashSet;
 import jetbrains.communicator.core.Pico;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserPresence;
+import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.ide.TalkProgressIndicator;
+import jetbrains.communicator.p2p.commands.AddOnlineUserP2PCommand;
 import jetbrains.communicator.util.CommunicatorStrings;
-import jetbrains.communicator.util.WaitFor;
 import org.apache.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.NoRouteToHostException;
-import java.net.UnknownHostException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * @author Kir Maximov
  *         <p/>
  *         This thread periodically scans the local network via multicast
- *         request and passes obtained users to UserMonitorClient
+ *         request and passes obtained users to UserMonitorClient.
+ *         <p/>
+ *         The thread serves all network interfaces with one {@link Selector}: it listens for multicast requests of other users
+ *         on a non-blocking channel per interface, answers them, and schedules the scans. Users are passed to the client
+ *         as soon as their responses arrive; the whole list of online users is set when the scan is over.
  */
 @SuppressWarnings({"HardCodedStringLiteral"})
 public class UserMonitorThread extends Thread {
@@ -31,29 +41,52 @@ public class UserMonitorThread extends Thread {
   static final String SCAN_TIMEOUT_PROPERTY = "ideTalk.scanTimeout";
   static final long TIMEOUT_BETWEEN_SCANS = 3 * Time.MINUTE;
 
-  private final MulticastPingThread[] myMulticastThreads;
+  public static final int MULTICAST_PORT = 2863;
+  static final String PING_MESSAGE = "Is there anybody out there?";
+  private static final String MULTICAST_ADDRESS = "239.203.13.64";
+  private static final int BUFFER_SIZE = PING_MESSAGE.getBytes(StandardCharsets.UTF_8).length + 6;
+  private static final int ALLOWED_FAILURES = 3000;
+
+  private final Collection<InetAddress> mySelfAddresses;
+  private final int myListenPort;
+  private final InetSocketAddress myPingTarget;
   private final UserMonitorClient myClient;
+  private final IDEFacade myIdeFacade;
   private final long myWaitUserResponsesTimeout;
   private final long myScansTimeout;
 
   private final Set<User> myAvailableUsers = Collections.synchronizedSet(new THashSet<>());
+  private final List<NetworkInterfaceChannel> myChannels = new ArrayList<>();
 
-  private Thread myThread;
+  private volatile Thread myThread;
+  private volatile Selector mySelector;
+  private volatile int myLocalPort = -1;
   private long myStartFindingAt;
+  private boolean myPingsSent;
+  private long myNextScanAt;
 
   private final Object myLock = new Object();
 
   public UserMonitorThread(P2PTransport client, long waitUserResponsesTimeout) {
-    this(createMulticastThreads(client), client, waitUserResponsesTimeout);
+    this(NetworkUtil.getSelfAddresses(), MULTICAST_PORT, new InetSocketAddress(MULTICAST_ADDRESS, MULTICAST_PORT),
+         client, client.getIdeFacade(), waitUserResponsesTimeout);
   }
 
-  UserMonitorThread(MulticastPingThread[] multicastPingThread, UserMonitorClient client, long waitUserResponsesTimeout) {
+  /**
+   * @param listenPort port to receive requests of other users on, 0 for any free port
+   * @param pingTarget address the requests of this user are sent to, usually the multicast group
+   */
+  UserMonitorThread(Collection<InetAddress> selfAddresses, int listenPort, @Nullable InetSocketAddress pingTarget,
+                    UserMonitorClient client, @Nullable IDEFacade ideFacade, long waitUserResponsesTimeout) {
     super("User Monitor Thread");
 
-    setDaemon(true);
-    assert multicastPingThread != null;
+    setDaemon(true); //Sometimes this thread lives forever, that's why idea.exe process never ends
+                     // see jetbrains.communicator.p2p.NetworkUtil.sendMessage(...) inside try/catch block
+    mySelfAddresses = selfAddresses;
+    myListenPort = listenPort;
+    myPingTarget = pingTarget;
     myClient = client;
-    myMulticastThreads = multicastPingThread;
+    myIdeFacade = ideFacade;
     myWaitUserResponsesTimeout = waitUserResponsesTimeout;
 
     String timeout = System.getProperty(SCAN_TIMEOUT_PROPERTY);
@@ -70,145 +103,262 @@ public class UserMonitorThread extends Thread {
         throw e;
       }
     }
-  }
 
-  private static MulticastPingThread[] createMulticastThreads(P2PTransport client) {
-    List<MulticastPingThread> result = new ArrayList<>();
-    for (InetAddress selfAddress : NetworkUtil.getSelfAddresses()) {
-      result.add(new MulticastPingThread(selfAddress, client.getIdeFacade(), client));
-    }
-    return result.toArray(new MulticastPingThread[0]);
+    System.setProperty("sun.net.client.defaultConnectTimeout", "2000");
   }
 
   public void shutdown() {
-    shutdownMulticastThreads();
     if (isRunning()) {
-      final Thread thr = myThread;
       myThread = null;
-      synchronized(myLock) {
-        myLock.notifyAll();
-      }
-      if (thr.isAlive()) {
-        thr.interrupt();
-      }
-    }
-  }
-
-  private void shutdownMulticastThreads() {
-    for (MulticastPingThread multicastThread : myMulticastThreads) {
-      if (multicastThread.isAlive()) {
-        multicastThread.shutdown();
+      Selector selector = mySelector;
+      if (selector != null) {
+        selector.wakeup();
       }
     }
   }
 
   @Override
   public void run() {
-    super.run();
     LOG.info("Start " + getName());
 
-    startupMulticastThreads();
+    synchronized (myLock) {
+      myThread = Thread.currentThread();
+      myNextScanAt = System.currentTimeMillis() + myScansTimeout;
+    }
 
-    myThread = Thread.currentThread();
+    try (Selector selector = Selector.open()) {
+      mySelector = selector;
+      openChannels(selector);
+
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (isRunning()) {
+        long timeout = processScans();
+        if (!isRunning()) break;
+
+        selector.select(Math.max(1, timeout));
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (key.isValid() && key.isReadable()) {
+            receiveMessages((NetworkInterfaceChannel)key.attachment(), buffer);
+          }
+        }
+      }
+    }
+    catch (ClosedSelectorException ignored) {
+    }
+    catch (IOException e) {
+      LOG.error(getName() + " is terminated:\n" + e.getMessage(), e);
+    }
+    catch (Throwable e) {
+      LOG.error(e.getMessage(), e);
+    }
+    finally {
+      closeChannels();
+      myLocalPort = -1;
+      mySelector = null;
+      myThread = null;
+      synchronized (myLock) {
+        myStartFindingAt = 0;
+      }
+    }
+    LOG.info("Shut down");
+  }
 
-    while (isRunning()) {
+  boolean isRunning() {
+    return myThread != null;
+  }
+
+  private void openChannels(Selector selector) {
+    InetAddress group = myPingTarget != null && myPingTarget.getAddress().isMulticastAddress() ? myPingTarget.getAddress() : null;
+
+    for (InetAddress selfAddress : mySelfAddresses) {
+      DatagramChannel channel = null;
       try {
-        waitForNextSearch();
+        channel = DatagramChannel.open(StandardProtocolFamily.INET); // self addresses are IPv4 only
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(new InetSocketAddress(myListenPort));
+
+        NetworkInterface networkInterface = NetworkInterface.getByInetAddress(selfAddress);
+        if (group != null && networkInterface != null) {
+          channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+          channel.join(group, networkInterface);
+        }
 
-        if (!isRunning()) return;
-        synchronized (myLock) {
-          myStartFindingAt = System.currentTimeMillis();
-          LOG.debug("Start finding users ");
+        channel.configureBlocking(false);
+        NetworkInterfaceChannel interfaceChannel = new NetworkInterfaceChannel(selfAddress, channel);
+        channel.register(selector, SelectionKey.OP_READ, interfaceChannel);
+        myChannels.add(interfaceChannel);
+        myLocalPort = channel.socket().getLocalPort();
+        LOG.debug("Listening for multicast messages on " + selfAddress);
+      }
+      catch (IOException | UnsupportedOperationException e) {
+        LOG.info("Unable to listen for multicast messages on " + selfAddress + ": " + e.getMessage(), e);
+        if (channel != null) {
+          close(channel);
         }
+      }
+    }
+  }
+
+  private void closeChannels() {
+    for (NetworkInterfaceChannel interfaceChannel : myChannels) {
+      close(interfaceChannel.myChannel);
+    }
+    myChannels.clear();
+  }
 
-        try {
-          sendMulticastRequests(getListeningThreads());
+  private static void close(DatagramChannel channel) {
+    try {
+      channel.close();
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
 
-          //noinspection BusyWait
-          Thread.sleep(myWaitUserResponsesTimeout);
+  /**
+   * Starts and finishes scans when it is time to.
+   * @return time till the next scan event
+   */
+  private long processScans() {
+    boolean sendPings = false;
+    boolean flush = false;
+    long timeout;
+    synchronized (myLock) {
+      long now = System.currentTimeMillis();
+      if (!isFinding() && now >= myNextScanAt) {
+        startFindingUsers();
+      }
 
-          flushOnlineUsers();
+      if (isFinding()) {
+        long finishAt = myStartFindingAt + myWaitUserResponsesTimeout;
+        if (!myPingsSent) {
+          myPingsSent = true;
+          sendPings = true;
         }
-        finally {
-          synchronized (myLock) {
-            myStartFindingAt = 0;
-            LOG.debug("Done finding users. Timeout for " + myScansTimeout);
-          }
+        if (now >= finishAt) {
+          flush = true;
+          timeout = myScansTimeout;
+        }
+        else {
+          timeout = finishAt - now;
         }
       }
-      catch (UnknownHostException e) {
-        LOG.error(e.getMessage(), e);
-      }
-      catch (NoRouteToHostException e) {
-        LOG.info(e.getMessage(), e);
-      }
-      catch (IOException e) {
-        LOG.error(e.getMessage(), e);
+      else {
+        timeout = myNextScanAt - now;
       }
-      catch (InterruptedException ignored) {
-        myThread = null;
+    }
+
+    if (sendPings) {
+      sendPingRequests();
+    }
+    if (flush) {
+      try {
+        flushOnlineUsers();
       }
-      catch (Throwable e) {
-        LOG.error(e.getMessage(), e);
-        myThread = null;
+      finally {
+        synchronized (myLock) {
+          myStartFindingAt = 0;
+          myNextScanAt = System.currentTimeMillis() + myScansTimeout;
+          LOG.debug("Done finding users. Timeout for " + myScansTimeout);
+        }
       }
     }
-    LOG.info("Shut down");
+    return timeout;
   }
 
-  boolean isRunning() {
-    return myThread != null;
-  }
+  void sendPingRequests() {
+    if (myPingTarget == null) return;
 
-  private static void sendMulticastRequests(List<MulticastPingThread> listeningThreads) throws IOException {
-    for (MulticastPingThread thread : listeningThreads) {
-      thread.sendMulticastPingRequest();
+    byte[] message = (PING_MESSAGE + myClient.getPort()).getBytes(StandardCharsets.UTF_8);
+    for (Iterator<NetworkInterfaceChannel> it = myChannels.iterator(); it.hasNext();) {
+      NetworkInterfaceChannel interfaceChannel = it.next();
+      try {
+        LOG.debug("Sending Multicast ping request: " + interfaceChannel.mySelfAddress);
+        interfaceChannel.myChannel.send(ByteBuffer.wrap(message), myPingTarget);
+        interfaceChannel.myFailuresCounter = 0;
+      }
+      catch (IOException e) {
+        if (++interfaceChannel.myFailuresCounter > ALLOWED_FAILURES) {
+          LOG.info("Unable to send multicast request on interface " + interfaceChannel.mySelfAddress + ". I give up after " +
+                   interfaceChannel.myFailuresCounter + " attempts.", e);
+          close(interfaceChannel.myChannel);
+          it.remove();
+        }
+      }
     }
   }
 
-  private List<MulticastPingThread> getListeningThreads() {
-    List<MulticastPingThread> result = new ArrayList<>();
-    for (MulticastPingThread multicastThread : myMulticastThreads) {
-      if (multicastThread.isAlive()) {
-        result.add(multicastThread);
+  private void receiveMessages(NetworkInterfaceChannel interfaceChannel, ByteBuffer buffer) {
+    try {
+      while (true) {
+        buffer.clear();
+        SocketAddress from = interfaceChannel.myChannel.receive(buffer);
+        if (!(from instanceof InetSocketAddress)) return;
+
+        String message = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        InetAddress remoteAddress = ((InetSocketAddress)from).getAddress();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(interfaceChannel.mySelfAddress + ": Got multicast message '" + message + "' from " + remoteAddress);
+        }
+        if (message.startsWith(PING_MESSAGE)) {
+          int targetPort = extractPort(message);
+          if (shouldAddSelf(interfaceChannel.mySelfAddress, remoteAddress, targetPort)) {
+            respondToPing(interfaceChannel.mySelfAddress, remoteAddress, targetPort);
+          }
+        }
       }
     }
-    return result;
+    catch (IOException e) {
+      LOG.info("Unable to receive multicast message on " + interfaceChannel.mySelfAddress + ": " + e.getMessage(), e);
+    }
   }
 
-  private void startFindingUsers() {
-    synchronized (myLock) {
-      myStartFindingAt = System.currentTimeMillis();
-      myAvailableUsers.clear();
-    }
+  /**
+   * Sends own info to the user who sent the request. This is a blocking XML-RPC call, so it is made on a pooled thread
+   * and doesn't hold requests of other users.
+   */
+  void respondToPing(InetAddress selfAddress, InetAddress remoteAddress, int targetPort) {
+    myIdeFacade.runOnPooledThread(() -> {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(selfAddress + ": Add self to " + remoteAddress);
+      }
+      AddOnlineUserP2PCommand.addSelfTo(targetPort, remoteAddress, selfAddress, myClient.getPort(),
+                                        Arrays.asList(myIdeFacade.getProjects()), myClient.getOwnPresence());
+    });
   }
 
-  private void startupMulticastThreads() {
-    for (MulticastPingThread multicastThread : myMulticastThreads) {
-      multicastThread.start();
+  private boolean shouldAddSelf(InetAddress selfAddress, InetAddress remoteAddress, int targetPort) {
+    if (NetworkUtil.isOwnAddress(remoteAddress)) {
+      return remoteAddress.equals(selfAddress) && targetPort == myClient.getPort(); // For tests
     }
-    new WaitFor(Time.SECOND) {
-      @Override
-      protected boolean condition() {
-        for (MulticastPingThread multicastThread : myMulticastThreads) {
-          if (!multicastThread.isStarted()) return false;
-        }
-        return true;
-      }
-    };
+    return !selfAddress.isLoopbackAddress();
   }
 
-  private void waitForNextSearch() {
+  static int extractPort(String message) {
+    String port = message.substring(PING_MESSAGE.length());
     try {
-      synchronized (myLock) {
-        while (isRunning() && !isFinding()) {
-          myLock.wait(myScansTimeout);
-          startFindingUsers();
-        }
-      }
+      return Integer.valueOf(port).intValue();
     }
-    catch (InterruptedException ignored) {
-      myThread = null;
+    catch (Exception e) {
+      LOG.debug(e);
+    }
+    return P2PTransport.XML_RPC_PORT;
+  }
+
+  /** Port requests of other users are received on, or -1 if there are no channels open. */
+  int getLocalPort() {
+    return myLocalPort;
+  }
+
+  private void startFindingUsers() {
+    synchronized (myLock) {
+      LOG.debug("Start finding users ");
+      myStartFindingAt = System.currentTimeMillis();
+      myPingsSent = false;
+      myAvailableUsers.clear();
     }
   }
 
@@ -219,7 +369,10 @@ public class UserMonitorThread extends Thread {
       }
       OnlineUserInfo onlineUserInfo = new OnlineUserInfo(InetAddress.getByName(remoteAddress), remotePort.intValue(), projects, presence);
       if (!onlineUserInfo.getAddress().isLoopbackAddress() || Pico.isUnitTest()) {
-        myAvailableUsers.add(myClient.createUser(remoteUsername, onlineUserInfo));
+        User user = myClient.createUser(remoteUsername, onlineUserInfo);
+        if (myAvailableUsers.add(user)) {
+          myClient.userFound(user);
+        }
       }
     }
     catch (UnknownHostException ignored) {
@@ -277,7 +430,10 @@ public class UserMonitorThread extends Thread {
       LOG.info("Force finding users");
       synchronized(myLock) {
         startFindingUsers();
-        myLock.notifyAll();
+      }
+      Selector selector = mySelector;
+      if (selector != null) {
+        selector.wakeup();
       }
     }
   }
@@ -288,10 +444,14 @@ public class UserMonitorThread extends Thread {
       CommunicatorStrings.getMsg("p2p.finder.progressText", String.valueOf(size), CommunicatorStrings.getText("user", size)));
   }
 
-  boolean _isAlive() {
-    for (MulticastPingThread multicastThread : myMulticastThreads) {
-      if (multicastThread.isRunning()) return true;
+  private static class NetworkInterfaceChannel {
+    private final InetAddress mySelfAddress;
+    private final DatagramChannel myChannel;
+    private int myFailuresCounter;
+
+    NetworkInterfaceChannel(InetAddress selfAddress, DatagramChannel channel) {
+      mySelfAddress = selfAddress;
+      myChannel = channel;
     }
-    return super.isAlive();
   }
 }
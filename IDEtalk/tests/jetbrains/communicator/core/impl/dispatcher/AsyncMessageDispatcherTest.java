@@ -17,6 +17,7 @@ package jetbrains.communicator.core.impl.dispatcher;
 
 import jetbrains.communicator.core.impl.BaseTestCase;
 import jetbrains.communicator.core.users.User;
+import jetbrains.communicator.core.users.UserEvent;
 import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockUser;
@@ -122,8 +123,17 @@ public class AsyncMessageDispatcherTest extends BaseTestCase {
     mockMessage.waitUntilDispatchingStarted();
     myDispatcher.sendLater(user2, new MockMessage(true));
 
-    assertEquals("Messages not delivered yet", 2,
-        myDispatcher.getUsersWithMessages().length);
+    new WaitFor(1000) {
+      @Override
+      protected boolean condition() {
+        return myDispatcher.getPendingMessages(user2).length == 0;
+      }
+    };
+
+    assertEquals("Message to user2 should not wait for delivery to user1", 0,
+        myDispatcher.getPendingMessages(user2).length);
+    assertEquals("Message to user1 not delivered yet", 1,
+        myDispatcher.getPendingMessages(user1).length);
 
     triggerMessageProcessing(mockMessage);
 
@@ -137,6 +147,31 @@ public class AsyncMessageDispatcherTest extends BaseTestCase {
     assertEquals("All messages should be delivered", 0, myDispatcher.getUsersWithMessages().length);
   }
 
+  public void testFailedDeliveryIsRetriedWhenUserBecomesOnline() {
+    MockMessage message = new MockMessage(false);
+    myDispatcher.sendLater(myUser, message);
+
+    new WaitFor(1000) {
+      @Override
+      protected boolean condition() {
+        return message.getLog().length() > 0 && !myDispatcher.isMessageDispatchInProgress();
+      }
+    };
+    assertEquals("sent to " + myUser + ":fail", message.getLog());
+
+    message.clearLog();
+    message.setSendSuccessful(true);
+    getBroadcaster().fireEvent(new UserEvent.Online(myUser));
+
+    new WaitFor(1000) {
+      @Override
+      protected boolean condition() {
+        return myDispatcher.getUsersWithMessages().length == 0;
+      }
+    };
+    assertEquals("Should be retried without waiting for retry delay", "sent to " + myUser + ":success", message.getLog());
+  }
+
   private static class NotifyableMessage extends MockMessage {
     private boolean myDispatchingStarted;
     private boolean myProcessed;
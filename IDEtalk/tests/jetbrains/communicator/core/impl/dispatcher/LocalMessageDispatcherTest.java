@@ -27,10 +27,12 @@ import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockTransport;
 import jetbrains.communicator.util.WatchDog;
+import jetbrains.communicator.util.XStreamUtil;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -290,6 +292,61 @@ public class LocalMessageDispatcherTest extends BaseTestCase {
     }
   }
 
+  public void testHistoryPersistence_XmlHistoryConverted() {
+    DayHistory dayHistory = new DayHistory();
+    dayHistory.addMessage(myUser, new MockMessage(yesterday(), "old text"));
+    XStreamUtil.toXml(MessageHistory.createXStream(myUserModel), myIdeFacade.getCacheDir(),
+                      "history/" + new SimpleDateFormat("yyyy-MM-dd").format(yesterday()) + ".xml", dayHistory);
+
+    LocalMessage[] messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals(1, messages.length);
+    assertEquals("old text", ((MockMessage) messages[0]).getMessage());
+
+    File[] files = new File(myIdeFacade.getCacheDir(), "history").listFiles();
+    assertEquals(1, files.length);
+    assertTrue("XML history should be replaced with log segment: " + files[0], files[0].getName().endsWith(".log"));
+
+    assertEquals(1, createLocalMessageDispatcher().getHistory(myUser, null).length);
+  }
+
+  public void testPerformance_LongHistory() {
+    Logger logger = Logger.getLogger("jetbrains.communicator");
+    Level oldLevel = logger.getLevel();
+    try {
+      logger.setLevel(Level.WARN);
+
+      User[] users = {myUser, UserImpl.create("user1", MockTransport.NAME), UserImpl.create("user2", MockTransport.NAME),
+        UserImpl.create("user3", MockTransport.NAME), UserImpl.create("user4", MockTransport.NAME)};
+      long day = 1000L * 3600 * 24;
+      long now = System.currentTimeMillis();
+
+      // two years of history
+      MessageHistory history = new MessageHistory(myIdeFacade, myUserModel);
+      for (int i = 0; i < 730; i++) {
+        for (User user : users) {
+          history.addMessage(user, new MockMessage(new Date(now - i * day)));
+          history.addMessage(user, new MockMessage(new Date(now - i * day - 1000)));
+        }
+      }
+      history.dispose();
+
+      WatchDog watchDog = new WatchDog("Load last week history");
+      LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+      LocalMessage[] messages = localMessageDispatcher.getHistory(myUser, new Date(now - 7 * day));
+      assertEquals(14, messages.length);
+
+      long diff = watchDog.diff();
+      watchDog.watchAndReset("done");
+      assertTrue("Too long getting recent history:" + diff, diff < 500);
+
+      messages = localMessageDispatcher.getHistory(myUser, null);
+      assertEquals(1460, messages.length);
+      watchDog.watchAndReset("full history done");
+    } finally {
+      logger.setLevel(oldLevel);
+    }
+  }
+
   public void testClearHistory_Persistence() throws Exception {
     myDispatcher.sendNow(myUser, new MockMessage(new Date()));
     Thread.sleep(SAVE_WAIT_TIMEOUT);
@@ -24,6 +24,7 @@ import jetbrains.communicator.core.users.GroupEvent;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserEvent;
 import jetbrains.communicator.core.users.UserModel;
+import jetbrains.communicator.jabber.impl.JabberTransport;
 import jetbrains.communicator.mock.MockTransport;
 import jetbrains.communicator.mock.MockUser;
 
@@ -168,6 +169,60 @@ public class UserModelImplTest extends BaseTestCase {
     assertEquals("bbb", group2[2].getName());
   }
 
+  public void testOnlineUsers() {
+    assertEquals(0, myUserModel.getOnlineUsers("group1").length);
+    assertEquals(0, myUserModel.getOnlineUsers("dfasdff").length);
+
+    User[] group2 = myUserModel.getOnlineUsers("group2");
+    assertEquals(1, group2.length);
+    assertEquals("zzz", group2[0].getName());
+
+    MockUser user = (MockUser)myUserModel.getUsers("group1")[1];
+    user.setOnline(true);
+    getBroadcaster().fireEvent(new UserEvent.Online(user));
+
+    assertEquals(Arrays.asList(user), Arrays.asList(myUserModel.getOnlineUsers("group1")));
+    assertSame("Online user should go first", user, myUserModel.getUsers("group1")[0]);
+  }
+
+  public void testFindUser() {
+    User user = myUserModel.getUsers("group2")[1];
+    assertSame(user, myUserModel.findUser("aaaa", user.getTransportCode()));
+    assertNull(myUserModel.findUser("aaaa", "another transport"));
+    assertNull(myUserModel.findUser("dfasdff", user.getTransportCode()));
+    assertEquals("group2", myUserModel.getGroup(user));
+
+    myUserModel.renameGroup("group2", "new group");
+    assertEquals("new group", myUserModel.getGroup(user));
+
+    myUserModel.removeUser(user);
+    assertNull(myUserModel.findUser("aaaa", user.getTransportCode()));
+    assertNull(myUserModel.getGroup(user));
+  }
+
+  public void testFindUser_SameNameOnDifferentTransports() {
+    User jabberUser = UserImpl.create("bob", JabberTransport.CODE);
+    jabberUser.setGroup("group1", null);
+    User mockUser = UserImpl.create("bob", MockTransport.NAME);
+    mockUser.setGroup("group2", null);
+    myUserModel.addUser(jabberUser);
+    myUserModel.addUser(mockUser);
+
+    assertSame(jabberUser, myUserModel.findUser("bob", JabberTransport.CODE));
+    assertSame(mockUser, myUserModel.findUser("bob", MockTransport.NAME));
+    assertEquals("group1", myUserModel.getGroup(jabberUser));
+    assertEquals("group2", myUserModel.getGroup(mockUser));
+
+    mockUser.setGroup("new group", myUserModel);
+    assertEquals("group1", myUserModel.getGroup(jabberUser));
+    assertEquals("new group", myUserModel.getGroup(mockUser));
+
+    myUserModel.removeUser(jabberUser);
+    assertNull(myUserModel.findUser("bob", JabberTransport.CODE));
+    assertNull(myUserModel.getGroup(jabberUser));
+    assertSame(mockUser, myUserModel.findUser("bob", MockTransport.NAME));
+  }
+
   public void testRenameGroup() {
     myUserModel.renameGroup("group1", "new group");
 
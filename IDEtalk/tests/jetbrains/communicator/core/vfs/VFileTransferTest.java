@@ -0,0 +1,141 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package jetbrains.communicator.core.vfs;
+
+import junit.framework.TestCase;
+import org.jdom.Element;
+
+public class VFileTransferTest extends TestCase {
+  private String myContents;
+  private int myRequests;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; sb.length() < VFileTransfer.CHUNK_SIZE * 3 + 10; i++) {
+      sb.append("line \u0441\u0442\u0440\u043e\u043a\u0430 ").append(i).append('\n');
+    }
+    myContents = sb.toString();
+  }
+
+  public void testChunkedTransfer() {
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+    while (!transfer.isFinished()) {
+      doRequest(transfer);
+    }
+
+    assertEquals(myContents, transfer.getContents());
+    assertEquals(4, myRequests);
+  }
+
+  public void testSameContentsAreNotTransferred() {
+    VFile file = VFile.create("path");
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), file);
+    transfer.start();
+    while (!transfer.isFinished()) {
+      doRequest(transfer);
+    }
+
+    myRequests = 0;
+    VFileTransfer transfer2 = VFileTransfer.getTransfer(getName(), file);
+    transfer2.start();
+    Element response = doRequest(transfer2);
+
+    assertTrue(transfer2.isFinished());
+    assertEquals(1, myRequests);
+    assertEquals("true", response.getAttributeValue(VFileTransfer.SAME_CONTENTS_ATTR));
+    assertNull(response.getChild(VFileTransfer.CHUNK_ELEMENT));
+    assertEquals(myContents, transfer2.getContents());
+  }
+
+  public void testInterruptedTransferIsResumed() {
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+    doRequest(transfer);
+    doRequest(transfer);
+    assertFalse(transfer.isFinished());
+    assertNull(transfer.getContents());
+
+    transfer.start();
+    while (!transfer.isFinished()) {
+      doRequest(transfer);
+    }
+    assertEquals(myContents, transfer.getContents());
+    assertEquals(4, myRequests);
+  }
+
+  public void testChangedContentsAreTransferredFromStart() {
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+    doRequest(transfer);
+
+    myContents = "changed " + myContents;
+    while (!transfer.isFinished()) {
+      doRequest(transfer);
+    }
+    assertEquals(myContents, transfer.getContents());
+  }
+
+  public void testBrokenChunk() {
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+
+    Element request = new Element("request");
+    transfer.fillRequest(request);
+    Element response = new Element("response");
+    VFileTransfer.fillResponse(request, response, myContents, null);
+    response.getChild(VFileTransfer.CHUNK_ELEMENT).setAttribute(VFileTransfer.CHECKSUM_ATTR, "1");
+    transfer.processResponse(response, null);
+
+    assertTrue(transfer.isFinished());
+    assertNull(transfer.getContents());
+  }
+
+  public void testPeerWithoutChunksSupport() {
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+    transfer.processResponse(new Element("response"), "whole contents");
+
+    assertTrue(transfer.isFinished());
+    assertEquals("whole contents", transfer.getContents());
+  }
+
+  public void testSurrogatePairIsNotSplitBetweenChunks() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < VFileTransfer.CHUNK_SIZE - 1; i++) {
+      sb.append('a');
+    }
+    myContents = sb.append("\uD83D\uDE00 tail").toString();
+
+    VFileTransfer transfer = VFileTransfer.getTransfer(getName(), VFile.create("path"));
+    transfer.start();
+    while (!transfer.isFinished()) {
+      doRequest(transfer);
+    }
+    assertEquals(myContents, transfer.getContents());
+    assertEquals(2, myRequests);
+  }
+
+  public void testTooLargeChunkIsRejected() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < VFileTransfer.CHUNK_SIZE * 5; i++) {
+      sb.append('a');
+    }
+    assertEquals("abc", VFileTransfer.decodeChunk(VFileTransfer.encodeChunk("abc")));
+    assertNull(VFileTransfer.decodeChunk(VFileTransfer.encodeChunk(sb.toString())));
+  }
+
+  private Element doRequest(VFileTransfer transfer) {
+    myRequests++;
+    Element request = new Element("request");
+    transfer.fillRequest(request);
+    assertTrue(VFileTransfer.isChunkedRequest(request));
+
+    Element response = new Element("response");
+    VFileTransfer.fillResponse(request, response, myContents, null);
+    transfer.processResponse(response, null);
+    return response;
+  }
+}
@@ -126,6 +126,24 @@ public class UsersTreeModelTest extends BaseTestCase {
     assertEquals("Online user should go to the top", "ccc", getUserForRow(myTree, 2).getDisplayName());
   }
 
+  public void testOnlineStatusChangeUpdatesOnlyItsGroup() {
+    myTree.expandRow(2);
+    myTree.expandRow(1);
+    Object root = myUsersTreeModel.getRoot();
+    Object group2 = myTree.getPathForRow(4).getLastPathComponent();
+    myTree.setSelectionRow(3);
+
+    MockUser mockUser = ((MockUser) myUserModel.getUsers("group1")[1]);
+    mockUser.setOnline(true);
+    getBroadcaster().fireEvent(new UserEvent.Online(mockUser));
+
+    assertSame("No tree rebuild expected", root, myUsersTreeModel.getRoot());
+    assertSame("Other groups should not be touched", group2, myTree.getPathForRow(4).getLastPathComponent());
+    assertEquals("Nodes expansion should be preserved", 8, myTree.getRowCount());
+    assertEquals("Online user should go to the top", "ccc", getUserForRow(myTree, 2).getDisplayName());
+    assertEquals("Selection should follow the user", 2, myTree.getSelectionRows()[0]);
+  }
+
   public void testRebuildTreeOnGroupChange() {
     myTree.expandRow(2);
     myTree.expandRow(1);
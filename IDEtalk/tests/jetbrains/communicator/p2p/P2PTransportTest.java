@@ -15,6 +15,8 @@
  */
 package jetbrains.communicator.p2p;
 
+import jetbrains.communicator.core.IDEtalkAdapter;
+import jetbrains.communicator.core.IDEtalkEvent;
 import jetbrains.communicator.core.Pico;
 import jetbrains.communicator.core.impl.BaseTestCase;
 import jetbrains.communicator.core.impl.dispatcher.AsyncMessageDispatcherImpl;
@@ -349,6 +351,31 @@ public class P2PTransportTest extends BaseTestCase {
   }
 
 
+  public void testUserFoundWhileOnlineEventIsDispatched() throws Exception {
+    final User bill = myTransport.createUser("bill", new OnlineUserInfo(InetAddress.getLocalHost(), myTransport.getPort()));
+    // the same user is found by another response while its Online event is being dispatched
+    IDEtalkAdapter listener = new IDEtalkAdapter() {
+      @Override
+      public void beforeChange(IDEtalkEvent event) {
+        if (event instanceof UserEvent.Online) {
+          myTransport.userFound(bill);
+        }
+      }
+    };
+    getBroadcaster().addListener(listener);
+    addEventListener();
+    try {
+      myTransport.userFound(bill);
+    }
+    finally {
+      getBroadcaster().removeListener(listener);
+    }
+
+    assertEquals("Only one Online event expected: " + myEvents, 1, myEvents.size());
+    checkEvent(bill, 0, true);
+    assertTrue(bill.isOnline());
+  }
+
   private void checkEvent(User affectedUser, int eventId, boolean becomeOnline) {
     assertEquals(affectedUser, evt(eventId).getUser());
     assertEquals("online", evt(eventId).getPropertyName());
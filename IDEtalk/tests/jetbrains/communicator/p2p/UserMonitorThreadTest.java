@@ -37,7 +37,6 @@ import java.util.*;
 public class UserMonitorThreadTest extends BaseTestCase {
   private Mock myUserMonitorClientMock;
   private UserMonitorThread myUserMonitorThread;
-  private MulticastPingThread myMulticastThread;
   private static final int PORT = 12234;
   private static final int WAIT_USER_RESPONSES_TIMEOUT = 500;
 
@@ -48,26 +47,15 @@ public class UserMonitorThreadTest extends BaseTestCase {
     myUserMonitorClientMock = mock(UserMonitorClient.class);
 
     final boolean[] started = new boolean[1];
-    myMulticastThread = new MulticastPingThread(InetAddress.getByName("localhost"), null, (UserMonitorClient) myUserMonitorClientMock.proxy()) {
-      @Override
-      public void run() {
-        myStarted = true;
-        try {
-          sleep(100000);
-        } catch (InterruptedException e) {
-          assert false;
-        }
-      }
-
+    myUserMonitorClientMock.stubs().method("getPort").will(returnValue(PORT));
+    myUserMonitorClientMock.stubs().method("userFound");
+    myUserMonitorThread = new UserMonitorThread(Collections.emptyList(), 0, null,
+        (UserMonitorClient) myUserMonitorClientMock.proxy(), null, WAIT_USER_RESPONSES_TIMEOUT) {
       @Override
-      public void sendMulticastPingRequest() {
+      void sendPingRequests() {
         started[0] = true;
       }
     };
-
-    myUserMonitorClientMock.stubs().method("getPort").will(returnValue(PORT));
-    myUserMonitorThread = new UserMonitorThread(new MulticastPingThread[]{myMulticastThread},
-        (UserMonitorClient) myUserMonitorClientMock.proxy(), WAIT_USER_RESPONSES_TIMEOUT);
     myUserMonitorThread.start();
 
     triggerFind();
@@ -81,7 +69,7 @@ public class UserMonitorThreadTest extends BaseTestCase {
     new WaitFor(5000) {
       @Override
       protected boolean condition() {
-        return !myUserMonitorThread._isAlive();
+        return !myUserMonitorThread.isAlive();
       }
     };
     myUserMonitorThread.join();
@@ -172,6 +160,13 @@ public class UserMonitorThreadTest extends BaseTestCase {
     }
   }
 
+  public void testExtractPort() {
+    final String pingMessage = UserMonitorThread.PING_MESSAGE;
+
+    assertEquals(P2PTransport.XML_RPC_PORT, UserMonitorThread.extractPort(pingMessage));
+    assertEquals(125, UserMonitorThread.extractPort(pingMessage + 125));
+  }
+
   private void expectSetOneOnlineUser() throws UnknownHostException {
     User p2PUser = UserImpl.create("nick", P2PTransport.CODE);
 
@@ -0,0 +1,174 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package jetbrains.communicator.p2p;
+
+import jetbrains.communicator.core.impl.BaseTestCase;
+import jetbrains.communicator.core.impl.users.UserImpl;
+import jetbrains.communicator.core.users.PresenceMode;
+import jetbrains.communicator.core.users.User;
+import jetbrains.communicator.core.users.UserPresence;
+import jetbrains.communicator.util.WaitFor;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates many peers on the loopback interface: pings are sent to a local channel instead of the multicast group,
+ * and peers respond to it the same way as {@link jetbrains.communicator.p2p.commands.AddOnlineUserP2PCommand} does.
+ */
+public class UserMonitorThread_LoopbackPeersTest extends BaseTestCase {
+  private static final int PORT = 12234;
+  private static final int PEERS = 100;
+  private static final int WAIT_USER_RESPONSES_TIMEOUT = 3000;
+
+  private InetAddress myLoopback;
+  private DatagramChannel myPeersChannel;
+  private ScheduledExecutorService myPeers;
+  private UserMonitorThread myUserMonitorThread;
+
+  private final List<User> myFoundUsers = Collections.synchronizedList(new ArrayList<>());
+  private final List<Collection<User>> myOnlineUsers = Collections.synchronizedList(new ArrayList<>());
+  private final List<InetAddress> myAnsweredPings = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    myLoopback = InetAddress.getByName("127.0.0.1");
+    myPeersChannel = DatagramChannel.open();
+    myPeersChannel.bind(new InetSocketAddress(myLoopback, 0));
+    myPeers = Executors.newScheduledThreadPool(4);
+
+    myUserMonitorThread = new UserMonitorThread(Collections.singletonList(myLoopback), 0,
+                                                (InetSocketAddress)myPeersChannel.getLocalAddress(), new MyClient(), null,
+                                                WAIT_USER_RESPONSES_TIMEOUT) {
+      @Override
+      void respondToPing(InetAddress selfAddress, InetAddress remoteAddress, int targetPort) {
+        myAnsweredPings.add(remoteAddress);
+      }
+    };
+    myUserMonitorThread.start();
+    new WaitFor(1000) {
+      @Override
+      protected boolean condition() {
+        return myUserMonitorThread.getLocalPort() > 0;
+      }
+    };
+    assertTrue("Sanity check", myUserMonitorThread.getLocalPort() > 0);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myUserMonitorThread.shutdown();
+      myUserMonitorThread.join(5000);
+      myPeers.shutdownNow();
+      myPeersChannel.close();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testUsersArePassedAsResponsesArrive() throws Exception {
+    myUserMonitorThread.triggerFindNow();
+
+    // all peers receive the ping and respond with different delays
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    myPeersChannel.receive(buffer);
+    String ping = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    assertEquals(UserMonitorThread.PING_MESSAGE + PORT, ping);
+
+    Random random = new Random(239);
+    for (int i = 0; i < PEERS; i++) {
+      String name = "peer" + i;
+      myPeers.schedule(() -> myUserMonitorThread.addOnlineUser("127.0.0.1", name, PORT, Collections.singletonList("project"),
+                                                               new UserPresence(PresenceMode.AVAILABLE)),
+                       random.nextInt(500), TimeUnit.MILLISECONDS);
+    }
+
+    new WaitFor(2000) {
+      @Override
+      protected boolean condition() {
+        return myFoundUsers.size() == PEERS;
+      }
+    };
+    assertEquals(PEERS, myFoundUsers.size());
+    assertTrue("Users should be passed before the end of the scan", myUserMonitorThread.isFinding());
+    assertTrue(myOnlineUsers.isEmpty());
+
+    new WaitFor(WAIT_USER_RESPONSES_TIMEOUT) {
+      @Override
+      protected boolean condition() {
+        return !myUserMonitorThread.isFinding();
+      }
+    };
+    assertEquals(1, myOnlineUsers.size());
+    assertEquals(new HashSet<>(myFoundUsers), new HashSet<>(myOnlineUsers.get(0)));
+  }
+
+  public void testPingsOfManyPeersAreAnswered() throws Exception {
+    InetSocketAddress target = new InetSocketAddress(myLoopback, myUserMonitorThread.getLocalPort());
+    List<DatagramChannel> peers = new ArrayList<>();
+    try {
+      for (int i = 0; i < PEERS; i++) {
+        DatagramChannel peer = DatagramChannel.open();
+        peer.bind(new InetSocketAddress(myLoopback, 0));
+        peers.add(peer);
+      }
+      for (DatagramChannel peer : peers) {
+        peer.send(ByteBuffer.wrap((UserMonitorThread.PING_MESSAGE + PORT).getBytes(StandardCharsets.UTF_8)), target);
+      }
+      // pings for other ports are not answered by loopback interface
+      peers.get(0).send(ByteBuffer.wrap((UserMonitorThread.PING_MESSAGE + (PORT + 1)).getBytes(StandardCharsets.UTF_8)), target);
+
+      new WaitFor(2000) {
+        @Override
+        protected boolean condition() {
+          return myAnsweredPings.size() >= PEERS;
+        }
+      };
+      TimeUnit.MILLISECONDS.sleep(100);
+      assertEquals(PEERS, myAnsweredPings.size());
+      assertTrue(myUserMonitorThread.isRunning());
+    }
+    finally {
+      for (DatagramChannel peer : peers) {
+        peer.close();
+      }
+    }
+  }
+
+  private class MyClient implements UserMonitorClient {
+    @Override
+    public void setOnlineUsers(Collection<User> onlineUsers) {
+      myOnlineUsers.add(onlineUsers);
+    }
+
+    @Override
+    public void userFound(User user) {
+      myFoundUsers.add(user);
+    }
+
+    @Override
+    public User createUser(String remoteUsername, OnlineUserInfo onlineUserInfo) {
+      return UserImpl.create(remoteUsername, P2PTransport.CODE);
+    }
+
+    @Override
+    public int getPort() {
+      return PORT;
+    }
+
+    @Override
+    public UserPresence getOwnPresence() {
+      return new UserPresence(PresenceMode.AVAILABLE);
+    }
+  }
+}
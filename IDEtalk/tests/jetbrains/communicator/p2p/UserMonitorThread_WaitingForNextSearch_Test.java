@@ -15,7 +15,6 @@
  */
 package jetbrains.communicator.p2p;
 
-import com.intellij.util.TimeoutUtil;
 import jetbrains.communicator.core.impl.BaseTestCase;
 import jetbrains.communicator.core.impl.users.UserImpl;
 import jetbrains.communicator.core.users.PresenceMode;
@@ -36,7 +35,6 @@ import java.util.*;
 public class UserMonitorThread_WaitingForNextSearch_Test extends BaseTestCase {
   private Mock myUserMonitorClientMock;
   private UserMonitorThread myUserMonitorThread;
-  private MulticastPingThread myMulticastThread;
   private static final int PORT = 12234;
   private static final int WAIT_USER_RESPONSES_TIMEOUT = 100;
   private static final int SECS_BETWEEN_SCANS = 1;
@@ -48,26 +46,19 @@ public class UserMonitorThread_WaitingForNextSearch_Test extends BaseTestCase {
     myUserMonitorClientMock = mock(UserMonitorClient.class);
 
     final boolean[] started = new boolean[1];
-    myMulticastThread = new MulticastPingThread(InetAddress.getByName("localhost"), null, (UserMonitorClient) myUserMonitorClientMock.proxy()) {
-      @Override
-      public void run() {
-        myStarted = true;
-        TimeoutUtil.sleep(10000);
-      }
-
-      @Override
-      public void sendMulticastPingRequest() {
-        started[0] = true;
-      }
-    };
-
     myUserMonitorClientMock.stubs().method("getPort").will(returnValue(PORT));
+    myUserMonitorClientMock.stubs().method("userFound");
 
 
     System.setProperty(UserMonitorThread.SCAN_TIMEOUT_PROPERTY, "" + SECS_BETWEEN_SCANS); // seconds
 
-    myUserMonitorThread = new UserMonitorThread(new MulticastPingThread[]{myMulticastThread},
-        (UserMonitorClient) myUserMonitorClientMock.proxy(), WAIT_USER_RESPONSES_TIMEOUT);
+    myUserMonitorThread = new UserMonitorThread(Collections.emptyList(), 0, null,
+        (UserMonitorClient) myUserMonitorClientMock.proxy(), null, WAIT_USER_RESPONSES_TIMEOUT) {
+      @Override
+      void sendPingRequests() {
+        started[0] = true;
+      }
+    };
     myUserMonitorThread.start();
 
     System.setProperty(UserMonitorThread.SCAN_TIMEOUT_PROPERTY, ""); // seconds
@@ -93,7 +84,7 @@ public class UserMonitorThread_WaitingForNextSearch_Test extends BaseTestCase {
     new WaitFor(5000){
       @Override
       protected boolean condition() {
-        return !myUserMonitorThread._isAlive();
+        return !myUserMonitorThread.isAlive();
       }
     };
     myUserMonitorThread.join();
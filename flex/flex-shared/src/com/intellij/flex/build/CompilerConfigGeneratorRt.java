@@ -73,6 +73,16 @@ public final class CompilerConfigGeneratorRt {
 
   public static File getOrCreateConfigFile(final JpsFlexBuildConfiguration bc,
                                            final ProjectDescriptor projectDescriptor) throws IOException {
+    final String text = generateConfigFileText(bc, projectDescriptor);
+    final String name = getConfigFileName(bc, FlexCommonUtils.getBCSpecifier(bc));
+    return getOrCreateConfigFile(name, text);
+  }
+
+  /**
+   * Text of the configuration file that {@link #getOrCreateConfigFile} writes to the {@link FlexCommonUtils#getTempFlexConfigsDirPath()}.
+   */
+  public static String generateConfigFileText(final JpsFlexBuildConfiguration bc,
+                                              final ProjectDescriptor projectDescriptor) throws IOException {
     final CompilerConfigGeneratorRt generator =
       new CompilerConfigGeneratorRt(bc,
                                     bc.getModule().getProperties().getModuleLevelCompilerOptions(),
@@ -89,9 +99,7 @@ public final class CompilerConfigGeneratorRt {
       text = FlexCompilerConfigFileUtilBase.mergeWithCustomConfigFile(text, bc.getCompilerOptions().getAdditionalConfigFilePath(),
                                                                       makeExternalLibsMerged, makeIncludedLibsMerged);
     }
-
-    final String name = getConfigFileName(bc, FlexCommonUtils.getBCSpecifier(bc));
-    return getOrCreateConfigFile(name, text);
+    return text;
   }
 
   private String generateConfigFileText() throws IOException {
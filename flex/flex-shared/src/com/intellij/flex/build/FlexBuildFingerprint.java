@@ -0,0 +1,190 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.flex.build;
+
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fingerprint of those inputs of build configuration compilation that are not tracked as build roots: compiler configuration files
+ * including files they refer to (manifests, themes, fonts, etc.), source roots and outputs of dependencies.
+ * Only inputs are taken into account: files written by the compiler would make the fingerprint stale after every build.
+ * Fingerprints are stored to disk, so that unchanged build configurations are not recompiled after restart.
+ */
+public final class FlexBuildFingerprint {
+  private static final String[][] ELEMENTS_WITH_FILE_PATHS = {
+    {"compiler", "external-library-path", "path-element"}, {"compiler", "local-font-paths", "path-element"},
+    {"compiler", "library-path", "path-element"}, {"compiler", "namespaces", "namespace", "manifest"},
+    {"compiler", "theme", "filename"}, {"include-file", "path"},
+    {"include-stylesheet", "path"}, {"file-specs", "path-element"},
+    {"compiler", "include-libraries", "library"}, {"compiler", "local-fonts-snapshot"},
+    {"compiler", "defaults-css-url"}, {"compiler", "defaults-css-files", "filename"},
+    {"load-config"}, {"services"}, {"metadata", "raw-metadata"},
+    // "output" intentionally excluded, because output file is checked separately;
+    // "link-report" and "load-externs" refer to link reports, which are written by the compiler
+  };
+
+  private final MessageDigest myDigest;
+  private final List<String> myExcludedPaths = new ArrayList<>();
+
+  public FlexBuildFingerprint() {
+    try {
+      myDigest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public FlexBuildFingerprint addText(@NotNull final String text) {
+    myDigest.update(text.getBytes(StandardCharsets.UTF_8));
+    myDigest.update((byte)0);
+    return this;
+  }
+
+  /**
+   * Takes into account path, length and timestamp of the file, or its absence.
+   */
+  public FlexBuildFingerprint addFileStamp(@NotNull final File file) {
+    return addText(file.isFile() ? file.getPath() + ":" + file.length() + ":" + file.lastModified() : file.getPath() + ":-");
+  }
+
+  /**
+   * Takes into account path and content of the file; use for files that may be rewritten with the same content.
+   */
+  public FlexBuildFingerprint addFileContent(@NotNull final File file) {
+    addText(file.getPath());
+    try {
+      myDigest.update(FileUtil.loadFileBytes(file));
+    }
+    catch (IOException e) {
+      addText("-");
+    }
+    return this;
+  }
+
+  /**
+   * Files referenced from configuration files, which are not taken into account by {@link #addConfigFile} and {@link #addConfigText},
+   * e.g. outputs of dependencies: they are rewritten by every build and should be added by content instead.
+   */
+  public FlexBuildFingerprint excludeReferencedFiles(@NotNull final Collection<String> paths) {
+    myExcludedPaths.addAll(paths);
+    return this;
+  }
+
+  /**
+   * Takes into account content of the compiler configuration file and timestamps of all files it refers to.
+   * Relative paths are resolved against the directory of the configuration file, then against {@code workDirPath}.
+   */
+  public FlexBuildFingerprint addConfigFile(@NotNull final File configFile, @Nullable final String workDirPath) {
+    final String text;
+    try {
+      text = FileUtil.loadFile(configFile);
+    }
+    catch (IOException e) {
+      return addText(configFile.getPath() + ":-");
+    }
+
+    addText(configFile.getPath());
+    return addConfigText(text, configFile.getParent(), workDirPath);
+  }
+
+  /**
+   * Same as {@link #addConfigFile}, but for a configuration that is not written to disk yet.
+   */
+  public FlexBuildFingerprint addConfigText(@NotNull final String configText,
+                                            @Nullable final String configDirPath,
+                                            @Nullable final String workDirPath) {
+    addText(configText);
+
+    final Element root;
+    try {
+      root = JDOMUtil.load(configText);
+    }
+    catch (IOException | JDOMException e) {
+      return this;
+    }
+
+    for (String[] path : ELEMENTS_WITH_FILE_PATHS) {
+      addReferencedFiles(root, path, 0, configDirPath, workDirPath);
+    }
+    return this;
+  }
+
+  private void addReferencedFiles(final Element element,
+                                  final String[] path,
+                                  final int index,
+                                  final String configDirPath,
+                                  final String workDirPath) {
+    if (index == path.length) {
+      final String filePath = element.getTextTrim();
+      if (!filePath.isEmpty()) {
+        final File file = resolve(filePath, configDirPath, workDirPath);
+        if (!ContainerUtil.exists(myExcludedPaths, excludedPath -> FileUtil.pathsEqual(excludedPath, file.getPath()))) {
+          addFileStamp(file);
+        }
+      }
+      return;
+    }
+
+    final List<Element> children = element.getChildren();
+    for (Element child : children) {
+      if (path[index].equals(child.getName())) { // namespaces are not taken into consideration
+        addReferencedFiles(child, path, index + 1, configDirPath, workDirPath);
+      }
+    }
+  }
+
+  private static File resolve(final String filePath, final String... potentialBaseDirs) {
+    final File file = new File(FileUtil.toSystemDependentName(filePath));
+    if (file.isAbsolute() || file.exists()) return file;
+
+    for (String baseDir : potentialBaseDirs) {
+      if (baseDir == null) continue;
+      final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + filePath));
+      if (file1.exists()) return file1;
+    }
+    return file;
+  }
+
+  @NotNull
+  public String getValue() {
+    return StringUtil.toHexString(myDigest.digest());
+  }
+
+  @Nullable
+  public static String load(@NotNull final File storage) {
+    try {
+      return storage.isFile() ? FileUtil.loadFile(storage).trim() : null;
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  public static void save(@NotNull final File storage, @Nullable final String fingerprint) {
+    try {
+      if (fingerprint == null) {
+        FileUtil.delete(storage);
+      }
+      else {
+        FileUtil.writeToFile(storage, fingerprint);
+      }
+    }
+    catch (IOException ignore) {/**/}
+  }
+}
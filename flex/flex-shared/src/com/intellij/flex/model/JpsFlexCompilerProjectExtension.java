@@ -20,8 +20,11 @@ public class JpsFlexCompilerProjectExtension extends JpsElementBase<JpsFlexCompi
   public boolean USE_FCSH = false;
   public boolean USE_MXMLC_COMPC = false;
   public boolean PREFER_ASC_20 = true;
-  public int MAX_PARALLEL_COMPILATIONS = 4;
+  public static final int PARALLEL_COMPILATIONS_LIMIT = 16;
+
+  public int MAX_PARALLEL_COMPILATIONS = 1; // built-in compiler processes running at the same time
   public int HEAP_SIZE_MB = 512;
+  public int BUILT_IN_COMPILERS_HEAP_BUDGET_MB = 0; // total for all built-in compiler processes, 0 - not limited
   public String VM_OPTIONS = "";
 
   public JpsFlexCompilerProjectExtension() {
@@ -36,6 +39,7 @@ public class JpsFlexCompilerProjectExtension extends JpsElementBase<JpsFlexCompi
     PREFER_ASC_20 = original.PREFER_ASC_20;
     MAX_PARALLEL_COMPILATIONS = original.MAX_PARALLEL_COMPILATIONS;
     HEAP_SIZE_MB = original.HEAP_SIZE_MB;
+    BUILT_IN_COMPILERS_HEAP_BUDGET_MB = original.BUILT_IN_COMPILERS_HEAP_BUDGET_MB;
     VM_OPTIONS = original.VM_OPTIONS;
   }
 
@@ -55,6 +59,7 @@ public class JpsFlexCompilerProjectExtension extends JpsElementBase<JpsFlexCompi
     PREFER_ASC_20 = modified.PREFER_ASC_20;
     MAX_PARALLEL_COMPILATIONS = modified.MAX_PARALLEL_COMPILATIONS;
     HEAP_SIZE_MB = modified.HEAP_SIZE_MB;
+    BUILT_IN_COMPILERS_HEAP_BUDGET_MB = modified.BUILT_IN_COMPILERS_HEAP_BUDGET_MB;
     VM_OPTIONS = modified.VM_OPTIONS;
   }
 
@@ -64,6 +69,13 @@ public class JpsFlexCompilerProjectExtension extends JpsElementBase<JpsFlexCompi
     return child != null ? child : new JpsFlexCompilerProjectExtension();
   }
 
+  /**
+   * Brings a stored number of parallel compilations (possibly edited by hand or saved by an older version) into the supported range.
+   */
+  public static int clampParallelCompilations(final int value) {
+    return Math.max(1, Math.min(PARALLEL_COMPILATIONS_LIMIT, value));
+  }
+
   static JpsProjectExtensionSerializer createProjectExtensionSerializer() {
     return new JpsProjectExtensionSerializer("flexCompiler.xml", "FlexCompilerConfiguration") {
       @Override
@@ -97,6 +109,8 @@ public class JpsFlexCompilerProjectExtension extends JpsElementBase<JpsFlexCompi
 
   private static void loadExtension(final JpsProject project, final Element componentTag) {
     final JpsFlexCompilerProjectExtension deserialized = XmlSerializer.deserialize(componentTag, JpsFlexCompilerProjectExtension.class);
+    deserialized.MAX_PARALLEL_COMPILATIONS = clampParallelCompilations(deserialized.MAX_PARALLEL_COMPILATIONS);
+    deserialized.BUILT_IN_COMPILERS_HEAP_BUDGET_MB = Math.max(0, deserialized.BUILT_IN_COMPILERS_HEAP_BUDGET_MB);
     project.getContainer().setChild(ROLE, deserialized);
   }
 
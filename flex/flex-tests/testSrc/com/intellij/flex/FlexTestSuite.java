@@ -1,6 +1,7 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.intellij.flex;
 
+import com.intellij.flex.bc.FlexBuildFingerprintTest;
 import com.intellij.flex.bc.FlexCompilerConfigTest;
 import com.intellij.flex.bc.FlexProjectConfigTest;
 import com.intellij.flex.codeInsight.*;
@@ -19,12 +20,16 @@ import com.intellij.flex.imports.FlexAutoImportsTest;
 import com.intellij.flex.imports.FlexOptimizeImportsTest;
 import com.intellij.flex.intentions.*;
 import com.intellij.flex.parser.ActionScriptParsingTest;
+import com.intellij.flex.parser.FlexImporterPerformanceTest;
 import com.intellij.flex.parser.FlexImporterTest;
+import com.intellij.flex.parser.FlexStyleMetadataScannerPerformanceTest;
+import com.intellij.flex.parser.FlexStyleMetadataScannerTest;
 import com.intellij.flex.projectView.FlexProjectViewTest;
 import com.intellij.flex.refactoring.*;
 import com.intellij.flex.resolver.ActionScriptResolveTest;
 import com.intellij.flex.resolver.FlexCssNavigationTest;
 import com.intellij.flex.uml.FlashUmlTest;
+import com.intellij.lang.javascript.flex.debug.PipelinedDebuggerCommandTest;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -34,6 +39,7 @@ public class FlexTestSuite {
     final TestSuite testSuite = new TestSuite(FlexTestSuite.class.getSimpleName());
 
     // com.intellij.flex.bc.*
+    testSuite.addTestSuite(FlexBuildFingerprintTest.class);
     testSuite.addTestSuite(FlexCompilerConfigTest.class);
     testSuite.addTestSuite(FlexProjectConfigTest.class);
 
@@ -107,7 +113,10 @@ public class FlexTestSuite {
 
     //com.intellij.flex.parser.*
     testSuite.addTestSuite(ActionScriptParsingTest.class);
+    testSuite.addTestSuite(FlexImporterPerformanceTest.class);
     testSuite.addTestSuite(FlexImporterTest.class);
+    testSuite.addTestSuite(FlexStyleMetadataScannerPerformanceTest.class);
+    testSuite.addTestSuite(FlexStyleMetadataScannerTest.class);
 
     //com.intellij.flex.projectView.*
     testSuite.addTestSuite(FlexProjectViewTest.class);
@@ -136,6 +145,9 @@ public class FlexTestSuite {
     //com.intellij.flex.uml.*
     testSuite.addTestSuite(FlashUmlTest.class);
 
+    //com.intellij.lang.javascript.flex.debug.*
+    testSuite.addTestSuite(PipelinedDebuggerCommandTest.class);
+
     return testSuite;
   }
 }
@@ -0,0 +1,93 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.flex.bc;
+
+import com.intellij.flex.build.FlexBuildFingerprint;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public class FlexBuildFingerprintTest extends TestCase {
+  private File myDir;
+  private File myTheme;
+  private File myDependencyOutput;
+  private File myLinkReport;
+  private String myConfigText;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("flexBuildFingerprint", null);
+    myTheme = createFile("theme.css", ".a {}");
+    myDependencyOutput = createFile("dependency.swc", "swc");
+    myLinkReport = createFile("link-report.xml", "<report/>");
+    myConfigText = "<flex-config>" +
+                   "<compiler>" +
+                   "<library-path><path-element>" + myDependencyOutput.getPath() + "</path-element></library-path>" +
+                   "<theme><filename>" + myTheme.getPath() + "</filename></theme>" +
+                   "</compiler>" +
+                   "<link-report>" + myLinkReport.getPath() + "</link-report>" +
+                   "<load-externs>" + myLinkReport.getPath() + "</load-externs>" +
+                   "</flex-config>";
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testSecondBuildIsUpToDate() throws IOException {
+    final String beforeFirstBuild = calcFingerprint();
+    simulateBuild();
+    assertEquals(beforeFirstBuild, calcFingerprint());
+    simulateBuild();
+    assertEquals(beforeFirstBuild, calcFingerprint());
+  }
+
+  public void testChangedInputs() throws IOException {
+    final String initial = calcFingerprint();
+
+    FileUtil.writeToFile(myDependencyOutput, "changed swc");
+    final String afterDependencyChange = calcFingerprint();
+    assertFalse(initial.equals(afterDependencyChange));
+
+    FileUtil.writeToFile(myTheme, ".a { color: red; }");
+    assertFalse(afterDependencyChange.equals(calcFingerprint()));
+  }
+
+  private String calcFingerprint() {
+    // the same way as FlexBuilder does for a BC depending on another BC
+    return new FlexBuildFingerprint()
+      .excludeReferencedFiles(Collections.singletonList(myDependencyOutput.getPath()))
+      .addConfigText(myConfigText, myDir.getPath(), null)
+      .addFileContent(myDependencyOutput)
+      .getValue();
+  }
+
+  /**
+   * Compilation rewrites the link report and the dependency rebuilds its output with the same content.
+   */
+  private void simulateBuild() throws IOException {
+    rewrite(myLinkReport, "<report>" + System.nanoTime() + "</report>");
+    rewrite(myDependencyOutput, FileUtil.loadFile(myDependencyOutput));
+  }
+
+  private static void rewrite(File file, String text) throws IOException {
+    final long lastModified = file.lastModified();
+    FileUtil.writeToFile(file, text);
+    assertTrue(file.setLastModified(lastModified + 2000));
+  }
+
+  private File createFile(String name, String text) throws IOException {
+    final File file = new File(myDir, name);
+    FileUtil.writeToFile(file, text);
+    return file;
+  }
+}
@@ -0,0 +1,49 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.flex.parser;
+
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.lang.javascript.JavaScriptSupportLoader;
+import com.intellij.lang.javascript.flex.importer.FlexImporter;
+import com.intellij.lang.javascript.psi.stubs.impl.JSFileCachedData;
+import com.intellij.lang.javascript.psi.stubs.impl.JSFileStubImpl;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class FlexImporterPerformanceTest extends BasePlatformTestCase {
+
+  public void testSdkStubsBuilding() throws IOException {
+    final List<byte[]> libraries = new ArrayList<>();
+    for (File swc : FileUtil.findFilesByMask(Pattern.compile(".*\\.swc"),
+                                             new File(FlexTestUtils.getPathToCompleteFlexSdk("4.6") + "/frameworks/libs"))) {
+      libraries.add(loadLibrarySwf(swc));
+    }
+    assertFalse(libraries.isEmpty());
+
+    PlatformTestUtil.startPerformanceTest("SDK swc stubs building", 15_000, () -> {
+      for (byte[] library : libraries) {
+        final JSFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
+        FlexImporter.buildStubsInterfaceFromBytes(library, stub);
+        assertFalse(stub.getChildrenStubs().isEmpty());
+      }
+    }).attempts(3).assertTiming();
+  }
+
+  private static byte[] loadLibrarySwf(File swc) throws IOException {
+    try (ZipFile zipFile = new ZipFile(swc)) {
+      final ZipEntry zipEntry = zipFile.getEntry("library.swf");
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        return FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.flex.parser;
+
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.javascript.flex.css.FlexStyleMetadataScanner;
+import com.intellij.javascript.flex.css.FlexStyleMetadataScanner.StyleMetadata;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class FlexStyleMetadataScannerPerformanceTest extends BasePlatformTestCase {
+
+  public void testTestDataSourcesScanning() throws IOException {
+    // the SDK sources in test data are only a few files, so all ActionScript and MXML files of Flex test data make up the corpus
+    final List<File> files = FileUtil.findFilesByMask(Pattern.compile(".*\\.(as|mxml)"), new File(FlexTestUtils.getTestDataPath("")));
+    assertTrue(files.size() > 1000);
+
+    final List<String> texts = new ArrayList<>();
+    for (File file : files) {
+      texts.add(FileUtil.loadFile(file));
+    }
+
+    final List<StyleMetadata> sparkApplicationStyles = FlexStyleMetadataScanner.scanActionScript(
+      FileUtil.loadFile(new File(FlexTestUtils.getPathToCompleteFlexSdk("4.6") +
+                                 "/frameworks/projects/spark/src/spark/components/Application.as")), "Application.as");
+    assertNotNull(sparkApplicationStyles);
+    assertEquals(1, sparkApplicationStyles.size());
+    assertEquals("spark.components.Application", sparkApplicationStyles.get(0).ownerName);
+    assertTrue(sparkApplicationStyles.get(0).inClass);
+    assertEquals("backgroundColor", sparkApplicationStyles.get(0).attributes.get("name"));
+    assertEquals("Color", sparkApplicationStyles.get(0).attributes.get("format"));
+
+    // test data contains incomplete code on purpose, such files are left for PSI-based indexing and are just skipped here
+    PlatformTestUtil.startPerformanceTest("[Style] metadata scanning of Flex test data sources", 1_000, () -> {
+      for (int i = 0; i < 10; i++) {
+        for (int j = 0; j < texts.size(); j++) {
+          final String text = texts.get(j);
+          if (!FlexStyleMetadataScanner.mayContainStyleMetadata(text)) continue;
+          if (files.get(j).getName().endsWith(".mxml")) {
+            FlexStyleMetadataScanner.scanMxml(text, "Test");
+          }
+          else {
+            FlexStyleMetadataScanner.scanActionScript(text, files.get(j).getName());
+          }
+        }
+      }
+    }).attempts(3).assertTiming();
+  }
+}
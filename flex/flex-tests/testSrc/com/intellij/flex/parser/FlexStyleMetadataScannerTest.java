@@ -0,0 +1,98 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.flex.parser;
+
+import com.intellij.flex.editor.FlexProjectDescriptor;
+import com.intellij.javascript.flex.css.FlexStyleIndex;
+import com.intellij.javascript.flex.css.FlexStyleIndexInfo;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+
+public class FlexStyleMetadataScannerTest extends BasePlatformTestCase {
+  private static final String SPARK_ROOT_TAG =
+    "<s:Group xmlns:fx=\"http://ns.adobe.com/mxml/2009\" xmlns:s=\"library://ns.adobe.com/flex/spark\">\n";
+
+  @Override
+  protected LightProjectDescriptor getProjectDescriptor() {
+    return FlexProjectDescriptor.DESCRIPTOR;
+  }
+
+  public void testRootLevelMetadata() {
+    final Map<String, Set<FlexStyleIndexInfo>> result = doTest(true, "<?xml version=\"1.0\"?>\n" + SPARK_ROOT_TAG +
+                                                                     "  <fx:Metadata>[Style(name=\"a\", type=\"uint\", format=\"Color\")]</fx:Metadata>\n" +
+                                                                     "  <fx:Metadata><![CDATA[\n" +
+                                                                     "    [Style(name=\"bgColor\", inherit=\"yes\")]\n" +
+                                                                     "  ]]></fx:Metadata >\n" +
+                                                                     "</s:Group>");
+    assertSameElements(result.keySet(), "a", "bgColor", "bg-color");
+  }
+
+  public void testMx2006Namespace() {
+    final Map<String, Set<FlexStyleIndexInfo>> result = doTest(true, "<mx:Canvas xmlns:mx=\"http://www.adobe.com/2006/mxml\">\n" +
+                                                                     "  <!-- <mx:Metadata>[Style(name=\"commented\")]</mx:Metadata> -->\n" +
+                                                                     "  <mx:Metadata>[Style(name=\"a\")]</mx:Metadata>\n" +
+                                                                     "  <mx:Box/>\n" +
+                                                                     "</mx:Canvas>");
+    assertSameElements(result.keySet(), "a");
+  }
+
+  public void testMetadataAfterNestedTags() {
+    doTest(true, SPARK_ROOT_TAG +
+                 "  <s:Button><s:label>Style</s:label></s:Button>\n" +
+                 "  <fx:Metadata>[Style(name=\"a\")]</fx:Metadata>\n" +
+                 "  <fx:Declarations/>\n" +
+                 "</s:Group>");
+  }
+
+  public void testNestedMetadata() {
+    doTest(false, SPARK_ROOT_TAG +
+                  "  <s:Button>\n" +
+                  "    <fx:Metadata>[Style(name=\"nested\")]</fx:Metadata>\n" +
+                  "  </s:Button>\n" +
+                  "  <fx:Metadata>[Style(name=\"a\")]</fx:Metadata>\n" +
+                  "</s:Group>");
+  }
+
+  public void testMetadataInOtherNamespace() {
+    doTest(false, SPARK_ROOT_TAG +
+                  "  <s:Metadata>[Style(name=\"other\")]</s:Metadata>\n" +
+                  "  <fx:Metadata>[Style(name=\"a\")]</fx:Metadata>\n" +
+                  "</s:Group>");
+  }
+
+  public void testReboundPrefix() {
+    doTest(false, SPARK_ROOT_TAG +
+                  "  <s:Button xmlns:fx=\"library://ns.example.com/other\"/>\n" +
+                  "  <fx:Metadata>[Style(name=\"a\")]</fx:Metadata>\n" +
+                  "</s:Group>");
+  }
+
+  public void testStyleInScript() {
+    doTest(false, SPARK_ROOT_TAG +
+                  "  <fx:Script><![CDATA[\n" +
+                  "    [Style(name=\"inScript\")]\n" +
+                  "  ]]></fx:Script>\n" +
+                  "</s:Group>");
+  }
+
+  /**
+   * Checks that the scanner finds the same as the PSI-based indexer or gives up.
+   */
+  @NotNull
+  private Map<String, Set<FlexStyleIndexInfo>> doTest(boolean handledByScanner, @NotNull String text) {
+    final PsiFile file = myFixture.configureByText(getTestName(false) + ".mxml", text);
+    final Map<String, Set<FlexStyleIndexInfo>> expected = FlexStyleIndex.indexMxmlFile((XmlFile)file, false);
+    final Map<String, Set<FlexStyleIndexInfo>> actual = FlexStyleIndex.indexMxmlFile((XmlFile)file, true);
+    assertNotNull(expected);
+    assertEquals(handledByScanner, actual != null);
+    if (actual != null) {
+      assertEquals(expected, actual);
+    }
+    return expected;
+  }
+}
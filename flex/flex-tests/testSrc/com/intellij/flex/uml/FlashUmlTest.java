@@ -22,6 +22,7 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
 import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.projectRoots.Sdk;
@@ -112,15 +113,7 @@ public class FlashUmlTest extends JavaCodeInsightTestCase {
     for (String file : files) {
       vFiles.add(findVirtualFile(BASE_PATH + file));
     }
-    ApplicationManager.getApplication().runWriteAction(() -> {
-      final ModuleRootManager rootManager = ModuleRootManager.getInstance(myModule);
-      final ModifiableRootModel rootModel = rootManager.getModifiableModel();
-      ContentEntry[] contentEntries = rootModel.getContentEntries();
-      for (ContentEntry contentEntry : contentEntries) {
-        rootModel.removeContentEntry(contentEntry);
-      }
-      rootModel.commit();
-    });
+    removeContentEntries();
     configureByFiles(projectRoot, VfsUtilCore.toVirtualFileArray(vFiles));
 
     final LinkedHashMap<Integer, String> markers = JSTestUtils.extractPositionMarkers(getProject(), getEditor().getDocument());
@@ -193,6 +186,28 @@ public class FlashUmlTest extends JavaCodeInsightTestCase {
     return builder;
   }
 
+  private void removeContentEntries() {
+    ApplicationManager.getApplication().runWriteAction(() -> {
+      final ModuleRootManager rootManager = ModuleRootManager.getInstance(myModule);
+      final ModifiableRootModel rootModel = rootManager.getModifiableModel();
+      ContentEntry[] contentEntries = rootModel.getContentEntries();
+      for (ContentEntry contentEntry : contentEntries) {
+        rootModel.removeContentEntry(contentEntry);
+      }
+      rootModel.commit();
+    });
+  }
+
+  private static void assertNodeIndexAndEdgeKeys(final FlashUmlDataModel model) {
+    for (DiagramNode<Object> node : model.getNodes()) {
+      assertSame(node, model.findNode(node.getIdentifyingElement()));
+    }
+    final Set<List<Object>> edges = new HashSet<>();
+    for (DiagramEdge<Object> edge : model.getEdges()) {
+      assertTrue("Duplicate edge " + edge, edges.add(Arrays.asList(edge.getSource(), edge.getTarget(), edge.getRelationship())));
+    }
+  }
+
   private void assertModel(final String expectedPrefix,
                            final DiagramProvider<Object> provider,
                            final String actualOriginFqn,
@@ -226,10 +241,45 @@ public class FlashUmlTest extends JavaCodeInsightTestCase {
   public void testAsDependencies() throws Exception {
     String testName = getTestName(false);
     String filename = testName + ".as";
-    doTest(new String[]{filename, testName + "_2.as", testName + "_3.as"},
-           new String[]{"Foo", "Bar", "Zz", "Zz2", "Pp", "Oo", "Abc", "Def", "Rt", "UI", "A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8",
-             "A9", "A10", "W", filename + ":Inner1", filename + ":Inner2"}, allScopeProvider(),
-           EnumSet.allOf(FlashUmlDependenciesSettingsOption.class), null);
+    String[] files = {filename, testName + "_2.as", testName + "_3.as"};
+    String[] classes = {"Foo", "Bar", "Zz", "Zz2", "Pp", "Oo", "Abc", "Def", "Rt", "UI", "A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8",
+      "A9", "A10", "W", filename + ":Inner1", filename + ":Inner2"};
+    DiagramBuilder builder =
+      doTestImpl(null, files, classes, allScopeProvider(), EnumSet.allOf(FlashUmlDependenciesSettingsOption.class), null);
+    FlashUmlDataModel model = (FlashUmlDataModel)builder.getDataModel();
+    assertNodeIndexAndEdgeKeys(model);
+
+    // existing edges must be recognized by the update, not added once again
+    model.refreshDataModel();
+    assertModel(null, DiagramProvider.findByID(FlashUmlProvider.ID), testName, model);
+    assertNodeIndexAndEdgeKeys(model);
+  }
+
+  public void testFindNodeAfterRename() throws Exception {
+    removeContentEntries();
+    configureByFiles(null, findVirtualFile(BASE_PATH + "AsDependencies.as"), findVirtualFile(BASE_PATH + "AsDependencies_2.as"),
+                     findVirtualFile(BASE_PATH + "AsDependencies_3.as"));
+    final GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+    DiagramProvider<Object> provider = DiagramProvider.findByID(FlashUmlProvider.ID);
+    DiagramBuilder builder =
+      UmlGraphBuilderFactory.create(myProject, provider, JSTestUtils.findClassByQName("AsDependencies", scope), null);
+    Disposer.register(getTestRootDisposable(), builder);
+    FlashUmlDataModel model = (FlashUmlDataModel)builder.getDataModel();
+    model.setShowDependencies(true);
+
+    final JSClass foo = JSTestUtils.findClassByQName("Foo", scope);
+    model.addElement(foo);
+    model.refreshDataModel();
+    DiagramNode<Object> fooNode = model.findNode(foo);
+    assertNotNull(fooNode);
+    assertNodeIndexAndEdgeKeys(model);
+
+    WriteCommandAction.runWriteCommandAction(myProject, () -> foo.setName("Foo2"));
+    assertEquals("Foo2", foo.getQualifiedName());
+    assertSame(fooNode, model.findNode(foo));
+
+    model.refreshDataModel();
+    assertNodeIndexAndEdgeKeys(model);
   }
 
   private Computable<GlobalSearchScope> projectScopeProvider() {
@@ -0,0 +1,69 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.lang.javascript.flex.debug;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NonNls;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PipelinedDebuggerCommandTest extends TestCase {
+  public void testTwoQueuedBatches() {
+    final RecordingCommand thisCommand1 = new RecordingCommand("frame 0\nprint this");
+    final RecordingCommand locals1 = new RecordingCommand("info locals");
+    final RecordingCommand thisCommand2 = new RecordingCommand("frame 1\nprint this");
+    final RecordingCommand locals2 = new RecordingCommand("info locals");
+
+    // the same way FlexDebugProcess joins batches queued by two frames being expanded
+    final PipelinedDebuggerCommand command = new PipelinedDebuggerCommand(Arrays.asList(
+      new PipelinedDebuggerCommand(Arrays.asList(thisCommand1, locals1)),
+      new PipelinedDebuggerCommand(Arrays.asList(thisCommand2, locals2))));
+
+    assertEquals("frame 0\nprint this\ninfo locals\nframe 1\nprint this\ninfo locals", command.getText());
+    assertEquals(6, command.getResponseCount());
+
+    command.dispatchResponses(Arrays.asList("#0 frame0", "$1 = this0", "a = 1", "#1 frame1", "$2 = this1", "b = 2"));
+
+    assertEquals(Arrays.asList("#0 frame0", "$1 = this0"), thisCommand1.myResponses);
+    assertEquals(Arrays.asList("a = 1"), locals1.myResponses);
+    assertEquals(Arrays.asList("#1 frame1", "$2 = this1"), thisCommand2.myResponses);
+    assertEquals(Arrays.asList("b = 2"), locals2.myResponses);
+  }
+
+  public void testCommandFinishedEarlyDoesNotShiftResponses() {
+    final RecordingCommand first = new RecordingCommand("frame 0\nprint a", 1);
+    final RecordingCommand second = new RecordingCommand("print b");
+
+    final PipelinedDebuggerCommand command = new PipelinedDebuggerCommand(Arrays.asList(first, second));
+    command.dispatchResponses(Arrays.asList("could not be evaluated", "$1 = a", "$2 = b"));
+
+    assertEquals(Arrays.asList("could not be evaluated"), first.myResponses);
+    assertEquals(Arrays.asList("$2 = b"), second.myResponses);
+  }
+
+  private static class RecordingCommand extends DebuggerCommand {
+    private final List<String> myResponses = new ArrayList<>();
+    private final int myResponsesToHandle;
+
+    RecordingCommand(@NonNls final String text) {
+      this(text, -1);
+    }
+
+    RecordingCommand(@NonNls final String text, final int responsesToHandle) {
+      super(text, CommandOutputProcessingType.SPECIAL_PROCESSING);
+      myResponsesToHandle = responsesToHandle == -1 ? getResponseCount() : responsesToHandle;
+    }
+
+    @Override
+    boolean isPipelineable() {
+      return true;
+    }
+
+    @Override
+    CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+      myResponses.add(s);
+      return myResponses.size() == myResponsesToHandle ? CommandOutputProcessingMode.DONE : CommandOutputProcessingMode.PROCEEDING;
+    }
+  }
+}
@@ -7,12 +7,14 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 
 import java.io.File;
+import java.util.Map;
 import java.util.regex.Matcher;
 
 public abstract class CompilerMessageHandlerBase {
@@ -29,6 +31,9 @@ public abstract class CompilerMessageHandlerBase {
 
   private @Nullable String myPreviousUnreportedInfoMessage;
 
+  // thousands of warnings are usually reported for a much smaller number of files
+  private final Map<String, Boolean> mySourceFileExists = new THashMap<>();
+
   /**
    * Implementations must call {@link #registerCompilationFinished()} at the end
    */
@@ -126,22 +131,8 @@ public abstract class CompilerMessageHandlerBase {
         final String message = matcher.group(6);
 
         final BuildMessage.Kind kind = "Warning".equals(type) ? BuildMessage.Kind.WARNING : BuildMessage.Kind.ERROR;
-        final File file = new File(sourceFilePath);
-        final boolean sourceFileExists = file.exists();
-
-        final StringBuilder fullMessage = new StringBuilder();
-        if (!sourceFileExists) fullMessage.append(sourceFilePath).append(": ");
-        if (additionalInfo != null) fullMessage.append(additionalInfo).append(' ');
-        fullMessage.append(message);
-
-        reportPreviousInfoMessage();
-        myContext.processMessage(new CompilerMessage(myCompilerName,
-                                                     kind,
-                                                     fullMessage.toString(),
-                                                     sourceFileExists ? sourceFilePath : null, -1, -1, -1,
-                                                     line != null ? Integer.parseInt(line) : 0,
-                                                     column != null ? Integer.parseInt(column) : 0));
-        myCompilationFailed |= kind == BuildMessage.Kind.ERROR;
+        reportMessage(kind, sourceFilePath, additionalInfo, line != null ? Integer.parseInt(line) : 0,
+                      column != null ? Integer.parseInt(column) : 0, message);
         return;
       }
     }
@@ -165,6 +156,26 @@ public abstract class CompilerMessageHandlerBase {
     }
   }
 
+  private void reportMessage(final BuildMessage.Kind kind,
+                             @Nullable final String sourceFilePath,
+                             @Nullable final String additionalInfo,
+                             final int line,
+                             final int column,
+                             final String message) {
+    final boolean sourceFileExists =
+      sourceFilePath != null && mySourceFileExists.computeIfAbsent(sourceFilePath, path -> new File(path).exists());
+
+    final StringBuilder fullMessage = new StringBuilder();
+    if (sourceFilePath != null && !sourceFileExists) fullMessage.append(sourceFilePath).append(": ");
+    if (additionalInfo != null) fullMessage.append(additionalInfo).append(' ');
+    fullMessage.append(message);
+
+    reportPreviousInfoMessage();
+    myContext.processMessage(new CompilerMessage(myCompilerName, kind, fullMessage.toString(),
+                                                 sourceFileExists ? sourceFilePath : null, -1, -1, -1, line, column));
+    myCompilationFailed |= kind == BuildMessage.Kind.ERROR;
+  }
+
   private static boolean isNotSupportedOptionFromGeneratedConfig(final String message, final String filePath) {
     final String fileName = PathUtilRt.getFileName(filePath);
     return fileName.startsWith("idea-") && fileName.endsWith(".xml")
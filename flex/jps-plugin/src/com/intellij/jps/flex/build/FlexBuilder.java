@@ -4,12 +4,15 @@ package com.intellij.jps.flex.build;
 import com.intellij.flex.FlexCommonBundle;
 import com.intellij.flex.FlexCommonUtils;
 import com.intellij.flex.build.CompilerConfigGeneratorRt;
+import com.intellij.flex.build.FlexBuildFingerprint;
 import com.intellij.flex.build.FlexBuildTarget;
 import com.intellij.flex.build.FlexBuildTargetType;
 import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.flex.model.JpsFlexProjectLevelCompilerOptionsExtension;
+import com.intellij.flex.model.bc.JpsFlexBCDependencyEntry;
 import com.intellij.flex.model.bc.JpsFlexBuildConfiguration;
 import com.intellij.flex.model.bc.JpsFlexCompilerOptions;
+import com.intellij.flex.model.bc.JpsFlexDependencyEntry;
 import com.intellij.flex.model.bc.OutputType;
 import com.intellij.flex.model.bc.TargetPlatform;
 import com.intellij.flex.model.sdk.JpsFlexSdkType;
@@ -20,7 +23,9 @@ import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.concurrency.Semaphore;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
@@ -36,6 +41,7 @@ import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,11 +49,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTarget> {
 
   private static final Logger LOG = Logger.getInstance(FlexBuilder.class.getName());
-  private JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
+  private static final String FINGERPRINT_FILE_NAME = "bc-fingerprint";
+  private JpsBuiltInFlexCompilerPool myBuiltInCompilerPool;
 
   private enum Status {Ok, Failed, Cancelled}
 
@@ -64,15 +73,15 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   @Override
   public void buildStarted(final CompileContext context) {
     super.buildStarted(context);
-    myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(context.getProjectDescriptor().getProject());
+    myBuiltInCompilerPool = new JpsBuiltInFlexCompilerPool(context.getProjectDescriptor().getProject());
   }
 
   @Override
   public void buildFinished(final CompileContext context) {
-    LOG.assertTrue(myBuiltInCompilerHandler.getActiveCompilationsNumber() == 0,
-                   myBuiltInCompilerHandler.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
-    myBuiltInCompilerHandler.stopCompilerProcess();
-    myBuiltInCompilerHandler = null;
+    LOG.assertTrue(myBuiltInCompilerPool.getActiveCompilationsNumber() == 0,
+                   myBuiltInCompilerPool.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
+    myBuiltInCompilerPool.stopCompilerProcesses();
+    myBuiltInCompilerPool = null;
 
     FlexCommonUtils.deleteTempFlexConfigFiles(context.getProjectDescriptor().getProject().getName());
 
@@ -112,8 +121,15 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
     final List<JpsFlexBuildConfiguration> bcsToCompile = getAllBCsToCompile(mainBC);
 
-    if (!FlexCommonUtils.isFlexUnitBC(mainBC) && !isFlexmojosBCWithUpdatedConfigFile(mainBC)) {
-      if (dirtyFilePaths.isEmpty()) {
+    final File fingerprintStorage =
+      new File(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(buildTarget), FINGERPRINT_FILE_NAME);
+    final String storedFingerprint = FlexBuildFingerprint.load(fingerprintStorage);
+    final String fingerprint = calcFingerprint(context, mainBC, bcsToCompile);
+    final boolean fingerprintChanged = storedFingerprint != null && !storedFingerprint.equals(fingerprint);
+
+    if (!FlexCommonUtils.isFlexUnitBC(mainBC) && !isFlexmojosBCWithUpdatedConfigFile(mainBC) && !fingerprintChanged) {
+      // content of dependency outputs is a part of the fingerprint, so if they are the only dirty files then they were just rewritten
+      if (dirtyFilePaths.isEmpty() || storedFingerprint != null && isOnlyDependencyOutputDirty(mainBC, dirtyFilePaths)) {
         boolean outputFilesExist = true;
 
         for (JpsFlexBuildConfiguration bc : bcsToCompile) {
@@ -125,6 +141,9 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
         }
 
         if (outputFilesExist) {
+          if (storedFingerprint == null) {
+            FlexBuildFingerprint.save(fingerprintStorage, fingerprint);
+          }
           return;
         }
       }
@@ -135,33 +154,145 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
       }
     }
 
-    for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+    final JpsBuiltInFlexCompilerPool pool = myBuiltInCompilerPool;
+    List<Future<Status>> parallelCompilations = null;
+    FlexBuildFingerprint.save(fingerprintStorage, null);
 
-      switch (status) {
-        case Ok:
-          outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
-          FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.successful")));
-          break;
+    try {
+      for (int i = 0; i < bcsToCompile.size(); i++) {
+        final JpsFlexBuildConfiguration bc = bcsToCompile.get(i);
+        final Status status;
 
-        case Failed:
-          final String message = bc.getOutputType() == OutputType.Application
-                                 ? FlexCommonBundle.message("compilation.failed")
-                                 : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
-          context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+        if (i == 0 || pool.getSize() == 1) {
+          status = compileBuildConfiguration(context, bc, pool);
+        }
+        else {
+          if (parallelCompilations == null) {
+            // RLMs and runtime stylesheets need the main BC to be compiled first, but they don't depend on each other
+            parallelCompilations = scheduleParallelCompilation(context, bcsToCompile.subList(1, bcsToCompile.size()), pool);
+          }
+          status = waitForParallelCompilation(parallelCompilations.get(i - 1));
+        }
 
-          throw new StopBuildException();
+        switch (status) {
+          case Ok:
+            outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
+            FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
+            context.processMessage(
+              new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                                  FlexCommonBundle.message("compilation.successful")));
+            break;
 
-        case Cancelled:
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.cancelled")));
-          return;
+          case Failed:
+            final String message = bc.getOutputType() == OutputType.Application
+                                   ? FlexCommonBundle.message("compilation.failed")
+                                   : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
+            context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+
+            throw new StopBuildException();
+
+          case Cancelled:
+            context.processMessage(
+              new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                                  FlexCommonBundle.message("compilation.cancelled")));
+            return;
+        }
+      }
+
+      FlexBuildFingerprint.save(fingerprintStorage, fingerprint);
+    }
+    finally {
+      if (parallelCompilations != null) {
+        // don't let the build finish while runtime stylesheets or RLMs are still being compiled
+        for (Future<Status> future : parallelCompilations) {
+          waitForParallelCompilation(future);
+        }
+      }
+    }
+  }
+
+  private static List<Future<Status>> scheduleParallelCompilation(final CompileContext context,
+                                                                  final List<JpsFlexBuildConfiguration> bcs,
+                                                                  final JpsBuiltInFlexCompilerPool pool) {
+    final List<Future<Status>> result = new ArrayList<>(bcs.size());
+    for (JpsFlexBuildConfiguration bc : bcs) {
+      result.add(SharedThreadPool.getInstance().submit(() -> compileBuildConfiguration(context, bc, pool)));
+    }
+    return result;
+  }
+
+  private static Status waitForParallelCompilation(final Future<Status> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.Cancelled;
+    }
+    catch (ExecutionException e) {
+      LOG.error(e.getCause());
+      return Status.Failed;
+    }
+  }
+
+  @Nullable
+  private static String calcFingerprint(final CompileContext context,
+                                        final JpsFlexBuildConfiguration mainBC,
+                                        final List<JpsFlexBuildConfiguration> bcsToCompile) {
+    final FlexBuildFingerprint fingerprint = new FlexBuildFingerprint();
+    final String workDirPath = FlexCommonUtils.getFlexCompilerWorkDirPath(mainBC.getModule().getProject());
+    final List<String> dependencyOutputPaths = getDependencyOutputPaths(mainBC);
+    // dependency outputs are rewritten by each build of dependencies, so their content is taken into account instead of timestamps
+    fingerprint.excludeReferencedFiles(dependencyOutputPaths);
+
+    final JpsSdk<?> sdk = mainBC.getSdk();
+    if (sdk != null) {
+      fingerprint.addText(sdk.getHomePath() + ":" + sdk.getVersionString());
+    }
+
+    try {
+      for (JpsFlexBuildConfiguration bc : bcsToCompile) {
+        // config files are not written here, an up-to-date BC doesn't need them
+        fingerprint.addConfigText(CompilerConfigGeneratorRt.generateConfigFileText(bc, context.getProjectDescriptor()),
+                                  FlexCommonUtils.getTempFlexConfigsDirPath(), workDirPath);
+        final File additionalConfigFile = getAdditionalConfigFile(bc);
+        if (additionalConfigFile != null) {
+          fingerprint.addConfigFile(additionalConfigFile, workDirPath);
+        }
+      }
+    }
+    catch (IOException e) {
+      return null; // will be reported during compilation
+    }
+
+    for (String path : dependencyOutputPaths) {
+      fingerprint.addFileContent(new File(path));
+    }
+
+    return fingerprint.getValue();
+  }
+
+  private static List<String> getDependencyOutputPaths(final JpsFlexBuildConfiguration bc) {
+    final List<String> result = new ArrayList<>();
+    for (JpsFlexDependencyEntry entry : bc.getDependencies().getEntries()) {
+      if (entry instanceof JpsFlexBCDependencyEntry) {
+        final JpsFlexBuildConfiguration dependencyBC = ((JpsFlexBCDependencyEntry)entry).getBC();
+        if (dependencyBC != null) {
+          result.add(dependencyBC.getActualOutputFilePath());
+        }
       }
     }
+    return result;
+  }
+
+  private static boolean isOnlyDependencyOutputDirty(final JpsFlexBuildConfiguration bc, final Collection<String> dirtyFilePaths) {
+    final List<String> dependencyOutputPaths = getDependencyOutputPaths(bc);
+    for (String dirtyFilePath : dirtyFilePaths) {
+      if (!ContainerUtil.exists(dependencyOutputPaths, path -> FileUtil.pathsEqual(path, dirtyFilePath))) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -283,11 +414,21 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
   private static Status compileBuildConfiguration(final CompileContext context,
                                                   final JpsFlexBuildConfiguration bc,
-                                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+                                                  final JpsBuiltInFlexCompilerPool builtInCompilerPool) {
     setProgressMessage(context, bc);
 
     final String compilerName = FlexBuilderUtils.getCompilerName(bc);
+    final long start = System.currentTimeMillis();
+    final Status status = doCompileBuildConfiguration(context, bc, compilerName, builtInCompilerPool);
+    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, FlexCommonBundle
+      .message("compilation.time", StringUtil.formatDuration(System.currentTimeMillis() - start))));
+    return status;
+  }
 
+  private static Status doCompileBuildConfiguration(final CompileContext context,
+                                                    final JpsFlexBuildConfiguration bc,
+                                                    final String compilerName,
+                                                    final JpsBuiltInFlexCompilerPool builtInCompilerPool) {
     try {
       final List<File> configFiles = createConfigFiles(bc, context.getProjectDescriptor());
       final String outputFilePath = bc.getActualOutputFilePath();
@@ -298,7 +439,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
         return Status.Failed;
       }
 
-      return doCompile(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      return doCompile(context, bc, configFiles, compilerName, builtInCompilerPool);
     }
     catch (IOException e) {
       context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
@@ -333,25 +474,35 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     final ArrayList<File> configFiles = new ArrayList<>(2);
     configFiles.add(CompilerConfigGeneratorRt.getOrCreateConfigFile(bc, projectDescriptor));
 
-    final String additionalConfigFilePath = bc.getCompilerOptions().getAdditionalConfigFilePath();
-    if (!bc.isTempBCForCompilation() && !additionalConfigFilePath.isEmpty()) {
-      final File additionalConfigFile = new File(additionalConfigFilePath);
-      if (!additionalConfigFile.isFile()) {
-        throw new IOException(
-          FlexCommonBundle.message("additional.config.file.not.found.for.bc.0.of.module.1", additionalConfigFilePath, bc.getName(),
-                                   bc.getModule().getName()));
-      }
+    final File additionalConfigFile = getAdditionalConfigFile(bc);
+    if (additionalConfigFile != null) {
       configFiles.add(additionalConfigFile);
     }
 
     return configFiles;
   }
 
+  @Nullable
+  private static File getAdditionalConfigFile(final JpsFlexBuildConfiguration bc) throws IOException {
+    final String additionalConfigFilePath = bc.getCompilerOptions().getAdditionalConfigFilePath();
+    if (bc.isTempBCForCompilation() || additionalConfigFilePath.isEmpty()) {
+      return null;
+    }
+
+    final File additionalConfigFile = new File(additionalConfigFilePath);
+    if (!additionalConfigFile.isFile()) {
+      throw new IOException(
+        FlexCommonBundle.message("additional.config.file.not.found.for.bc.0.of.module.1", additionalConfigFilePath, bc.getName(),
+                                 bc.getModule().getName()));
+    }
+    return additionalConfigFile;
+  }
+
   private static Status doCompile(final CompileContext context,
                                   final JpsFlexBuildConfiguration bc,
                                   final List<File> configFiles,
                                   final String compilerName,
-                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+                                  final JpsBuiltInFlexCompilerPool builtInCompilerPool) {
     final boolean app = bc.getOutputType() != OutputType.Library;
     final JpsSdk<?> sdk = bc.getSdk();
     assert sdk != null;
@@ -360,12 +511,17 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                           FlexCommonUtils.containsASC20(sdk.getHomePath()) &&
                           (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
                            FlexCommonUtils.isAirSdkWithoutFlex(sdk));
-    final boolean builtIn = !asc20 &&
-                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
-                            builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+    if (!asc20 && JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER) {
+      final JpsBuiltInFlexCompilerHandler builtInCompilerHandler = builtInCompilerPool.acquire(sdk.getHomePath());
 
-    if (builtIn) {
-      return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      if (builtInCompilerHandler != null) {
+        try {
+          return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+        }
+        finally {
+          builtInCompilerPool.release(builtInCompilerHandler);
+        }
+      }
     }
 
     final List<String> compilerCommand = asc20 ? getASC20Command(bc.getModule().getProject(), sdk, app)
@@ -6,7 +6,6 @@ import com.intellij.flex.model.sdk.JpsFlexSdkType;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
-import gnu.trove.THashMap;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
@@ -20,6 +19,7 @@ import java.net.Socket;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JpsBuiltInFlexCompilerHandler {
 
@@ -36,7 +36,8 @@ public class JpsBuiltInFlexCompilerHandler {
   private DataOutputStream myDataOutputStream;
 
   private int commandNumber = 1;
-  private final Map<String, Listener> myActiveListeners = new THashMap<>();
+  // concurrent, so that compiler output is dispatched to listeners without holding the lock of this handler
+  private final Map<String, Listener> myActiveListeners = new ConcurrentHashMap<>();
 
   public interface Listener {
     void textAvailable(String text);
@@ -172,8 +173,10 @@ public class JpsBuiltInFlexCompilerHandler {
     });
   }
 
-  private synchronized void handleInputLine(final String line) {
-    LOG.debug("RECEIVED: [" + line + "]");
+  private void handleInputLine(final String line) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("RECEIVED: [" + line + "]");
+    }
 
     final int colonPos = line.indexOf(":");
     if (colonPos <= 0) {
@@ -182,19 +185,17 @@ public class JpsBuiltInFlexCompilerHandler {
     }
 
     final String prefix = line.substring(0, colonPos + 1);
-    final Listener listener = myActiveListeners.get(prefix);
+    final String text = line.substring(colonPos + 1);
+    // not synchronized: cancelAllCompilations() may remove the listener at any moment, only the one who removed it finishes it
+    final Listener listener = text.startsWith(COMPILATION_FINISHED) ? myActiveListeners.remove(prefix) : myActiveListeners.get(prefix);
     if (listener == null) {
       LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
     }
+    else if (text.startsWith(COMPILATION_FINISHED)) {
+      listener.compilationFinished();
+    }
     else {
-      final String text = line.substring(colonPos + 1);
-      if (text.startsWith(COMPILATION_FINISHED)) {
-        listener.compilationFinished();
-        myActiveListeners.remove(prefix);
-      }
-      else {
-        listener.textAvailable(text);
-      }
+      listener.textAvailable(text);
     }
   }
 
@@ -205,27 +206,32 @@ public class JpsBuiltInFlexCompilerHandler {
       return;
     }
 
+    final String prefix = (commandNumber++) + ":";
+    // registered before sending, because output is read on another thread that doesn't wait for this method to finish
+    myActiveListeners.put(prefix, listener);
+
     try {
-      final String prefix = (commandNumber++) + ":";
       final String commandToSend = prefix + command + "\n";
       LOG.debug("SENDING: [" + commandToSend + "]");
       myDataOutputStream.writeUTF(commandToSend);
-      myActiveListeners.put(prefix, listener);
     }
     catch (IOException e) {
+      myActiveListeners.remove(prefix);
       listener.textAvailable("Error: Can't start compilation: " + e.toString());
       listener.compilationFinished();
     }
   }
 
   private synchronized void cancelAllCompilations(final boolean reportError) {
-    for (final Listener listener : myActiveListeners.values()) {
+    for (final String prefix : myActiveListeners.keySet()) {
+      final Listener listener = myActiveListeners.remove(prefix);
+      if (listener == null) continue; // finished meanwhile
+
       if (reportError) {
         listener.textAvailable("Error: Compilation terminated");
       }
       listener.compilationFinished();
     }
-    myActiveListeners.clear();
   }
 
   public synchronized void stopCompilerProcess() {
@@ -0,0 +1,94 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.model.JpsProject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps up to {@link #getSize()} built-in compiler daemons, so that independent build configurations can be compiled simultaneously,
+ * each one in its own compiler process. Pool size is limited by {@link JpsFlexCompilerProjectExtension#MAX_PARALLEL_COMPILATIONS}
+ * and by {@link JpsFlexCompilerProjectExtension#BUILT_IN_COMPILERS_HEAP_BUDGET_MB} (if set) divided by the heap size of a single daemon.
+ * When all daemons are busy, compilations are multiplexed over the least loaded daemon started for the same SDK, like with a single
+ * shared daemon, so a small pool never makes a build wait.
+ */
+class JpsBuiltInFlexCompilerPool {
+
+  private final JpsProject myProject;
+  private final int mySize;
+
+  private final Map<JpsBuiltInFlexCompilerHandler, Integer> myUsages = new LinkedHashMap<>();
+
+  JpsBuiltInFlexCompilerPool(@NotNull final JpsProject project) {
+    myProject = project;
+    mySize = calcSize(JpsFlexCompilerProjectExtension.getInstance(project));
+  }
+
+  private static int calcSize(@NotNull final JpsFlexCompilerProjectExtension extension) {
+    int size = Math.max(1, extension.MAX_PARALLEL_COMPILATIONS);
+    if (extension.BUILT_IN_COMPILERS_HEAP_BUDGET_MB > 0 && extension.HEAP_SIZE_MB > 0) {
+      size = Math.min(size, Math.max(1, extension.BUILT_IN_COMPILERS_HEAP_BUDGET_MB / extension.HEAP_SIZE_MB));
+    }
+    return size;
+  }
+
+  public int getSize() {
+    return mySize;
+  }
+
+  /**
+   * Returns a compiler handler that is started for the given SDK or not started yet. An idle handler is preferred, then a new one
+   * (if the pool is not full), then the least loaded handler for this SDK that is shared with running compilations.
+   * Returns {@code null} if all handlers are bound to other SDKs; a separate compiler process should be used then.
+   * Handler must be returned to the pool using {@link #release(JpsBuiltInFlexCompilerHandler)}.
+   */
+  @Nullable
+  public synchronized JpsBuiltInFlexCompilerHandler acquire(@NotNull final String sdkHome) {
+    JpsBuiltInFlexCompilerHandler leastLoaded = null;
+    int leastUsages = Integer.MAX_VALUE;
+
+    for (Map.Entry<JpsBuiltInFlexCompilerHandler, Integer> entry : myUsages.entrySet()) {
+      if (entry.getKey().canBeUsedForSdk(sdkHome) && entry.getValue() < leastUsages) {
+        leastLoaded = entry.getKey();
+        leastUsages = entry.getValue();
+      }
+    }
+
+    if (leastLoaded == null || leastUsages > 0 && myUsages.size() < mySize) {
+      if (myUsages.size() >= mySize) {
+        return null;
+      }
+      leastLoaded = new JpsBuiltInFlexCompilerHandler(myProject);
+      leastUsages = 0;
+    }
+
+    myUsages.put(leastLoaded, leastUsages + 1);
+    return leastLoaded;
+  }
+
+  public synchronized void release(@NotNull final JpsBuiltInFlexCompilerHandler handler) {
+    final Integer usages = myUsages.get(handler);
+    if (usages == null) return; // compiler processes have been stopped meanwhile
+    assert usages > 0;
+    myUsages.put(handler, usages - 1);
+  }
+
+  public synchronized int getActiveCompilationsNumber() {
+    int result = 0;
+    for (JpsBuiltInFlexCompilerHandler handler : myUsages.keySet()) {
+      result += handler.getActiveCompilationsNumber();
+    }
+    return result;
+  }
+
+  public synchronized void stopCompilerProcesses() {
+    for (JpsBuiltInFlexCompilerHandler handler : myUsages.keySet()) {
+      handler.stopCompilerProcess();
+    }
+    myUsages.clear();
+  }
+}
@@ -17,8 +17,6 @@ import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
-
 /**
  * @author Maxim.Mossienko
  */
@@ -37,13 +35,14 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
   }
 
   static PsiFileStub buildFileStub(VirtualFile file, byte[] content) {
+    return SwfStubCache.getOrBuild(content, getVersion(), () -> doBuildFileStub(file, content));
+  }
+
+  private static PsiFileStub doBuildFileStub(VirtualFile file, byte[] content) {
     PsiFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
     try {
 
-      FlexImporter.buildStubsInterfaceFromStream(
-        new ByteArrayInputStream(content),
-        stub
-      );
+      FlexImporter.buildStubsInterfaceFromBytes(content, stub);
 
     } catch (Exception ex) {
       Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
@@ -54,6 +53,10 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
 
   @Override
   public int getStubVersion() {
+    return getVersion();
+  }
+
+  private static int getVersion() {
     return JSFileElementType.getVersion() + VERSION;
   }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.util.io.UnsyncByteArrayInputStream;
+import com.intellij.util.io.UnsyncByteArrayOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Application level cache of serialized stubs of SWF files keyed by the SWF content hash.
+ * The same SDK or library SWC is usually attached to many projects under different paths, the stubs
+ * for the identical library.swf are built once.
+ * <p>
+ * Recently used stubs are kept in memory, all of them are also stored next to the stub indices, so that they survive restarts
+ * and are dropped together with the indices (serialized stubs refer to serializer ids of the index storage).
+ */
+final class SwfStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfStubCache.class.getName());
+  private static final long MAX_TOTAL_SIZE = 64L * 1024 * 1024;
+  private static final long MAX_DISK_SIZE = 256L * 1024 * 1024;
+  private static final String EXTENSION = ".stub";
+
+  private static final Map<String, byte[]> ourStubs = new LinkedHashMap<>(16, 0.75f, true);
+  private static long ourTotalSize;
+
+  private SwfStubCache() {
+  }
+
+  @NotNull
+  static PsiFileStub getOrBuild(byte @NotNull [] content, int stubVersion, @NotNull Supplier<? extends PsiFileStub> builder) {
+    final String hash = computeHash(content);
+    if (hash == null) {
+      return builder.get();
+    }
+
+    final File file = new File(getCacheDir(stubVersion), hash + EXTENSION);
+    final PsiFileStub cached = getCached(hash, file);
+    if (cached != null) return cached;
+
+    final PsiFileStub stub = builder.get();
+    store(hash, file, stub);
+    return stub;
+  }
+
+  @Nullable
+  private static PsiFileStub getCached(@NotNull String hash, @NotNull File file) {
+    byte[] serialized;
+    synchronized (ourStubs) {
+      serialized = ourStubs.get(hash);
+    }
+    if (serialized == null && file.isFile()) {
+      try {
+        serialized = FileUtil.loadFileBytes(file);
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        putInMemory(hash, serialized);
+      }
+      catch (IOException e) {
+        LOG.info("Cannot read cached SWF stub " + file, e);
+      }
+    }
+    if (serialized == null) return null;
+
+    try {
+      final Stub stub = SerializationManagerEx.getInstanceEx().deserialize(new UnsyncByteArrayInputStream(serialized));
+      if (stub instanceof PsiFileStub) return (PsiFileStub)stub;
+    }
+    catch (Exception e) {
+      LOG.info("Cannot deserialize cached SWF stub", e);
+    }
+    synchronized (ourStubs) {
+      final byte[] removed = ourStubs.remove(hash);
+      if (removed != null) {
+        ourTotalSize -= removed.length;
+      }
+    }
+    FileUtil.delete(file);
+    return null;
+  }
+
+  private static void store(@NotNull String hash, @NotNull File file, @NotNull PsiFileStub stub) {
+    final UnsyncByteArrayOutputStream out = new UnsyncByteArrayOutputStream();
+    try {
+      SerializationManagerEx.getInstanceEx().serialize(stub, out);
+    }
+    catch (Exception e) {
+      LOG.info("Cannot serialize SWF stub", e);
+      return;
+    }
+    final byte[] serialized = out.toByteArray();
+    if (serialized.length > MAX_TOTAL_SIZE / 4) return;
+
+    putInMemory(hash, serialized);
+    storeOnDisk(file, serialized);
+  }
+
+  private static void putInMemory(@NotNull String hash, byte @NotNull [] serialized) {
+    synchronized (ourStubs) {
+      final byte[] previous = ourStubs.put(hash, serialized);
+      if (previous != null) ourTotalSize -= previous.length;
+      ourTotalSize += serialized.length;
+
+      final Iterator<byte[]> iterator = ourStubs.values().iterator();
+      while (ourTotalSize > MAX_TOTAL_SIZE && iterator.hasNext()) {
+        ourTotalSize -= iterator.next().length;
+        iterator.remove();
+      }
+    }
+  }
+
+  private static void storeOnDisk(@NotNull File file, byte @NotNull [] serialized) {
+    final File dir = file.getParentFile();
+    try {
+      // written under a temporary name first, so that a concurrent or interrupted write is never read as a complete stub
+      final File temp = FileUtil.createTempFile(dir, file.getName(), ".tmp", true, false);
+      FileUtil.writeToFile(temp, serialized);
+      if (!temp.renameTo(file)) {
+        FileUtil.delete(temp);
+        return;
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot store SWF stub " + file, e);
+      return;
+    }
+    trimDiskCache(dir);
+  }
+
+  private static synchronized void trimDiskCache(@NotNull File dir) {
+    final File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+    if (files == null) return;
+    long total = 0;
+    for (File file : files) {
+      total += file.length();
+    }
+    if (total <= MAX_DISK_SIZE) return;
+
+    // least recently used first, the modification time is updated on every read
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (File file : files) {
+      if (total <= MAX_DISK_SIZE) break;
+      total -= file.length();
+      FileUtil.delete(file);
+    }
+  }
+
+  @NotNull
+  private static File getCacheDir(int stubVersion) {
+    return new File(PathManager.getIndexRoot(), "flex-swf-stubs/" + stubVersion);
+  }
+
+  @Nullable
+  private static String computeHash(byte @NotNull [] content) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+      final StringBuilder result = new StringBuilder(digest.length * 2 + 10);
+      for (byte b : digest) {
+        result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return result.append('_').append(content.length).toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+}
@@ -2,6 +2,8 @@
 package com.intellij.javascript.flex.css;
 
 import com.intellij.javascript.flex.FlexAnnotationNames;
+import com.intellij.javascript.flex.css.FlexStyleMetadataScanner.StyleMetadata;
+import com.intellij.lang.javascript.ActionScriptFileType;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.index.JSPackageIndex;
@@ -15,6 +17,7 @@ import com.intellij.lang.javascript.psi.stubs.JSClassStub;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -27,15 +30,15 @@ import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.indexing.*;
 import com.intellij.util.io.*;
 import gnu.trove.THashMap;
+import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.LinkedHashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author Eugene.Kudelevsky
@@ -44,40 +47,60 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
 
   public static final ID<String, Set<FlexStyleIndexInfo>> INDEX_ID = ID.create("js.style.index");
 
-  private static final int VERSION = 18;
+  private static final int VERSION = 19;
 
+  /**
+   * Infos of one style property share most of their strings, so each distinct string is written once, and infos refer to them by number.
+   */
   private final DataExternalizer<Set<FlexStyleIndexInfo>> myDataExternalizer = new DataExternalizer<Set<FlexStyleIndexInfo>>() {
 
     @Override
     public void save(@NotNull DataOutput out, Set<FlexStyleIndexInfo> value) throws IOException {
+      final TObjectIntHashMap<String> stringIds = new TObjectIntHashMap<>();
+      final List<String> strings = new ArrayList<>();
+      for (FlexStyleIndexInfo info : value) {
+        for (String s : getStrings(info)) {
+          if (!StringUtil.isEmpty(s) && !stringIds.containsKey(s)) {
+            stringIds.put(s, strings.size() + 1);
+            strings.add(s);
+          }
+        }
+      }
+
+      DataInputOutputUtil.writeINT(out, strings.size());
+      for (String s : strings) {
+        IOUtil.writeUTF(out, s);
+      }
+
       DataInputOutputUtil.writeINT(out, value.size());
       for (FlexStyleIndexInfo info : value) {
-        writeUTF(out, info.getClassOrFileName());
-        writeUTF(out, info.getAttributeName());
-        writeUTF(out, info.getInherit());
-        writeUTF(out, info.getType());
-        writeUTF(out, info.getArrayType());
-        writeUTF(out, info.getFormat());
-        writeUTF(out, info.getEnumeration());
+        for (String s : getStrings(info)) {
+          DataInputOutputUtil.writeINT(out, StringUtil.isEmpty(s) ? 0 : stringIds.get(s));
+        }
         out.writeBoolean(info.isInClass());
       }
     }
 
     @Override
     public Set<FlexStyleIndexInfo> read(@NotNull DataInput in) throws IOException {
+      final String[] strings = new String[DataInputOutputUtil.readINT(in)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = IOUtil.readUTF(in);
+      }
+
       int size = DataInputOutputUtil.readINT(in);
       Set<FlexStyleIndexInfo> result = new LinkedHashSet<>();
       for (int i = 0; i < size; i++) {
-        String className = readUTF(in);
+        String className = readString(in, strings);
         assert className != null;
-        String attributeName = readUTF(in);
+        String attributeName = readString(in, strings);
         assert attributeName != null;
-        String inherit = readUTF(in);
+        String inherit = readString(in, strings);
         assert inherit != null;
-        String type = readUTF(in);
-        String arrayType = readUTF(in);
-        String format = readUTF(in);
-        String enumeration = readUTF(in);
+        String type = readString(in, strings);
+        String arrayType = readString(in, strings);
+        String format = readString(in, strings);
+        String enumeration = readString(in, strings);
         boolean inClass = in.readBoolean();
         result.add(new FlexStyleIndexInfo(className, attributeName, inherit, type, arrayType, format, enumeration, inClass));
       }
@@ -91,14 +114,15 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
     return INDEX_ID;
   }
 
-  @Nullable
-  private static String readUTF(@NotNull DataInput in) throws IOException {
-    String s = IOUtil.readUTF(in);
-    return s.length() == 0 ? null : s;
+  private static String[] getStrings(@NotNull FlexStyleIndexInfo info) {
+    return new String[]{info.getClassOrFileName(), info.getAttributeName(), info.getInherit(), info.getType(), info.getArrayType(),
+      info.getFormat(), info.getEnumeration()};
   }
 
-  private static void writeUTF(@NotNull DataOutput out, @Nullable String s) throws IOException {
-    IOUtil.writeUTF(out, s != null ? s : "");
+  @Nullable
+  private static String readString(@NotNull DataInput in, String @NotNull [] strings) throws IOException {
+    int id = DataInputOutputUtil.readINT(in);
+    return id == 0 ? null : strings[id - 1];
   }
 
   private static <TKey, TValue> void addElement(Map<TKey, Set<TValue>> map, TKey key, TValue value) {
@@ -136,6 +160,27 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
     }
   }
 
+  /**
+   * @return style metadata of the MXML file found using PSI or, if {@code withScanner} is set, by {@link FlexStyleMetadataScanner}
+   * ({@code null} if the scanner can't handle the file)
+   */
+  @TestOnly
+  @Nullable
+  public static Map<String, Set<FlexStyleIndexInfo>> indexMxmlFile(@NotNull XmlFile file, boolean withScanner) {
+    final VirtualFile virtualFile = file.getViewProvider().getVirtualFile();
+    final Map<String, Set<FlexStyleIndexInfo>> map = new THashMap<>();
+    if (withScanner) {
+      final List<StyleMetadata> metadata =
+        FlexStyleMetadataScanner.scanMxml(file.getViewProvider().getContents(), getQualifiedNameByMxmlFile(virtualFile, file.getProject()));
+      if (metadata == null) return null;
+      indexStyleMetadata(metadata, map);
+    }
+    else {
+      indexMxmlFile(file, virtualFile, map);
+    }
+    return map;
+  }
+
   @Nullable
   private static XmlTag getRootTag(XmlFile file) {
     XmlDocument document = file.getDocument();
@@ -154,13 +199,34 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
       public Map<String, Set<FlexStyleIndexInfo>> map(@NotNull FileContent inputData) {
         final THashMap<String, Set<FlexStyleIndexInfo>> map = new THashMap<>();
         if (JavaScriptSupportLoader.isFlexMxmFile(inputData.getFileName())) {
-          PsiFile file = inputData.getPsiFile();
+          final CharSequence text = inputData.getContentAsText();
+          if (!FlexStyleMetadataScanner.mayContainStyleMetadata(text)) return map;
+
           VirtualFile virtualFile = inputData.getFile();
+          final List<StyleMetadata> metadata =
+            FlexStyleMetadataScanner.scanMxml(text, getQualifiedNameByMxmlFile(virtualFile, inputData.getProject()));
+          if (metadata != null) {
+            indexStyleMetadata(metadata, map);
+            return map;
+          }
+
+          PsiFile file = inputData.getPsiFile();
           if (file instanceof XmlFile) {
             indexMxmlFile((XmlFile)file, virtualFile, map);
           }
         }
         else {
+          if (inputData.getFileType() == ActionScriptFileType.INSTANCE) {
+            final CharSequence text = inputData.getContentAsText();
+            if (!FlexStyleMetadataScanner.mayContainStyleMetadata(text)) return map;
+
+            final List<StyleMetadata> metadata = FlexStyleMetadataScanner.scanActionScript(text, inputData.getFileName());
+            if (metadata != null) {
+              indexStyleMetadata(metadata, map);
+              return map;
+            }
+          }
+
           StubTree tree = JSPackageIndex.getStubTree(inputData);
           if (tree != null) {
             for (StubElement e : tree.getPlainList()) {
@@ -186,6 +252,26 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
     };
   }
 
+  private static void indexStyleMetadata(@NotNull List<StyleMetadata> metadata, @NotNull Map<String, Set<FlexStyleIndexInfo>> map) {
+    for (StyleMetadata styleMetadata : metadata) {
+      String propertyName = styleMetadata.attributes.get("name");
+      if (propertyName != null) {
+        addInfo(map, propertyName,
+                FlexStyleIndexInfo.create(styleMetadata.ownerName, propertyName, styleMetadata.attributes, styleMetadata.inClass));
+      }
+    }
+  }
+
+  private static void addInfo(@NotNull Map<String, Set<FlexStyleIndexInfo>> map,
+                              @NotNull String propertyName,
+                              @NotNull FlexStyleIndexInfo info) {
+    addElement(map, propertyName, info);
+    String classicPropertyName = FlexCssUtil.toClassicForm(propertyName);
+    if (!propertyName.equals(classicPropertyName)) {
+      addElement(map, classicPropertyName, info);
+    }
+  }
+
   private static void indexAttributes(PsiElement element, final String classQName, final boolean inClass, final Map<String, Set<FlexStyleIndexInfo>> map) {
     ActionScriptResolveUtil.processMetaAttributesForClass(element, new ActionScriptResolveUtil.MetaDataProcessor() {
       @Override
@@ -198,11 +284,7 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
             if (classQName != null) {
               FlexStyleIndexInfo info = FlexStyleIndexInfo.create(classQName, propertyName, jsAttribute, inClass);
               if (info != null) {
-                addElement(map, propertyName, info);
-                String classicPropertyName = FlexCssUtil.toClassicForm(propertyName);
-                if (!propertyName.equals(classicPropertyName)) {
-                  addElement(map, classicPropertyName, info);
-                }
+                addInfo(map, propertyName, info);
               }
             }
           }
@@ -6,6 +6,8 @@ import com.intellij.lang.javascript.psi.ecmal4.JSAttributeNameValuePair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 /**
  * @author Eugene.Kudelevsky
  */
@@ -29,11 +31,12 @@ public class FlexStyleIndexInfo {
                             boolean inClass) {
     myClassOrFileName = classOrFileName;
     myAttributeName = attributeName;
-    myInherit = inherit;
-    myType = type;
-    myArrayType = arrayType;
-    myFormat = format;
-    myEnumeration = enumeration;
+    // values of these fields come from a small vocabulary and are repeated in thousands of infos
+    myInherit = inherit.intern();
+    myType = type != null ? type.intern() : null;
+    myArrayType = arrayType != null ? arrayType.intern() : null;
+    myFormat = format != null ? format.intern() : null;
+    myEnumeration = enumeration != null ? enumeration.intern() : null;
     myInClass = inClass;
   }
 
@@ -73,6 +76,23 @@ public class FlexStyleIndexInfo {
     return new FlexStyleIndexInfo(className, name, inherit, type, arrayType, format, enumeration, inClass);
   }
 
+  /**
+   * @param attributeValues values of [Style] metadata attributes by their names, as collected by {@link FlexStyleMetadataScanner}
+   */
+  @NotNull
+  public static FlexStyleIndexInfo create(@NotNull String className,
+                                          @NotNull String name,
+                                          @NotNull Map<String, String> attributeValues,
+                                          boolean inClass) {
+    String inherit = attributeValues.get("inherit");
+    if (inherit == null) inherit = "no";
+    String type = attributeValues.get("type");
+    String arrayType = JSCommonTypeNames.ARRAY_CLASS_NAME.equals(type) ? attributeValues.get("arrayType") : null;
+    String format = attributeValues.get("format");
+    String enumeration = attributeValues.get("enumeration");
+    return new FlexStyleIndexInfo(className, name, inherit, type, arrayType, format, enumeration, inClass);
+  }
+
   public String getEnumeration() {
     return myEnumeration;
   }
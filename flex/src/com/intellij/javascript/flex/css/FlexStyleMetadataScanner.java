@@ -0,0 +1,551 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.css;
+
+import com.intellij.javascript.flex.FlexAnnotationNames;
+import com.intellij.javascript.flex.mxml.MxmlJSClass;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts [Style] metadata from ActionScript and MXML text without building PSI. Only comments, string and regexp literals, braces,
+ * metadata and a few keywords matter here, so the text is tokenized by a small hand-written lexer.
+ * If the lexer meets a construct it is not sure about, {@code null} is returned and the caller should fall back to PSI.
+ */
+public final class FlexStyleMetadataScanner {
+
+  public static final class StyleMetadata {
+    @NotNull public final String ownerName;
+    public final boolean inClass;
+    @NotNull public final Map<String, String> attributes;
+
+    private StyleMetadata(@NotNull String ownerName, boolean inClass, @NotNull Map<String, String> attributes) {
+      this.ownerName = ownerName;
+      this.inClass = inClass;
+      this.attributes = attributes;
+    }
+  }
+
+  private static final Set<String> CLASS_MODIFIERS = ContainerUtil.set("public", "internal", "final", "dynamic");
+  private static final Set<String> KEYWORDS_BEFORE_EXPRESSION =
+    ContainerUtil.set("return", "typeof", "case", "throw", "in", "delete", "void", "instanceof");
+  private static final String REGEXP_PRECEDING_CHARS = "(,=:[!&|?{};+-*%<>~^";
+  private static final String MXML_METADATA_TAG = "Metadata";
+  private static final String CDATA_START = "<![CDATA[";
+  private static final String CDATA_END = "]]>";
+
+  private final CharSequence myText;
+  private final int myEnd;
+  private int myPos;
+  private char myLastSignificantChar = ';';
+
+  private FlexStyleMetadataScanner(@NotNull CharSequence text) {
+    myText = text;
+    myEnd = text.length();
+  }
+
+  /**
+   * Cheap check that allows skipping most of the files without tokenizing them.
+   */
+  public static boolean mayContainStyleMetadata(@NotNull CharSequence text) {
+    return StringUtil.contains(text, FlexAnnotationNames.STYLE);
+  }
+
+  /**
+   * Metadata that precede a class declaration belong to the class, metadata outside of package and class declarations
+   * (like in files included into classes) belong to the file.
+   *
+   * @return found metadata or {@code null} if the text can't be handled without PSI
+   */
+  @Nullable
+  public static List<StyleMetadata> scanActionScript(@NotNull CharSequence text, @NotNull String fileName) {
+    final List<StyleMetadata> result = new ArrayList<>();
+    return new FlexStyleMetadataScanner(text).scanActionScript(fileName, false, result) ? result : null;
+  }
+
+  /**
+   * Collects metadata from &lt;fx:Metadata&gt; (or &lt;mx:Metadata&gt;) tags; they all belong to the class defined by the MXML file.
+   * Like {@link com.intellij.lang.javascript.flex.FlexUtils#processMxmlTags}, only direct subtags of the root tag
+   * in the MXML language namespace are taken into account.
+   *
+   * @return found metadata or {@code null} if the text can't be handled without PSI
+   */
+  @Nullable
+  public static List<StyleMetadata> scanMxml(@NotNull CharSequence text, @NotNull String classQName) {
+    final List<StyleMetadata> result = new ArrayList<>();
+    Set<String> mxmlPrefixes = null; // prefixes bound to the MXML language namespace, known after the root tag is read
+    int depth = 0;
+    int pos = 0;
+    int regionStart = 0; // start of the text that is not inside of any Metadata tag
+
+    while (true) {
+      pos = StringUtil.indexOf(text, '<', pos);
+      if (pos < 0) break;
+
+      if (StringUtil.startsWith(text, pos, "<!--")) {
+        pos = StringUtil.indexOf(text, "-->", pos);
+        if (pos < 0) return null;
+        continue;
+      }
+
+      if (StringUtil.startsWith(text, pos, CDATA_START)) {
+        pos = StringUtil.indexOf(text, CDATA_END, pos);
+        if (pos < 0) return null;
+        continue;
+      }
+
+      if (StringUtil.startsWith(text, pos, "<?") || StringUtil.startsWith(text, pos, "<!")) { // prolog, DOCTYPE
+        if (mxmlPrefixes != null) return null;
+        pos = StringUtil.indexOf(text, '>', pos);
+        if (pos < 0) return null;
+        continue;
+      }
+
+      if (StringUtil.startsWith(text, pos, "</")) {
+        if (--depth < 0) return null;
+        pos += 2;
+        continue;
+      }
+
+      final int nameStart = pos + 1;
+      int nameEnd = nameStart;
+      while (nameEnd < text.length() && isXmlNameChar(text.charAt(nameEnd))) nameEnd++;
+      if (nameEnd == nameStart) return null;
+      final String tagName = text.subSequence(nameStart, nameEnd).toString();
+
+      final int startTagEnd = findStartTagEnd(text, nameEnd);
+      if (startTagEnd < 0) return null;
+      final boolean emptyTag = text.charAt(startTagEnd - 1) == '/';
+      pos = startTagEnd + 1;
+
+      if (mxmlPrefixes == null) {
+        if (depth != 0) return null;
+        mxmlPrefixes = getMxmlLanguagePrefixes(text, nameEnd, startTagEnd);
+        // namespaces declared on subtags may rebind the prefixes
+        if (mxmlPrefixes == null || StringUtil.indexOf(text, "xmlns", pos) >= 0) return null;
+      }
+      else if (depth == 1 && !emptyTag && isMxmlMetadataTag(tagName, mxmlPrefixes)) {
+        final String closingTag = "</" + tagName;
+        final int contentEnd = StringUtil.indexOf(text, closingTag, pos);
+        if (contentEnd < 0) return null;
+
+        if (containsStyleMetadataStart(text, regionStart, nameStart)) return null;
+
+        final CharSequence content = getMxmlMetadataContent(text, pos, contentEnd);
+        if (content == null || !new FlexStyleMetadataScanner(content).scanActionScript(classQName, true, result)) return null;
+
+        pos = StringUtil.indexOf(text, '>', contentEnd + closingTag.length());
+        if (pos < 0) return null;
+        regionStart = ++pos;
+        continue;
+      }
+
+      if (!emptyTag) depth++;
+    }
+
+    // [Style] metadata anywhere else (e.g. in <fx:Script> or in nested Metadata tags) are left for PSI-based indexing
+    return mxmlPrefixes == null || containsStyleMetadataStart(text, regionStart, text.length()) ? null : result;
+  }
+
+  private boolean scanActionScript(@NotNull String fileLevelOwner, boolean fileLevelInClass, @NotNull List<StyleMetadata> result) {
+    final List<Map<String, String>> pending = new ArrayList<>();
+    String packageName = null;
+    int packageDepth = -1;
+    boolean expectPackageBody = false;
+    int depth = 0;
+
+    while (true) {
+      if (!skipWhitespaceAndComments()) return false;
+      if (myPos >= myEnd) break;
+
+      final char c = myText.charAt(myPos);
+      final int topLevelDepth = packageName != null && !expectPackageBody ? packageDepth + 1 : 0;
+
+      if (c == '[' && depth == topLevelDepth) {
+        final int start = myPos;
+        final ParsedMetadata metadata = readMetadata();
+        if (metadata == null) return false;
+        if (metadata != ParsedMetadata.NOT_METADATA) {
+          if (metadata.attributes != null) pending.add(metadata.attributes);
+          continue;
+        }
+        myPos = start;
+      }
+
+      if (Character.isJavaIdentifierStart(c)) {
+        final String word = readIdentifier();
+        if (depth != topLevelDepth) {
+          myLastSignificantChar = KEYWORDS_BEFORE_EXPRESSION.contains(word) ? ';' : 'a';
+          continue;
+        }
+
+        if (CLASS_MODIFIERS.contains(word)) continue;
+
+        if ("class".equals(word) || "interface".equals(word)) {
+          if (!skipWhitespaceAndComments()) return false;
+          final String className = readIdentifier();
+          if (className.isEmpty()) return false;
+          final String qName = StringUtil.isEmpty(packageName) ? className : packageName + "." + className;
+          for (Map<String, String> attributes : pending) {
+            result.add(new StyleMetadata(qName, true, attributes));
+          }
+          pending.clear();
+          continue;
+        }
+
+        flushPending(pending, depth == 0 && packageName == null, fileLevelOwner, fileLevelInClass, result);
+
+        if ("package".equals(word) && depth == 0 && packageName == null) {
+          if (!skipWhitespaceAndComments()) return false;
+          packageName = readQualifiedName();
+          packageDepth = depth;
+          expectPackageBody = true;
+        }
+        myLastSignificantChar = KEYWORDS_BEFORE_EXPRESSION.contains(word) ? ';' : 'a';
+        continue;
+      }
+
+      flushPending(pending, depth == 0 && packageName == null, fileLevelOwner, fileLevelInClass, result);
+
+      if (c == '"' || c == '\'') {
+        if (!skipString(c)) return false;
+      }
+      else if (c == '/' && REGEXP_PRECEDING_CHARS.indexOf(myLastSignificantChar) >= 0) {
+        if (!skipRegExp()) return false;
+      }
+      else {
+        if (c == '{') {
+          depth++;
+          expectPackageBody = false;
+        }
+        else if (c == '}') {
+          if (--depth < 0) return false;
+          if (packageName != null && depth == packageDepth) {
+            packageName = null;
+          }
+        }
+        myLastSignificantChar = c;
+        myPos++;
+      }
+    }
+
+    if (depth != 0) return false;
+    flushPending(pending, packageName == null, fileLevelOwner, fileLevelInClass, result);
+    return true;
+  }
+
+  private static void flushPending(@NotNull List<Map<String, String>> pending,
+                                   boolean fileLevel,
+                                   @NotNull String fileLevelOwner,
+                                   boolean fileLevelInClass,
+                                   @NotNull List<StyleMetadata> result) {
+    if (pending.isEmpty()) return;
+    // metadata that precede anything but a class declaration belong to that thing, unless they are at file level
+    if (fileLevel) {
+      for (Map<String, String> attributes : pending) {
+        result.add(new StyleMetadata(fileLevelOwner, fileLevelInClass, attributes));
+      }
+    }
+    pending.clear();
+  }
+
+  private static final class ParsedMetadata {
+    private static final ParsedMetadata NOT_METADATA = new ParsedMetadata(null);
+
+    @Nullable private final Map<String, String> attributes;
+
+    private ParsedMetadata(@Nullable Map<String, String> attributes) {
+      this.attributes = attributes;
+    }
+  }
+
+  /**
+   * @return {@link ParsedMetadata#NOT_METADATA} if there's no metadata at current position, {@code null} if metadata is malformed,
+   * otherwise metadata with not-null attributes if it is [Style] metadata
+   */
+  @Nullable
+  private ParsedMetadata readMetadata() {
+    myPos++; // [
+    if (!skipWhitespaceAndComments()) return null;
+    final String name = readIdentifier();
+    if (name.isEmpty() || !skipWhitespaceAndComments() || myPos >= myEnd) return ParsedMetadata.NOT_METADATA;
+
+    final char c = myText.charAt(myPos);
+    if (c != '(' && c != ']') return ParsedMetadata.NOT_METADATA;
+
+    Map<String, String> attributes = new THashMap<>();
+    if (c == '(') {
+      myPos++;
+      attributes = readMetadataAttributes();
+      if (attributes == null || !skipWhitespaceAndComments() || myPos >= myEnd || myText.charAt(myPos) != ']') return null;
+    }
+    myPos++; // ]
+    myLastSignificantChar = ']';
+    return new ParsedMetadata(FlexAnnotationNames.STYLE.equals(name) ? attributes : null);
+  }
+
+  @Nullable
+  private Map<String, String> readMetadataAttributes() {
+    final Map<String, String> result = new THashMap<>();
+    while (true) {
+      if (!skipWhitespaceAndComments() || myPos >= myEnd) return null;
+      if (myText.charAt(myPos) == ')') {
+        myPos++;
+        return result;
+      }
+
+      final int start = myPos;
+      String key = readIdentifier();
+      if (!key.isEmpty() && skipWhitespaceAndComments() && myPos < myEnd && myText.charAt(myPos) == '=') {
+        myPos++;
+        if (!skipWhitespaceAndComments()) return null;
+      }
+      else {
+        key = null;
+        myPos = start;
+      }
+
+      final String value = readMetadataValue();
+      if (value == null) return null;
+      if (key != null) result.put(key, value);
+
+      if (!skipWhitespaceAndComments() || myPos >= myEnd) return null;
+      final char c = myText.charAt(myPos);
+      if (c == ',') {
+        myPos++;
+      }
+      else if (c != ')') {
+        return null;
+      }
+    }
+  }
+
+  @Nullable
+  private String readMetadataValue() {
+    if (myPos >= myEnd) return null;
+    final char c = myText.charAt(myPos);
+    if (c == '"' || c == '\'') {
+      final int start = myPos + 1;
+      if (!skipString(c)) return null;
+      return myText.subSequence(start, myPos - 1).toString();
+    }
+
+    final int start = myPos;
+    while (myPos < myEnd) {
+      final char ch = myText.charAt(myPos);
+      if (ch == ',' || ch == ')' || Character.isWhitespace(ch)) break;
+      myPos++;
+    }
+    return myPos > start ? myText.subSequence(start, myPos).toString() : null;
+  }
+
+  @NotNull
+  private String readIdentifier() {
+    final int start = myPos;
+    if (myPos < myEnd && Character.isJavaIdentifierStart(myText.charAt(myPos))) {
+      myPos++;
+      while (myPos < myEnd && Character.isJavaIdentifierPart(myText.charAt(myPos))) myPos++;
+    }
+    return myText.subSequence(start, myPos).toString();
+  }
+
+  @NotNull
+  private String readQualifiedName() {
+    final StringBuilder builder = new StringBuilder();
+    while (true) {
+      final String part = readIdentifier();
+      if (part.isEmpty()) break;
+      builder.append(part);
+      if (myPos >= myEnd || myText.charAt(myPos) != '.') break;
+      builder.append('.');
+      myPos++;
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return {@code false} if there's an unterminated block comment
+   */
+  private boolean skipWhitespaceAndComments() {
+    while (myPos < myEnd) {
+      final char c = myText.charAt(myPos);
+      if (Character.isWhitespace(c)) {
+        myPos++;
+      }
+      else if (c == '/' && myPos + 1 < myEnd && myText.charAt(myPos + 1) == '/') {
+        while (myPos < myEnd && myText.charAt(myPos) != '\n' && myText.charAt(myPos) != '\r') myPos++;
+      }
+      else if (c == '/' && myPos + 1 < myEnd && myText.charAt(myPos + 1) == '*') {
+        final int end = StringUtil.indexOf(myText, "*/", myPos + 2);
+        if (end < 0) return false;
+        myPos = end + 2;
+      }
+      else {
+        break;
+      }
+    }
+    return true;
+  }
+
+  private boolean skipString(char quote) {
+    myPos++;
+    while (myPos < myEnd) {
+      final char c = myText.charAt(myPos++);
+      if (c == '\\') {
+        myPos++;
+      }
+      else if (c == quote) {
+        myLastSignificantChar = quote;
+        return true;
+      }
+      else if (c == '\n' || c == '\r') {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private boolean skipRegExp() {
+    myPos++;
+    boolean inCharClass = false;
+    while (myPos < myEnd) {
+      final char c = myText.charAt(myPos++);
+      if (c == '\\') {
+        myPos++;
+      }
+      else if (c == '[') {
+        inCharClass = true;
+      }
+      else if (c == ']') {
+        inCharClass = false;
+      }
+      else if (c == '/' && !inCharClass) {
+        while (myPos < myEnd && Character.isJavaIdentifierPart(myText.charAt(myPos))) myPos++; // flags
+        myLastSignificantChar = '/';
+        return true;
+      }
+      else if (c == '\n' || c == '\r') {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isXmlNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == ':' || c == '_' || c == '-' || c == '.';
+  }
+
+  private static boolean isMxmlMetadataTag(@NotNull String tagName, @NotNull Set<String> mxmlPrefixes) {
+    final int colon = tagName.indexOf(':');
+    final String prefix = colon < 0 ? "" : tagName.substring(0, colon);
+    return MXML_METADATA_TAG.equals(tagName.substring(colon + 1)) && mxmlPrefixes.contains(prefix);
+  }
+
+  /**
+   * @return prefixes bound by the root tag to the first of {@link MxmlJSClass#MXML_URIS} it declares (empty string for the default
+   * namespace), or {@code null} if there's no such namespace or attributes can't be parsed
+   */
+  @Nullable
+  private static Set<String> getMxmlLanguagePrefixes(@NotNull CharSequence text, int start, int end) {
+    final Map<String, Set<String>> prefixesByNamespace = new THashMap<>();
+    int pos = start;
+    while (true) {
+      while (pos < end && Character.isWhitespace(text.charAt(pos))) pos++;
+      if (pos >= end || text.charAt(pos) == '/') break;
+
+      final int nameStart = pos;
+      while (pos < end && isXmlNameChar(text.charAt(pos))) pos++;
+      final String name = text.subSequence(nameStart, pos).toString();
+      while (pos < end && Character.isWhitespace(text.charAt(pos))) pos++;
+      if (name.isEmpty() || pos >= end || text.charAt(pos) != '=') return null;
+      pos++;
+      while (pos < end && Character.isWhitespace(text.charAt(pos))) pos++;
+      if (pos >= end) return null;
+
+      final char quote = text.charAt(pos);
+      if (quote != '"' && quote != '\'') return null;
+      final int valueEnd = indexOf(text, String.valueOf(quote), pos + 1, end);
+      if (valueEnd < 0) return null;
+      final String value = text.subSequence(pos + 1, valueEnd).toString();
+      pos = valueEnd + 1;
+
+      if ("xmlns".equals(name) || name.startsWith("xmlns:")) {
+        prefixesByNamespace.computeIfAbsent(value, k -> new THashSet<>()).add(name.length() == 5 ? "" : name.substring(6));
+      }
+    }
+
+    for (String namespace : MxmlJSClass.MXML_URIS) {
+      final Set<String> prefixes = prefixesByNamespace.get(namespace);
+      if (prefixes != null) return prefixes;
+    }
+    return null;
+  }
+
+  private static int findStartTagEnd(@NotNull CharSequence text, int pos) {
+    char quote = 0;
+    for (int i = pos; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == quote) quote = 0;
+      }
+      else if (c == '"' || c == '\'') {
+        quote = c;
+      }
+      else if (c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return text of the tag with CDATA markers removed, or {@code null} if it has entity references or markup
+   */
+  @Nullable
+  private static CharSequence getMxmlMetadataContent(@NotNull CharSequence text, int start, int end) {
+    final StringBuilder builder = new StringBuilder(end - start);
+    int pos = start;
+    while (pos < end) {
+      final int cdataStart = indexOf(text, CDATA_START, pos, end);
+      final int plainEnd = cdataStart < 0 ? end : cdataStart;
+      for (int i = pos; i < plainEnd; i++) {
+        final char c = text.charAt(i);
+        if (c == '&' || c == '<') return null;
+        builder.append(c);
+      }
+      if (cdataStart < 0) break;
+
+      final int cdataEnd = indexOf(text, CDATA_END, cdataStart + CDATA_START.length(), end);
+      if (cdataEnd < 0) return null;
+      builder.append(text, cdataStart + CDATA_START.length(), cdataEnd);
+      pos = cdataEnd + CDATA_END.length();
+    }
+    return builder;
+  }
+
+  private static int indexOf(@NotNull CharSequence text, @NotNull String infix, int start, int end) {
+    final int index = StringUtil.indexOf(text, infix, start);
+    return index >= 0 && index + infix.length() <= end ? index : -1;
+  }
+
+  private static boolean containsStyleMetadataStart(@NotNull CharSequence text, int start, int end) {
+    int pos = start;
+    while (true) {
+      pos = indexOf(text, FlexAnnotationNames.STYLE, pos, end);
+      if (pos < 0) return false;
+
+      int i = pos - 1;
+      while (i >= start && Character.isWhitespace(text.charAt(i))) i--;
+      if (i >= start && text.charAt(i) == '[') return true;
+      pos += FlexAnnotationNames.STYLE.length();
+    }
+  }
+}
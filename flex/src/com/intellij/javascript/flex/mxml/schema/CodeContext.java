@@ -143,14 +143,15 @@ public class CodeContext {
     final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
     if (bc == null) return CodeContextHolder.EMPTY;
 
-    CodeContext codeContext;
+    if (isStdNamespace(namespace)) {
+      return getStdCodeContext(namespace, module, bc);
+    }
 
-    synchronized (CodeContext.class) {
-      if (isStdNamespace(namespace)) {
-        return getStdCodeContext(namespace, module, bc);
-      }
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    CodeContext codeContext = contextHolder.getCodeContext(namespace, module);
+    if (codeContext != null) return codeContext;
 
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    synchronized (CodeContext.class) {
       codeContext = contextHolder.getCodeContext(namespace, module);
 
       if (codeContext == null) {
@@ -210,45 +211,57 @@ public class CodeContext {
     return codeContext;
   }
 
-  private static void handleSwcFromSdk(final Module module, @NotNull final FlexBuildConfiguration bc) {
+  private static void handleSwcFromSdk(final NamespacesCollector collector, @NotNull final FlexBuildConfiguration bc) {
     final Sdk sdk = bc.getSdk();
     if (sdk == null) return;
 
-    final Map<String, CodeContext> contextsOfModule = new THashMap<>();
     for (final VirtualFile file : sdk.getRootProvider().getFiles(OrderRootType.CLASSES)) {
       final String swcPath = VirtualFileManager.extractPath(StringUtil.trimEnd(file.getUrl(), JarFileSystem.JAR_SEPARATOR));
       if (BCUtils.getSdkEntryLinkageType(swcPath, bc) != null) {
-        handleFileDependency(module, contextsOfModule, file);
+        handleFileDependency(collector, file);
       }
     }
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    for (final Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
-      contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
-    }
   }
 
   private static CodeContext createCodeContextFromLibraries(final String namespace,
                                                             final Module module,
                                                             final FlexBuildConfiguration bc) {
-    final Map<String, CodeContext> contextsOfModule = new THashMap<>();
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    final CodeContextHolder.ModuleContexts moduleContexts = contextHolder.getModuleContexts(module);
+    final long modificationCount = VirtualFileManager.getInstance().getModificationCount();
+
+    if (moduleContexts.librariesModificationCount == modificationCount) {
+      // all namespaces provided by libraries have been already collected, and nothing has changed since then
+      return CodeContextHolder.EMPTY;
+    }
+
+    // collect only namespaces that are not known yet, contexts of other namespaces are up to date
+    final NamespacesCollector collector = new NamespacesCollector(module, null, moduleContexts.contexts.keySet());
+    handleLibraries(collector, bc);
+    contextHolder.putLibraryContexts(module, collector.contexts, modificationCount);
+
+    final CodeContext codeContext = collector.contexts.get(namespace);
+    return codeContext != null ? codeContext : CodeContextHolder.EMPTY;
+  }
+
+  private static void handleLibraries(final NamespacesCollector collector, final FlexBuildConfiguration bc) {
+    final Module module = collector.module;
     final ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
 
-    // TODO: this code should not be invoked per ns!
-    // If fixed - then method usage at getStdCodeContext() must be changed to make sure that all namespaces handled at that point.
     for (DependencyEntry entry : bc.getDependencies().getEntries()) {
       if (entry.getDependencyType().getLinkageType() == LinkageType.LoadInRuntime) continue;
 
       if (entry instanceof BuildConfigurationEntry) {
         final FlexBuildConfiguration bcDependency = ((BuildConfigurationEntry)entry).findBuildConfiguration();
         if (bcDependency != null && bcDependency.getOutputType() == OutputType.Library) {
-          addComponentsFromManifests(module, contextsOfModule, bcDependency, true);
+          addComponentsFromManifests(collector, bcDependency, true);
         }
       }
       else if (entry instanceof ModuleLibraryEntry) {
         final LibraryOrderEntry orderEntry = FlexProjectRootsUtil.findOrderEntry((ModuleLibraryEntry)entry, rootManager);
         if (orderEntry != null) {
           for (VirtualFile file : orderEntry.getRootFiles(OrderRootType.CLASSES)) {
-            handleFileDependency(module, contextsOfModule, file);
+            handleFileDependency(collector, file);
           }
         }
       }
@@ -256,28 +269,18 @@ public class CodeContext {
         final Library library = FlexProjectRootsUtil.findOrderEntry(module.getProject(), (SharedLibraryEntry)entry);
         if (library != null) {
           for (VirtualFile file : library.getFiles(OrderRootType.CLASSES)) {
-            handleFileDependency(module, contextsOfModule, file);
+            handleFileDependency(collector, file);
           }
         }
       }
     }
 
-    addComponentsFromManifests(module, contextsOfModule, bc, false);
-
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    for (Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
-      contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
-    }
-
-    CodeContext codeContext = contextsOfModule.get(namespace);
-    if (codeContext == null) {
-      codeContext = CodeContextHolder.EMPTY;
-    }
-    return codeContext;
+    addComponentsFromManifests(collector, bc, false);
   }
 
-  private static void addComponentsFromManifests(final Module module, final Map<String, CodeContext> contextsOfModule,
-                                                 final FlexBuildConfiguration bc, boolean onlyIncludedInSwc) {
+  private static void addComponentsFromManifests(final NamespacesCollector collector,
+                                                 final FlexBuildConfiguration bc,
+                                                 boolean onlyIncludedInSwc) {
     final String configFilePath = bc.getCompilerOptions().getAdditionalConfigFilePath();
     final VirtualFile configFile = StringUtil.isEmptyOrSpaces(configFilePath)
                                    ? null
@@ -288,21 +291,21 @@ public class CodeContext {
 
       final VirtualFile manifestFile = VfsUtilCore.findRelativeFile(info.manifest, configFile);
       if (manifestFile != null && !manifestFile.isDirectory()) {
-        processManifestFile(module, contextsOfModule, manifestFile, info.namespace, configFile);
+        processManifestFile(collector, manifestFile, info.namespace, configFile);
       }
     }
 
-    FlexUtils.processCompilerOption(module, bc, "compiler.namespaces.namespace", namespaceAndManifest -> {
+    FlexUtils.processCompilerOption(collector.module, bc, "compiler.namespaces.namespace", namespaceAndManifest -> {
       // namespaces configured in IDEA are always included in SWC
       final VirtualFile manifestFile = VfsUtilCore.findRelativeFile(namespaceAndManifest.second, configFile);
       if (manifestFile != null && !manifestFile.isDirectory()) {
-        processManifestFile(module, contextsOfModule, manifestFile, namespaceAndManifest.first, configFile);
+        processManifestFile(collector, manifestFile, namespaceAndManifest.first, configFile);
       }
       return true;
     });
   }
 
-  private static void handleFileDependency(Module module, Map<String, CodeContext> contextsOfModule, VirtualFile file) {
+  private static void handleFileDependency(NamespacesCollector collector, VirtualFile file) {
     if (FileTypeRegistry.getInstance().isFileOfType(file, ArchiveFileType.INSTANCE) &&
         ("swc".equalsIgnoreCase(file.getExtension()) ||
          "ane".equalsIgnoreCase(file.getExtension()) ||
@@ -313,53 +316,32 @@ public class CodeContext {
       final VirtualFile catalog = jarRoot.findChild("catalog.xml");
       if (catalog == null) return;
 
-      processCatalogFile(module, contextsOfModule, catalog);
+      processCatalogFile(collector, catalog);
     }
   }
 
-  private static void processCatalogFile(final Module module,
-                                         final Map<String, CodeContext> contextsOfModule,
-                                         final VirtualFile catalogFile) {
+  private static void processCatalogFile(final NamespacesCollector collector, final VirtualFile catalogFile) {
     SwcCatalogXmlUtil.processComponentsFromCatalogXml(catalogFile, componentFromCatalogXml -> {
-      CodeContext codeContext = identifyCodeContext(module, contextsOfModule, componentFromCatalogXml.myUri);
+      CodeContext codeContext = collector.identifyCodeContext(componentFromCatalogXml.myUri);
+      if (codeContext == null) return;
       codeContext.addDependency(catalogFile);
       codeContext.putDescriptor(componentFromCatalogXml.myName,
                                 new ClassBackedElementDescriptor(componentFromCatalogXml.myName,
                                                                  componentFromCatalogXml.myClassFqn,
                                                                  codeContext,
-                                                                 module.getProject(),
+                                                                 collector.module.getProject(),
                                                                  false,
                                                                  componentFromCatalogXml.myIcon),
                                 true);
     });
   }
 
-  private static CodeContext identifyCodeContext(Module module, Map<String, CodeContext> contextsOfModule, String uri) {
-    CodeContext codeContext;
-    if (isStdNamespace(uri)) {
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getStandardContext(uri, module);
-      if (codeContext == null) {
-        codeContext = new CodeContext(uri, module);
-        contextHolder.putStandardContext(uri, module, codeContext);
-      }
-    }
-    else {
-      codeContext = contextsOfModule.get(uri);
-      if (codeContext == null) {
-        codeContext = new CodeContext(uri, module);
-        contextsOfModule.put(uri, codeContext);
-      }
-    }
-    return codeContext;
-  }
-
-  private static void processManifestFile(final Module module,
-                                          final Map<String, CodeContext> contextsOfModule,
+  private static void processManifestFile(final NamespacesCollector collector,
                                           final VirtualFile manifestFile,
                                           final String uri,
                                           final @Nullable ModificationTracker dependency) {
-    final CodeContext codeContext = identifyCodeContext(module, contextsOfModule, uri);
+    final CodeContext codeContext = collector.identifyCodeContext(uri);
+    if (codeContext == null) return;
     if (dependency != null) {
       codeContext.addDependency(dependency);
     }
@@ -388,15 +370,25 @@ public class CodeContext {
 
   private static CodeContext getStdCodeContext(final String namespace, final Module module, final FlexBuildConfiguration bc) {
     final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-
-    if (!contextHolder.areSdkComponentsHandledForModule(module)) { // handleAllStandardManifests only once per module
-      handleAllStandardManifests(module, bc);
-      handleSwcFromSdk(module, bc); //swc files attached to Flex SDK may contribute to standard context
-      createCodeContextFromLibraries(namespace, module, bc); // other libraries may contribute to standard context
-      contextHolder.setSdkComponentsHandledForModule(module);
+    CodeContextHolder.ModuleContexts moduleContexts = contextHolder.getModuleContexts(module);
+
+    if (!moduleContexts.sdkComponentsHandled) {
+      synchronized (CodeContext.class) {
+        moduleContexts = contextHolder.getModuleContexts(module);
+        if (!moduleContexts.sdkComponentsHandled) { // handle all namespaces of the module in one pass, only once per module
+          final long modificationCount = VirtualFileManager.getInstance().getModificationCount();
+          final NamespacesCollector collector =
+            new NamespacesCollector(module, new THashMap<>(), moduleContexts.contexts.keySet());
+          handleAllStandardManifests(collector, bc);
+          handleSwcFromSdk(collector, bc); //swc files attached to Flex SDK may contribute to standard context
+          handleLibraries(collector, bc); // other libraries may contribute to standard context
+          contextHolder.putAllContexts(module, collector.standardContexts, collector.contexts, modificationCount);
+          moduleContexts = contextHolder.getModuleContexts(module);
+        }
+      }
     }
 
-    final CodeContext context = contextHolder.getStandardContext(namespace, module);
+    final CodeContext context = moduleContexts.standardContexts.get(namespace);
     return context != null ? context : CodeContextHolder.EMPTY;
   }
 
@@ -456,7 +448,7 @@ public class CodeContext {
     return descriptor;
   }
 
-  private static void handleAllStandardManifests(final Module module, @NotNull final FlexBuildConfiguration bc) {
+  private static void handleAllStandardManifests(final NamespacesCollector collector, @NotNull final FlexBuildConfiguration bc) {
     final Sdk sdk = bc.getSdk();
     final String homePath = sdk == null ? null : sdk.getHomePath();
     final VirtualFile sdkHome = homePath == null ? null : LocalFileSystem.getInstance().findFileByPath(homePath);
@@ -466,23 +458,18 @@ public class CodeContext {
       final VirtualFile manifestFile = VfsUtilCore.findRelativeFile(relativePath, sdkHome);
 
       if (manifestFile != null) {
-        handleStandardManifest(module, namespace1, manifestFile, sdkHome);
+        handleStandardManifest(collector, namespace1, manifestFile, sdkHome);
       }
     });
   }
 
-  private static void handleStandardManifest(final Module module,
+  private static void handleStandardManifest(final NamespacesCollector collector,
                                              final String namespace,
                                              final VirtualFile manifestFile,
                                              final VirtualFile flexSdkRoot) {
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    CodeContext _context = contextHolder.getStandardContext(namespace, module);
-    if (_context == null) {
-      _context = new CodeContext(namespace, module);
-      contextHolder.putStandardContext(namespace, module, _context);
-    }
+    final CodeContext context = collector.identifyCodeContext(namespace);
+    if (context == null) return;
 
-    final CodeContext context = _context;
     context.addDependency(flexSdkRoot);
 
     processManifestFile(manifestFile, context);
@@ -559,4 +546,38 @@ public class CodeContext {
       .addPredefinedMemberDescriptor(new AnnotationBackedDescriptorImpl(FORMAT_ATTR_NAME, xmlDescriptor, true, null, null, null));
     return xmlDescriptor;
   }
+
+  /**
+   * Collects code contexts of all namespaces found while walking SDK and libraries of the module.
+   */
+  private static final class NamespacesCollector {
+    final Module module;
+    /**
+     * {@code null} if standard namespaces are already handled and must be skipped
+     */
+    @Nullable final Map<String, CodeContext> standardContexts;
+    final Map<String, CodeContext> contexts = new THashMap<>();
+    private final Set<String> myKnownNamespaces;
+
+    private NamespacesCollector(@NotNull Module module,
+                                @Nullable Map<String, CodeContext> standardContexts,
+                                @NotNull Set<String> knownNamespaces) {
+      this.module = module;
+      this.standardContexts = standardContexts;
+      myKnownNamespaces = knownNamespaces;
+    }
+
+    @Nullable
+    CodeContext identifyCodeContext(@NotNull String uri) {
+      final Map<String, CodeContext> map = isStdNamespace(uri) ? standardContexts : contexts;
+      if (map == null || myKnownNamespaces.contains(uri)) return null;
+
+      CodeContext codeContext = map.get(uri);
+      if (codeContext == null) {
+        codeContext = new CodeContext(uri, module);
+        map.put(uri, codeContext);
+      }
+      return codeContext;
+    }
+  }
 }
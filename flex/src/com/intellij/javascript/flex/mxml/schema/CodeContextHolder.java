@@ -9,81 +9,122 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Keeps code contexts of each module as an immutable {@link ModuleContexts} snapshot. Snapshots are replaced as a whole on update,
+ * so reading code contexts doesn't need any locking.
+ */
 public class CodeContextHolder {
-  private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<>();
-  private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<>();
-  private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<>();
+  private final ConcurrentMap<Module, ModuleContexts> myModuleContexts = new ConcurrentHashMap<>();
   static final CodeContext EMPTY = new CodeContext(null, null);
 
-  synchronized void clear() {
-    myNSToCodeContextMap.clear();
-    myStandardContexts.clear();
-    myModulesWithSdkComponentsHandled.clear();
-  }
+  static final class ModuleContexts {
+    private static final ModuleContexts INITIAL = new ModuleContexts(Collections.emptyMap(), Collections.emptyMap(), false, -1);
 
-  @Nullable
-  public synchronized CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    final Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) return map.get(module);
-    return null;
-  }
+    final Map<String, CodeContext> standardContexts;
+    final Map<String, CodeContext> contexts;
+    final boolean sdkComponentsHandled;
+    /**
+     * VFS modification count at the moment when all namespaces provided by libraries were collected, or -1 if some of them were cleared
+     * since then. If it is up to date, a namespace that is not in {@link #contexts} is not provided by any library.
+     */
+    final long librariesModificationCount;
 
-  public synchronized void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map == null) {
-      map = new THashMap<>();
-      myNSToCodeContextMap.put(namespace, map);
+    private ModuleContexts(@NotNull Map<String, CodeContext> standardContexts,
+                           @NotNull Map<String, CodeContext> contexts,
+                           boolean sdkComponentsHandled,
+                           long librariesModificationCount) {
+      this.standardContexts = standardContexts;
+      this.contexts = contexts;
+      this.sdkComponentsHandled = sdkComponentsHandled;
+      this.librariesModificationCount = librariesModificationCount;
     }
-    map.put(module, codeContext);
-  }
 
-  public synchronized void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) {
-      map.remove(module);
+    private ModuleContexts withContexts(@NotNull Map<String, CodeContext> contexts, long librariesModificationCount) {
+      return new ModuleContexts(standardContexts, Collections.unmodifiableMap(contexts), sdkComponentsHandled, librariesModificationCount);
     }
   }
 
-  public static CodeContextHolder getInstance(@NotNull Project project) {
-    return ServiceManager.getService(project, CodeContextHolder.class);
+  void clear() {
+    myModuleContexts.clear();
+  }
+
+  @NotNull
+  ModuleContexts getModuleContexts(@NotNull final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    return contexts != null ? contexts : ModuleContexts.INITIAL;
   }
 
   @Nullable
-  public synchronized CodeContext getStandardContext(final String namespace, final Module module) {
-    final Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    return map == null ? null : map.get(module);
+  public CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    return getModuleContexts(module).contexts.get(namespace);
   }
 
-  public synchronized Collection<String> getNamespaces(final Module module) {
-    final List<String> result = new ArrayList<>();
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
-      }
-    }
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
+  public void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    myModuleContexts.compute(module, (m, old) -> {
+      final ModuleContexts contexts = old != null ? old : ModuleContexts.INITIAL;
+      final Map<String, CodeContext> map = new THashMap<>(contexts.contexts);
+      map.put(namespace, codeContext);
+      return contexts.withContexts(map, contexts.librariesModificationCount);
+    });
+  }
+
+  /**
+   * Publishes code contexts collected from libraries; contexts of namespaces that are already known are left untouched.
+   */
+  void putLibraryContexts(@NotNull final Module module,
+                          @NotNull final Map<String, CodeContext> libraryContexts,
+                          final long librariesModificationCount) {
+    myModuleContexts.compute(module, (m, old) -> {
+      final ModuleContexts contexts = old != null ? old : ModuleContexts.INITIAL;
+      final Map<String, CodeContext> map = new THashMap<>(libraryContexts);
+      map.putAll(contexts.contexts);
+      return contexts.withContexts(map, librariesModificationCount);
+    });
+  }
+
+  /**
+   * Publishes result of handling of all standard and library namespaces of the module.
+   */
+  void putAllContexts(@NotNull final Module module,
+                      @NotNull final Map<String, CodeContext> standardContexts,
+                      @NotNull final Map<String, CodeContext> libraryContexts,
+                      final long librariesModificationCount) {
+    myModuleContexts.compute(module, (m, old) -> {
+      final Map<String, CodeContext> map = new THashMap<>(libraryContexts);
+      if (old != null) {
+        map.putAll(old.contexts);
       }
-    }
-    return result;
+      return new ModuleContexts(Collections.unmodifiableMap(new THashMap<>(standardContexts)), Collections.unmodifiableMap(map), true,
+                                librariesModificationCount);
+    });
   }
 
-  synchronized void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    if (map == null) {
-      map = new HashMap<>();
-      myStandardContexts.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  public void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    myModuleContexts.computeIfPresent(module, (m, contexts) -> {
+      if (!contexts.contexts.containsKey(namespace)) return contexts;
+      final Map<String, CodeContext> map = new THashMap<>(contexts.contexts);
+      map.remove(namespace);
+      return contexts.withContexts(map, -1);
+    });
   }
 
-  synchronized boolean areSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.contains(module);
+  public static CodeContextHolder getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, CodeContextHolder.class);
   }
 
-  synchronized boolean setSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.add(module);
+  @Nullable
+  public CodeContext getStandardContext(final String namespace, final Module module) {
+    return getModuleContexts(module).standardContexts.get(namespace);
+  }
+
+  public Collection<String> getNamespaces(final Module module) {
+    final ModuleContexts contexts = getModuleContexts(module);
+    final List<String> result = new ArrayList<>(contexts.standardContexts.size() + contexts.contexts.size());
+    result.addAll(contexts.standardContexts.keySet());
+    result.addAll(contexts.contexts.keySet());
+    return result;
   }
 }
@@ -2,18 +2,19 @@
 package com.intellij.lang.javascript.flex.build;
 
 import com.intellij.ProjectTopics;
+import com.intellij.flex.build.FlexBuildFingerprint;
 import com.intellij.flex.model.bc.BuildConfigurationNature;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
 import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.ModuleListener;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
-import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashMap;
@@ -21,25 +22,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
 
+/**
+ * Remembers fingerprints of compiled build configurations (see {@link FlexBuildFingerprint}). Fingerprints are also stored in the system
+ * directory, so that build configurations that haven't changed are considered up to date after restart as well.
+ */
 public class FlexCompilerDependenciesCache {
   private final Project myProject;
   private final Map<Module, Collection<BCInfo>> myCache = new THashMap<>();
-
-  private static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
-    {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
-      "<flex-config><compiler><library-path><path-element>", "<flex-config><compiler><namespaces><namespace><manifest>",
-      /*"<flex-config><compiler><source-path><path-element>", "<flex-config><include-sources><path-element>",*/
-      "<flex-config><compiler><theme><filename>", "<flex-config><include-file><path>",
-      "<flex-config><include-stylesheet><path>", "<flex-config><file-specs><path-element>",
-      "<flex-config><compiler><include-libraries><library>", "<flex-config><compiler><local-fonts-snapshot>",
-      "<flex-config><compiler><defaults-css-url>", "<flex-config><compiler><defaults-css-files><filename>",
-      "<flex-config><load-config>", "<flex-config><load-externs>", "<flex-config><link-report>",
-      "<flex-config><services>", "<flex-config><metadata><raw-metadata>",
-      // "<flex-config><output>"   intentionally excluded, because already handled
-    };
+  private Map<String, PersistentBCInfo> myPersistentInfos;
 
   public FlexCompilerDependenciesCache(final Project project) {
     myProject = project;
@@ -47,17 +39,22 @@ public class FlexCompilerDependenciesCache {
     project.getMessageBus().connect().subscribe(ProjectTopics.MODULES, new ModuleListener() {
       @Override
       public void moduleRemoved(@NotNull final Project project, @NotNull final Module module) {
-        myCache.remove(module);
+        markModuleDirty(module);
       }
     });
   }
 
   public void clear() {
     myCache.clear();
+    getPersistentInfos().clear();
+    savePersistentInfos();
   }
 
   public void markModuleDirty(final Module module) {
     myCache.remove(module);
+    if (getPersistentInfos().keySet().removeIf(key -> key.startsWith(module.getName() + "/"))) {
+      savePersistentInfos();
+    }
   }
 
   public void markBCDirty(final Module module, final FlexBuildConfiguration bc) {
@@ -69,10 +66,13 @@ public class FlexCompilerDependenciesCache {
         myCache.remove(module);
       }
     }
+    if (getPersistentInfos().remove(getKey(module, bc)) != null) {
+      savePersistentInfos();
+    }
   }
 
   public void markModuleDirtyIfInSourceRoot(final VirtualFile file) {
-    if (myCache.isEmpty()) return;
+    if (myCache.isEmpty() && getPersistentInfos().isEmpty()) return;
 
     final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
     final Module module = fileIndex.getModuleForFile(file);
@@ -84,16 +84,19 @@ public class FlexCompilerDependenciesCache {
   public boolean isNothingChangedSincePreviousCompilation(final Module module, final FlexBuildConfiguration bc) {
     final Collection<BCInfo> infosForModule = myCache.get(module);
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
-    if (existingInfo == null) {
+    final PersistentBCInfo persistentInfo = getPersistentInfos().get(getKey(module, bc));
+    if (persistentInfo == null) {
       return false;
     }
 
-    final String[] currentSourceRoots = ModuleRootManager.getInstance(module).getSourceRootUrls();
-    if (!Arrays.equals(existingInfo.mySourceRootUrls, currentSourceRoots) || existingInfo.timestampsChanged()) {
-      infosForModule.remove(existingInfo);
-      if (infosForModule.isEmpty()) {
-        myCache.remove(module);
-      }
+    if (infosForModule != null && existingInfo == null) {
+      // BC was compiled in this session, but its settings have changed since then
+      markBCDirty(module, bc);
+      return false;
+    }
+
+    if (!persistentInfo.myFingerprint.equals(calcFingerprint(module, bc, persistentInfo.myConfigFilePaths))) {
+      markBCDirty(module, bc);
       return false;
     }
 
@@ -116,36 +119,46 @@ public class FlexCompilerDependenciesCache {
     final VirtualFile outputFile = FlexCompilationUtils.refreshAndFindFileInWriteAction(bc.getActualOutputFilePath());
     if (outputFile == null) return;
 
-    final BCInfo bcInfo = new BCInfo(Factory.getCopy(bc), ModuleRootManager.getInstance(module).getSourceRootUrls());
-    infosForModule.add(bcInfo);
+    infosForModule.add(new BCInfo(Factory.getCopy(bc)));
+
+    final List<String> configFilePaths = ContainerUtil.map(configFiles, VirtualFile::getPath);
+    getPersistentInfos().put(getKey(module, bc), new PersistentBCInfo(calcFingerprint(module, bc, configFilePaths), configFilePaths));
+    savePersistentInfos();
+  }
 
-    bcInfo.addFileDependency(outputFile.getPath());
+  private static String calcFingerprint(final Module module, final FlexBuildConfiguration bc, final List<String> configFilePaths) {
+    final FlexBuildFingerprint fingerprint = new FlexBuildFingerprint();
+    fingerprint.addText(StringUtil.join(ModuleRootManager.getInstance(module).getSourceRootUrls(), "\n"));
+    fingerprint.addFileStamp(new File(module.getModuleFilePath())); // BC settings
+    fingerprint.addFileStamp(new File(bc.getActualOutputFilePath()));
 
     final String workDirPath = FlexUtils.getFlexCompilerWorkDirPath(module.getProject(), null);
-    for (VirtualFile configFile : configFiles) {
-      addFileDependencies(bcInfo, configFile, workDirPath);
+    for (String configFilePath : configFilePaths) {
+      fingerprint.addConfigFile(new File(configFilePath), workDirPath);
     }
 
     if (bc.isTempBCForCompilation() && !bc.getCompilerOptions().getAdditionalConfigFilePath().isEmpty()) {
-      bcInfo.addFileDependency(bc.getCompilerOptions().getAdditionalConfigFilePath());
+      fingerprint.addFileStamp(new File(bc.getCompilerOptions().getAdditionalConfigFilePath()));
     }
 
     final BuildConfigurationNature nature = bc.getNature();
     if (nature.isApp() && !nature.isWebPlatform()) {
       if (nature.isDesktopPlatform()) {
         if (!bc.getAirDesktopPackagingOptions().isUseGeneratedDescriptor()) {
-          bcInfo.addFileDependency(bc.getAirDesktopPackagingOptions().getCustomDescriptorPath());
+          fingerprint.addFileStamp(new File(bc.getAirDesktopPackagingOptions().getCustomDescriptorPath()));
         }
       }
       else {
         if (bc.getAndroidPackagingOptions().isEnabled() && !bc.getAndroidPackagingOptions().isUseGeneratedDescriptor()) {
-          bcInfo.addFileDependency(bc.getAndroidPackagingOptions().getCustomDescriptorPath());
+          fingerprint.addFileStamp(new File(bc.getAndroidPackagingOptions().getCustomDescriptorPath()));
         }
         if (bc.getIosPackagingOptions().isEnabled() && !bc.getIosPackagingOptions().isUseGeneratedDescriptor()) {
-          bcInfo.addFileDependency(bc.getIosPackagingOptions().getCustomDescriptorPath());
+          fingerprint.addFileStamp(new File(bc.getIosPackagingOptions().getCustomDescriptorPath()));
         }
       }
     }
+
+    return fingerprint.getValue();
   }
 
   @Nullable
@@ -153,54 +166,57 @@ public class FlexCompilerDependenciesCache {
     return ContainerUtil.find(bcInfos, info -> info.myBC.isEqual(bc));
   }
 
-  private static void addFileDependencies(final BCInfo bcInfo, final VirtualFile configFile, final String workDirPath) {
-    bcInfo.addFileDependency(configFile.getPath());
+  private static String getKey(final Module module, final FlexBuildConfiguration bc) {
+    return module.getName() + "/" + bc.getName() + (bc.isTempBCForCompilation() ? "/" + bc.getOutputFileName() : "");
+  }
 
-    try {
-      final Map<String, List<String>> elementsMap =
-        FlexUtils.findXMLElements(configFile.getInputStream(), Arrays.asList(TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE));
-      for (List<String> filePathList : elementsMap.values()) {
-        for (String filePath : filePathList) {
-          bcInfo.addFileDependency(filePath, configFile.getParent().getPath(), workDirPath);
+  private File getStorageFile() {
+    return new File(PathManager.getSystemPath(), "flex/" + myProject.getLocationHash() + "/bc-fingerprints.txt");
+  }
+
+  private Map<String, PersistentBCInfo> getPersistentInfos() {
+    if (myPersistentInfos == null) {
+      myPersistentInfos = new THashMap<>();
+      final String text = FlexBuildFingerprint.load(getStorageFile());
+      if (text != null) {
+        for (String line : StringUtil.splitByLines(text)) {
+          final List<String> parts = StringUtil.split(line, "\t");
+          if (parts.size() >= 2) {
+            myPersistentInfos.put(parts.get(0), new PersistentBCInfo(parts.get(1), parts.subList(2, parts.size())));
+          }
         }
       }
     }
-    catch (IOException e) {/*ignore*/}
+    return myPersistentInfos;
+  }
+
+  private void savePersistentInfos() {
+    final StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, PersistentBCInfo> entry : getPersistentInfos().entrySet()) {
+      builder.append(entry.getKey()).append('\t').append(entry.getValue().myFingerprint);
+      for (String path : entry.getValue().myConfigFilePaths) {
+        builder.append('\t').append(path);
+      }
+      builder.append('\n');
+    }
+    FlexBuildFingerprint.save(getStorageFile(), builder.length() == 0 ? null : builder.toString());
   }
 
   private static final class BCInfo {
     private final FlexBuildConfiguration myBC;
-    private final String[] mySourceRootUrls;
-    private final Collection<Pair<File, Long>> myFileToTimestamp = new ArrayList<>();
 
-    private BCInfo(final FlexBuildConfiguration bc, final String[] sourceRootUrls) {
+    private BCInfo(final FlexBuildConfiguration bc) {
       myBC = bc;
-      mySourceRootUrls = sourceRootUrls;
     }
+  }
 
-    private void addFileDependency(final String filePath, final String... potentialBaseDirs) {
-      final File file = new File(FileUtil.toSystemDependentName(filePath));
-      if (file.exists()) {
-        myFileToTimestamp.add(Pair.create(file, file.lastModified()));
-      }
-      else if (potentialBaseDirs != null) {
-        for (String baseDir : potentialBaseDirs) {
-          final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + filePath));
-          if (file1.exists()) {
-            myFileToTimestamp.add(Pair.create(file1, file1.lastModified()));
-            break;
-          }
-        }
-      }
-    }
+  private static final class PersistentBCInfo {
+    private final String myFingerprint;
+    private final List<String> myConfigFilePaths;
 
-    public boolean timestampsChanged() {
-      for (Pair<File, Long> fileAndTimestamp : myFileToTimestamp) {
-        if (fileAndTimestamp.first.lastModified() != fileAndTimestamp.second) {
-          return true;
-        }
-      }
-      return false;
+    private PersistentBCInfo(final String fingerprint, final List<String> configFilePaths) {
+      myFingerprint = fingerprint;
+      myConfigFilePaths = new ArrayList<>(configFilePaths);
     }
   }
 }
@@ -13,6 +13,7 @@
 // limitations under the License.
 package com.intellij.lang.javascript.flex.build;
 
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.lang.javascript.flex.FlexBundle;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.options.ConfigurationException;
@@ -31,6 +32,8 @@ public class FlexCompilerProjectConfigurable implements SearchableConfigurable,
   private JCheckBox myPreferASC20CheckBox;
 
   private JTextField myHeapSizeTextField;
+  private JTextField myMaxParallelCompilationsTextField;
+  private JTextField myHeapBudgetTextField;
   private RawCommandLineEditor myVMOptionsEditor;
 
   private final Project myProject;
@@ -70,6 +73,8 @@ public class FlexCompilerProjectConfigurable implements SearchableConfigurable,
            myConfig.USE_BUILT_IN_COMPILER != myBuiltInCompilerRadioButton.isSelected() ||
            myConfig.PREFER_ASC_20 != myPreferASC20CheckBox.isSelected() ||
            !myHeapSizeTextField.getText().trim().equals(String.valueOf(myConfig.HEAP_SIZE_MB)) ||
+           !myMaxParallelCompilationsTextField.getText().trim().equals(String.valueOf(myConfig.MAX_PARALLEL_COMPILATIONS)) ||
+           !myHeapBudgetTextField.getText().trim().equals(String.valueOf(myConfig.BUILT_IN_COMPILERS_HEAP_BUDGET_MB)) ||
            !myVMOptionsEditor.getText().trim().equals(myConfig.VM_OPTIONS);
   }
 
@@ -92,6 +97,32 @@ public class FlexCompilerProjectConfigurable implements SearchableConfigurable,
       throw new ConfigurationException(FlexBundle.message("invalid.flex.compiler.heap.size"));
     }
 
+    try {
+      final int maxParallelCompilations = Integer.parseInt(myMaxParallelCompilationsTextField.getText().trim());
+      if (maxParallelCompilations > 0 && maxParallelCompilations <= JpsFlexCompilerProjectExtension.PARALLEL_COMPILATIONS_LIMIT) {
+        myConfig.MAX_PARALLEL_COMPILATIONS = maxParallelCompilations;
+      }
+      else {
+        throw new ConfigurationException(FlexBundle.message("invalid.flex.compiler.parallel.compilations"));
+      }
+    }
+    catch (NumberFormatException e) {
+      throw new ConfigurationException(FlexBundle.message("invalid.flex.compiler.parallel.compilations"));
+    }
+
+    try {
+      final int heapBudgetMb = Integer.parseInt(myHeapBudgetTextField.getText().trim());
+      if (heapBudgetMb >= 0) {
+        myConfig.BUILT_IN_COMPILERS_HEAP_BUDGET_MB = heapBudgetMb;
+      }
+      else {
+        throw new ConfigurationException(FlexBundle.message("invalid.flex.compiler.heap.budget"));
+      }
+    }
+    catch (NumberFormatException e) {
+      throw new ConfigurationException(FlexBundle.message("invalid.flex.compiler.heap.budget"));
+    }
+
     myConfig.VM_OPTIONS = myVMOptionsEditor.getText().trim();
   }
 
@@ -101,6 +132,8 @@ public class FlexCompilerProjectConfigurable implements SearchableConfigurable,
     myMxmlcCompcRadioButton.setSelected(myConfig.USE_MXMLC_COMPC);
     myPreferASC20CheckBox.setSelected(myConfig.PREFER_ASC_20);
     myHeapSizeTextField.setText(String.valueOf(myConfig.HEAP_SIZE_MB));
+    myMaxParallelCompilationsTextField.setText(String.valueOf(myConfig.MAX_PARALLEL_COMPILATIONS));
+    myHeapBudgetTextField.setText(String.valueOf(myConfig.BUILT_IN_COMPILERS_HEAP_BUDGET_MB));
     myVMOptionsEditor.setText(myConfig.VM_OPTIONS);
   }
 
@@ -1,6 +1,7 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.intellij.lang.javascript.flex.build;
 
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.components.State;
@@ -18,8 +19,9 @@ public class FlexCompilerProjectConfiguration implements PersistentStateComponen
   public boolean USE_FCSH = false;
   public boolean USE_MXMLC_COMPC = false;
   public boolean PREFER_ASC_20 = true;
-  public int MAX_PARALLEL_COMPILATIONS = 4;
+  public int MAX_PARALLEL_COMPILATIONS = 1; // built-in compiler processes running at the same time
   public int HEAP_SIZE_MB = 512;
+  public int BUILT_IN_COMPILERS_HEAP_BUDGET_MB = 0;
   public String VM_OPTIONS = "";
 
   public static FlexCompilerProjectConfiguration getInstance(final Project project) {
@@ -47,8 +49,9 @@ public class FlexCompilerProjectConfiguration implements PersistentStateComponen
       USE_BUILT_IN_COMPILER = true;
     }
 
-    //  MAX_PARALLEL_COMPILATIONS = state.MAX_PARALLEL_COMPILATIONS;
+    MAX_PARALLEL_COMPILATIONS = JpsFlexCompilerProjectExtension.clampParallelCompilations(state.MAX_PARALLEL_COMPILATIONS);
     HEAP_SIZE_MB = state.HEAP_SIZE_MB;
+    BUILT_IN_COMPILERS_HEAP_BUDGET_MB = Math.max(0, state.BUILT_IN_COMPILERS_HEAP_BUDGET_MB);
     VM_OPTIONS = state.VM_OPTIONS;
   }
 }
@@ -1,5 +1,6 @@
 package com.intellij.lang.javascript.flex.debug;
 
+import com.intellij.openapi.util.text.StringUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
@@ -37,11 +38,31 @@ class DebuggerCommand {
     return myStartVMState;
   }
 
+  /**
+   * Pipelineable command doesn't change VM state and fdb prints exactly one response per line of its text.
+   * Such commands may be sent to fdb by {@link PipelinedDebuggerCommand} without waiting for responses of the previous ones.
+   */
+  boolean isPipelineable() {
+    return false;
+  }
+
+  int getResponseCount() {
+    return StringUtil.countNewLines(myText) + 1;
+  }
+
   CommandOutputProcessingMode onTextAvailable(@NonNls String s) {
     assert myOutputProcessingType != CommandOutputProcessingType.NO_PROCESSING;
     return CommandOutputProcessingMode.DONE;
   }
 
+  /**
+   * Handles one response of a {@link #isPipelineable() pipelined} command. Unlike {@link #onTextAvailable(String)} it is called at most
+   * {@link #getResponseCount()} times, trace output and other asynchronous messages are already filtered out.
+   */
+  CommandOutputProcessingMode onPipelinedResponse(@NonNls String s) {
+    return onTextAvailable(s);
+  }
+
   @Override
   public String toString() {
     return getClass().getName();
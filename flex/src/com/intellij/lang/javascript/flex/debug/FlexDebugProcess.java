@@ -128,6 +128,7 @@ public class FlexDebugProcess extends XDebugProcess {
   @NonNls private static final String FAULT_MARKER = "[Fault] ";
   private static final Logger LOG = Logger.getInstance(FlexDebugProcess.class.getName());
   private static final boolean doSimpleTracing = ApplicationManager.getApplication().isInternal();
+  private static final int MAX_PIPELINED_COMMANDS = 32;
 
   private Object myStackFrameEqualityObject;
   private Map<String, String> myQName2IdMap;
@@ -979,11 +980,36 @@ public class FlexDebugProcess extends XDebugProcess {
     if (currentlyExecuting) {
       command = new SuspendResumeDebuggerCommand(command);
     }
+    else if (command.isPipelineable()) {
+      command = pipelineQueuedCommands(command);
+    }
 
     command.post(this);
     return command;
   }
 
+  /**
+   * Takes pipelineable commands that are queued right after the given one (e.g. evaluation of children of several nodes being expanded
+   * in Variables view), so that all of them are sent to fdb at once.
+   */
+  private DebuggerCommand pipelineQueuedCommands(final DebuggerCommand command) {
+    List<DebuggerCommand> commands = null;
+
+    synchronized (commandsToWrite) {
+      DebuggerCommand nextCommand;
+      while ((nextCommand = commandsToWrite.peek()) != null && nextCommand.isPipelineable() &&
+             (commands == null || commands.size() < MAX_PIPELINED_COMMANDS)) {
+        if (commands == null) {
+          commands = new ArrayList<>();
+          commands.add(command);
+        }
+        commands.add(commandsToWrite.removeFirst());
+      }
+    }
+
+    return commands == null ? command : new PipelinedDebuggerCommand(commands);
+  }
+
   boolean isDebuggerFromSdk3() {
     return myDebuggerVersion != null && myDebuggerVersion.startsWith("3.");
   }
@@ -80,9 +80,10 @@ public class FlexStackFrame extends XStackFrame {
   @Override
   public void computeChildren(@NotNull final XCompositeNode node) {
     List<DebuggerCommand> commands = new ArrayList<>();
-    commands.add(new MyDebuggerCommand("print this", node, true, FlexValue.ValueType.This));
-    commands.add(new MyDebuggerCommand("info arguments", node, false, FlexValue.ValueType.Parameter));
-    commands.add(new MyDebuggerCommand("info locals", node, false, FlexValue.ValueType.Variable));
+    commands.add(new PipelinedDebuggerCommand(Arrays.asList(
+      new MyDebuggerCommand("print this", node, true, FlexValue.ValueType.This),
+      new MyDebuggerCommand("info arguments", node, false, FlexValue.ValueType.Parameter),
+      new MyDebuggerCommand("info locals", node, false, FlexValue.ValueType.Variable))));
     //commands.add(new MyDebuggerCommand("info variables", node, false));
 
     if (mySourcePosition != null) {
@@ -271,12 +272,22 @@ public class FlexStackFrame extends XStackFrame {
       callback = _callback;
     }
 
+    @Override
+    boolean isPipelineable() {
+      return getResponseCount() == 2; // frame and print, no implicit set command
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(@NonNls String line) {
       if (myDebugProcess.filterStdResponse(line)) return CommandOutputProcessingMode.PROCEEDING;
       return proceedWithEvaluationResponse(line);
     }
 
+    @Override
+    CommandOutputProcessingMode onPipelinedResponse(@NonNls String line) {
+      return proceedWithEvaluationResponse(line);
+    }
+
     private CommandOutputProcessingMode proceedWithEvaluationResponse(String line) {
       ++responseCount;
       if (responseCount == 1) { // skip frame
@@ -510,6 +521,11 @@ public class FlexStackFrame extends XStackFrame {
       myValueType = valueType;
     }
 
+    @Override
+    boolean isPipelineable() {
+      return true;
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
       final int offsetIndex = hasFrame ? 1:0; // frame command
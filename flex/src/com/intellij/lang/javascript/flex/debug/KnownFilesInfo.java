@@ -1,25 +1,32 @@
 package com.intellij.lang.javascript.flex.debug;
 
 import com.intellij.openapi.util.io.FileUtil;
-import com.intellij.util.containers.BidirectionalMap;
+import com.intellij.openapi.util.text.StringUtil;
 import gnu.trove.THashMap;
 import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
+/**
+ * File ids known to fdb, per worker. fdb ids are numbers that never change during debug session, and 'show files' lists all files
+ * loaded so far, so on refresh only the lines with ids that are not known yet are parsed.
+ */
 public class KnownFilesInfo {
 
   private final FlexDebugProcess myFlexDebugProcess;
 
   private boolean myUpToDate = false;
 
-  private final TIntObjectHashMap<BidirectionalMap<String, String>> myWorkerToFilePathToIdMap =
-    new TIntObjectHashMap<>();
+  private final TIntObjectHashMap<WorkerFiles> myWorkerToFiles = new TIntObjectHashMap<>();
 
-  private final TIntObjectHashMap<Map<String, Collection<String>>> myWorkerToFileNameToPathsMap =
-    new TIntObjectHashMap<>();
+  private static final class WorkerFiles {
+    private final TIntObjectHashMap<String> myIdToFilePath = new TIntObjectHashMap<>();
+    private final TObjectIntHashMap<String> myFilePathToId = new TObjectIntHashMap<>();
+    private final Map<String, Collection<String>> myFileNameToPaths = new THashMap<>();
+  }
 
   public KnownFilesInfo(final FlexDebugProcess flexDebugProcess) {
     myFlexDebugProcess = flexDebugProcess;
@@ -33,36 +40,31 @@ public class KnownFilesInfo {
   public String getFilePathById(final int worker, final String id) {
     ensureUpToDate();
 
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    final List<String> paths = filePathToId == null ? null : filePathToId.getKeysByValue(id);
-
-    return paths != null && paths.size() > 0 ? paths.get(0) : null;
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    final int intId = StringUtil.parseInt(id, -1);
+    return files == null || intId < 0 ? null : files.myIdToFilePath.get(intId);
   }
 
   @Nullable
   public String getIdByFilePath(final String filePath) {
     ensureUpToDate();
-
-    final int worker = 0; // todo calculate correct worker
-
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    return filePathToId == null ? null : filePathToId.get(filePath);
+    return getIdByFilePathNoUpdate(filePath);
   }
 
   @Nullable
   public String getIdByFilePathNoUpdate(final String filePath) {
     final int worker = 0; // todo calculate correct worker
 
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    return filePathToId == null ? null : filePathToId.get(filePath);
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    return files == null || !files.myFilePathToId.containsKey(filePath) ? null : String.valueOf(files.myFilePathToId.get(filePath));
   }
 
   @Nullable
   public Collection<String> getPathsByName(final int worker, final String fileName) {
     ensureUpToDate();
 
-    final Map<String, Collection<String>> fileNameToPaths = myWorkerToFileNameToPathsMap.get(worker);
-    return fileNameToPaths == null ? null : fileNameToPaths.get(fileName);
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    return files == null ? null : files.myFileNameToPaths.get(fileName);
   }
 
   private void ensureUpToDate() {
@@ -93,16 +95,13 @@ public class KnownFilesInfo {
         continue;
       }
 
-      final String id = line.substring(0, spaceIndex);
-      String fullPath = FileUtil.toSystemIndependentName(line.substring(spaceIndex + 1, commaIndex));
-
-      int markerIndex = fullPath.indexOf("/frameworks/projects/");
-      if (markerIndex != -1 && fullPath.indexOf("/src/", markerIndex) > 0) {
-        fullPath = myFlexDebugProcess.getAppSdkHome() + fullPath.substring(markerIndex);
+      final int id = StringUtil.parseInt(line.substring(0, spaceIndex), -1);
+      if (id < 0) {
+        FlexDebugProcess.log("Unexpected string format:" + line);
+        continue;
       }
 
       final int nextSpaceIndex = line.indexOf(' ', commaIndex + 2);
-      final String shortName = nextSpaceIndex > 0 ? line.substring(commaIndex + 2, nextSpaceIndex) : line.substring(commaIndex);
 
       int worker = 0;
 
@@ -123,19 +122,26 @@ public class KnownFilesInfo {
         }
       }
 
-      BidirectionalMap<String, String> filePathToIdMap = myWorkerToFilePathToIdMap.get(worker);
-      if (filePathToIdMap == null) {
-        filePathToIdMap = new BidirectionalMap<>();
-        myWorkerToFilePathToIdMap.put(worker, filePathToIdMap);
+      WorkerFiles files = myWorkerToFiles.get(worker);
+      if (files == null) {
+        files = new WorkerFiles();
+        myWorkerToFiles.put(worker, files);
       }
-      filePathToIdMap.put(fullPath, id);
 
-      Map<String, Collection<String>> fileNameToPaths = myWorkerToFileNameToPathsMap.get(worker);
-      if (fileNameToPaths == null) {
-        fileNameToPaths = new THashMap<>();
-        myWorkerToFileNameToPathsMap.put(worker, fileNameToPaths);
+      if (files.myIdToFilePath.containsKey(id)) continue; // known since previous refresh
+
+      String fullPath = FileUtil.toSystemIndependentName(line.substring(spaceIndex + 1, commaIndex));
+
+      int markerIndex = fullPath.indexOf("/frameworks/projects/");
+      if (markerIndex != -1 && fullPath.indexOf("/src/", markerIndex) > 0) {
+        fullPath = myFlexDebugProcess.getAppSdkHome() + fullPath.substring(markerIndex);
       }
-      addToMap(fileNameToPaths, shortName, fullPath);
+
+      final String shortName = nextSpaceIndex > 0 ? line.substring(commaIndex + 2, nextSpaceIndex) : line.substring(commaIndex);
+
+      files.myIdToFilePath.put(id, fullPath);
+      files.myFilePathToId.put(fullPath, id);
+      addToMap(files.myFileNameToPaths, shortName, fullPath);
     }
   }
 
@@ -0,0 +1,88 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends several {@link DebuggerCommand#isPipelineable() pipelineable} commands to fdb at once, without a round trip per command.
+ * fdb executes commands strictly in order and prints a prompt after each one, so responses are matched to commands by their order.
+ * All responses are read before they are dispatched, so response handlers may send other commands.
+ * Nested pipelined commands are flattened, so that each response is dispatched directly to the command it belongs to.
+ */
+class PipelinedDebuggerCommand extends DebuggerCommand {
+  private final List<DebuggerCommand> myCommands;
+  private final List<String> myResponses = new ArrayList<>();
+
+  PipelinedDebuggerCommand(@NotNull final List<? extends DebuggerCommand> commands) {
+    this(flatten(commands));
+  }
+
+  private PipelinedDebuggerCommand(@NotNull final ArrayList<DebuggerCommand> commands) {
+    super(StringUtil.join(commands, DebuggerCommand::getText, "\n"), CommandOutputProcessingType.SPECIAL_PROCESSING);
+    myCommands = commands;
+  }
+
+  private static ArrayList<DebuggerCommand> flatten(@NotNull final List<? extends DebuggerCommand> commands) {
+    final ArrayList<DebuggerCommand> result = new ArrayList<>(commands.size());
+    for (DebuggerCommand command : commands) {
+      if (command instanceof PipelinedDebuggerCommand) {
+        result.addAll(((PipelinedDebuggerCommand)command).myCommands);
+      }
+      else {
+        result.add(command);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  boolean isPipelineable() {
+    return true;
+  }
+
+  @Override
+  public String read(final FlexDebugProcess flexDebugProcess) throws IOException {
+    myResponses.clear();
+    final StringBuilder allResponses = new StringBuilder();
+    while (myResponses.size() < getResponseCount()) {
+      final String response = flexDebugProcess.defaultReadCommand(this);
+      if (response == null) return null;
+      allResponses.append(response).append('\n');
+      // trace output and other asynchronous messages are not responses to any of the commands
+      if (!response.trim().isEmpty() && flexDebugProcess.filterStdResponse(response)) continue;
+      myResponses.add(response);
+    }
+    return allResponses.toString();
+  }
+
+  @Override
+  CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+    dispatchResponses(myResponses);
+    return CommandOutputProcessingMode.DONE;
+  }
+
+  void dispatchResponses(@NotNull final List<String> responses) {
+    int responseIndex = 0;
+    for (DebuggerCommand command : myCommands) {
+      final int responseCount = command.getResponseCount();
+      CommandOutputProcessingMode mode = CommandOutputProcessingMode.PROCEEDING;
+      for (int i = 0; i < responseCount && mode == CommandOutputProcessingMode.PROCEEDING && responseIndex + i < responses.size(); i++) {
+        mode = command.onPipelinedResponse(responses.get(responseIndex + i).trim());
+      }
+      if (mode != CommandOutputProcessingMode.DONE) {
+        FlexDebugProcess.log("Unexpected number of responses for pipelined " + command);
+      }
+      responseIndex += responseCount;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + myCommands;
+  }
+}
@@ -307,7 +307,6 @@ class Abc {
 
     parseCpool();
 
-    defaults[CONSTANT_Utf8] = strings;
     defaults[CONSTANT_Int] = ints;
     defaults[CONSTANT_UInt] = uints;
     defaults[CONSTANT_Double] = doubles;
@@ -328,7 +327,9 @@ class Abc {
     parseInstanceInfos();
     parseClassInfos();
     parseScriptInfos();
-    parseMethodBodies();
+    if (_processor.doDumpMethodBodies()) {
+      parseMethodBodies();
+    }
   }
 
   private static Object[] buildSparseArray(int index, @NonNls String s1) {
@@ -370,7 +371,9 @@ class Abc {
   Integer[] ints;
   Integer[] uints;
   Double[] doubles;
-  @NonNls String[] strings;
+  private @NonNls String[] strings;
+  private int[] stringOffsets;
+  private int[] stringLengths;
   @NonNls String[] namespaces;
   @NonNls String[][] nssets;
   Multiname[] names;
@@ -389,6 +392,24 @@ class Abc {
     return data.readU32();
   }
 
+  @NonNls
+  String string(int index) {
+    String result = strings[index];
+    if (result == null) {
+      result = strings[index] = data.getUTFBytes(stringOffsets[index], stringLengths[index]);
+    }
+    return result;
+  }
+
+  private boolean hasDefaultValues(int kind) {
+    return kind == CONSTANT_Utf8 || defaults[kind] != null;
+  }
+
+  private Object defaultValue(int kind, int index) {
+    // the string pool is not in defaults, its entries are decoded on demand
+    return kind == CONSTANT_Utf8 ? string(index) : defaults[kind][index];
+  }
+
   void parseCpool() {
     int i, j;
     int n;
@@ -423,10 +444,16 @@ class Abc {
 
     // strings
     n = readU32();
+    // strings are decoded on first access, most of them are referenced only from method bodies
     strings = new String[n];
+    stringOffsets = new int[n];
+    stringLengths = new int[n];
     strings[0] = "";
     for (i = 1; i < n; i++) {
-      strings[i] = data.readUTFBytes(readU32());
+      int length = readU32();
+      stringOffsets[i] = data.getPosition();
+      stringLengths[i] = length;
+      data.incPosition(length);
     }
 
     reportAboutPercentage("Cpool strings count " + n + " size ", data, start, processor);
@@ -444,7 +471,7 @@ class Abc {
         case CONSTANT_ProtectedNs:
         case CONSTANT_StaticProtectedNs:
         case CONSTANT_StaticProtectedNs2: {
-          namespaces[i] = strings[readU32()];
+          namespaces[i] = string(readU32());
           // todo mark kind of namespace.
           break;
         }
@@ -490,12 +517,12 @@ class Abc {
       switch (data.readByte()) {
         case CONSTANT_Qname:
         case CONSTANT_QnameA:
-          names[i] = new Multiname(new String[]{namespaces[readU32()]}, strings[readU32()]);
+          names[i] = new Multiname(new String[]{namespaces[readU32()]}, string(readU32()));
           break;
 
         case CONSTANT_RTQname:
         case CONSTANT_RTQnameA:
-          names[i] = new Multiname(new String[]{strings[readU32()]}, null);
+          names[i] = new Multiname(new String[]{string(readU32())}, null);
           break;
 
         case CONSTANT_RTQnameL:
@@ -510,7 +537,7 @@ class Abc {
 
         case CONSTANT_Multiname:
         case CONSTANT_MultinameA:
-          String name = strings[readU32()];
+          String name = string(readU32());
           names[i] = new Multiname(nssets[readU32()], name);
           break;
 
@@ -614,7 +641,7 @@ class Abc {
         m.paramTypes[j] = names[readU32()];
         if (m.paramTypes[j] == null) m.paramTypes[j] = OpaqueAssetsType;
       }
-      m.debugName = strings[readU32()];
+      m.debugName = string(readU32());
       m.flags = data.readByte();
 
       if ((m.flags & HAS_OPTIONAL) != 0) {
@@ -645,11 +672,11 @@ class Abc {
             m.optionalValues[k] = new Multiname(null, value);
           }
           else {
-            if (defaults[kind] == null) {
+            if (!hasDefaultValues(kind)) {
               processor.hasError("ERROR kind=" + kind + " method_id " + i + "\n");
             }
             else {
-              m.optionalValues[k] = new Multiname(null, defaults[kind][index].toString());
+              m.optionalValues[k] = new Multiname(null, defaultValue(kind, index).toString());
             }
           }
         }
@@ -660,7 +687,7 @@ class Abc {
           Set<String> usedNames = new THashSet<>(m.paramNames.length);
           for (int k = 0; k < param_count; ++k) {
             final int index = readU32();
-            final String name = strings[index];
+            final String name = string(index);
             m.paramNames[k] = StringUtil.isJavaIdentifier(name) && usedNames.add(name) ? name : "_" + k;
           }
         } else {
@@ -694,15 +721,15 @@ class Abc {
     for (int i = 0; i < count; i++) {
       // MetadataInfo
       MetaData m = metadata[i] = new MetaData();
-      m.name = strings[readU32()];
+      m.name = string(readU32());
       int values_count = readU32();
       String names[] = new String[values_count];
 
       for (int q = 0; q < values_count; ++q) {
-        names[q] = strings[readU32()]; // name
+        names[q] = string(readU32()); // name
       }
       for (int q = 0; q < values_count; ++q) {
-        m.put(names[q], strings[readU32()]); // value
+        m.put(names[q], string(readU32())); // value
       }
     }
   }
@@ -770,7 +797,7 @@ class Abc {
               slot.type = OpaqueAssetsType;
             }
             int index = readU32();
-            if (index > 0) slot.value = defaults[data.readByte()][index];
+            if (index > 0) slot.value = defaultValue(data.readByte(), index);
           }
           else // (kind == Class)
           {
@@ -92,6 +92,11 @@ class AbcDumper extends AbstractDumpProcessor {
     return true;
   }
 
+  @Override
+  public boolean doDumpMethodBodies() {
+    return true;
+  }
+
   @Override
   public void setProcessingInterface(final boolean anInterface) {
   }
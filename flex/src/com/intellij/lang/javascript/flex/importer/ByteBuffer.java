@@ -2,29 +2,46 @@ package com.intellij.lang.javascript.flex.importer;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
+ * Read-only view over a region of a byte array. Nested buffers created with {@link #readBytes(ByteBuffer, int)}
+ * share the array of the parent buffer instead of copying it.
+ *
  * @author Maxim.Mossienko
 */
 class ByteBuffer {
+  // inflated SWFs are at most a few times larger than compressed ones, sizes from headers beyond this are not trusted up front
+  private static final int MAX_INITIAL_INFLATE_RATIO = 16;
+  private static final int MAX_INFLATED_SIZE = 256 * 1024 * 1024;
+
   private byte[] bytes;
+  // region of the array visible through this buffer, position is absolute
+  private int start;
+  private int end;
   private int position;
   private boolean littleEndian;
 
   void read(@NotNull InputStream inputStream) throws IOException {
     try {
-      bytes = readStream(inputStream);
+      wrap(readStream(inputStream));
     }
     finally {
       inputStream.close();
     }
   }
 
+  void wrap(byte @NotNull [] content) {
+    bytes = content;
+    start = 0;
+    end = content.length;
+    position = 0;
+  }
+
   void setLittleEndian() {
     littleEndian = true;
   }
@@ -46,19 +63,62 @@ class ByteBuffer {
   }
 
   public void setPosition(final int i) {
-    position = i;
+    position = start + i;
   }
 
   public int bytesSize() {
-    return bytes.length;
-  }
-
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
+    return end - start;
+  }
+
+  /**
+   * Inflates the rest of this buffer into a new one. The size of the inflated data known in advance (e.g. from a SWF header)
+   * is only a hint for the initial capacity: a corrupt header can't make it allocate more than
+   * {@link #MAX_INITIAL_INFLATE_RATIO} times the compressed size, and the buffer grows up to {@link #MAX_INFLATED_SIZE}.
+   */
+  @NotNull
+  ByteBuffer inflateRemaining(int expectedSize) throws IOException {
+    final int compressedSize = end - position;
+    final long maxInitialSize = Math.min((long)compressedSize * MAX_INITIAL_INFLATE_RATIO + 8192, MAX_INFLATED_SIZE);
+    final long initialSize = expectedSize > 0 ? Math.min(expectedSize, maxInitialSize) : Math.min(compressedSize * 4L + 8192, maxInitialSize);
+    byte[] inflated = new byte[(int)initialSize];
+    int total = 0;
 
-    bytes = readStream(zipInputStream);
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, position, compressedSize);
+      while (!inflater.finished()) {
+        if (total == inflated.length) {
+          if (total == MAX_INFLATED_SIZE) {
+            throw new IOException("Inflated data is larger than " + MAX_INFLATED_SIZE + " bytes");
+          }
+          final byte[] grown = new byte[(int)Math.min(total * 2L, MAX_INFLATED_SIZE)];
+          System.arraycopy(inflated, 0, grown, 0, total);
+          inflated = grown;
+        }
+        final int count = inflater.inflate(inflated, total, inflated.length - total);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Unexpected end of compressed data");
+        }
+        total += count;
+      }
+    }
+    catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    finally {
+      inflater.end();
+    }
 
-    zipInputStream.close();
+    position = end;
+    if (total != inflated.length) {
+      final byte[] exact = new byte[total];
+      System.arraycopy(inflated, 0, exact, 0, total);
+      inflated = exact;
+    }
+    final ByteBuffer result = new ByteBuffer();
+    result.littleEndian = littleEndian;
+    result.wrap(inflated);
+    return result;
   }
 
   private static byte[] readStream(final InputStream zipInputStream) throws IOException {
@@ -105,22 +165,34 @@ class ByteBuffer {
   }
 
   public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+    if (position + length > end) {
+      throw new ArrayIndexOutOfBoundsException(position + length);
+    }
+    data2.bytes = bytes;
+    data2.start = position;
+    data2.end = position + length;
+    data2.position = position;
     position += length;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= end;
   }
 
   public String readUTFBytes(int i) {
-    final byte[] buf = new byte[i];
-    while (i > 0) {
-      buf[buf.length - i] = (byte)readByte();
-      --i;
+    final String result = getUTFBytes(position - start, i);
+    position += i;
+    return result;
+  }
+
+  /**
+   * Decodes a string at the given offset without moving the position.
+   */
+  public String getUTFBytes(int offset, int length) {
+    if (offset + length > end - start) {
+      throw new ArrayIndexOutOfBoundsException(offset + length);
     }
-    return new String(buf, StandardCharsets.UTF_8);
+    return new String(bytes, start + offset, length, StandardCharsets.UTF_8);
   }
 
   public double readDouble() {
@@ -142,11 +214,11 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes[start + i];
   }
 
   public int getPosition() {
-    return position;
+    return position - start;
   }
 
   public void incPosition(final int length) {
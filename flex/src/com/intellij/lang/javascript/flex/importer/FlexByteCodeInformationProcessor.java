@@ -25,6 +25,11 @@ interface FlexByteCodeInformationProcessor {
   
   boolean doDumpMetaData(final @NotNull MetaData md);
 
+  /**
+   * @return false if method bodies are not used, so they are skipped while parsing
+   */
+  boolean doDumpMethodBodies();
+
   String REST_PARAMETER_TYPE = "...";
   void processParameter(final @NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest);
 
@@ -22,6 +22,7 @@ import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.psi.util.JSProjectUtil;
 import com.intellij.lang.javascript.refactoring.FormatFixer;
 import com.intellij.lang.javascript.refactoring.util.JSRefactoringUtil;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.MessageDialogBuilder;
 import com.intellij.openapi.ui.Messages;
@@ -122,6 +123,12 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
   private final Collection<DiagramEdge<Object>> myEdges = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myDependencyEdges = new HashSet<>();
 
+  // class and package nodes by FQN, findNode() is called for every class and every relationship during update; null if needs rebuilding.
+  // FQNs of classes change with PSI, so the index is also rebuilt after PSI modifications
+  private Map<String, DiagramNode<Object>> myClassNodesByFqn;
+  private Map<String, DiagramNode<Object>> myPackageNodesByFqn;
+  private long myNodeIndexModificationCount;
+
   private final Collection<DiagramNode<Object>> myNodesOld = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myEdgesOld = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myDependencyEdgesOld = new HashSet<>();
@@ -229,6 +236,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
 
   private void clearAll() {
     clearAndBackup(myNodes, myNodesOld);
+    invalidateNodeIndex();
     clearAndBackup(myEdges, myEdgesOld);
     clearAndBackup(myDependencyEdges, myDependencyEdgesOld);
   }
@@ -268,6 +276,9 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
     final Set<JSClass> classes = getAllClasses();
     syncPackages();
     final Set<JSClass> interfaces = new HashSet<>();
+    final Set<EdgeKey> edgeKeys = new HashSet<>();
+    for (DiagramEdge<Object> edge : myEdges) edgeKeys.add(new EdgeKey(edge, false));
+    for (DiagramEdge<Object> edge : myDependencyEdges) edgeKeys.add(new EdgeKey(edge, true));
 
     for (String psiPackage : packages) {
 
@@ -276,6 +287,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
       }
     }
     for (JSClass psiClass : classes) {
+      ProgressManager.checkCanceled();
       if (isAllowedToShow(psiClass)) {
         myNodes.add(new FlashUmlClassNode(psiClass, getProvider()));
       }
@@ -284,8 +296,10 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
         interfaces.add(psiClass);
       }
     }
+    invalidateNodeIndex();
 
     for (JSClass psiClass : classes) {
+      ProgressManager.checkCanceled();
       {
         DiagramNode<Object> source = findNode(psiClass);
         DiagramNode<Object> target = null;
@@ -300,7 +314,8 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
           if (!((JSClass)getIdentifyingElement(source)).isInterface() ||
               !JSResolveUtil.isObjectClass((JSClass)getIdentifyingElement(target))) {
             addEdge(source, target,
-                    psiClass.isInterface() ? FlashUmlRelationship.INTERFACE_GENERALIZATION : FlashUmlRelationship.GENERALIZATION);
+                    psiClass.isInterface() ? FlashUmlRelationship.INTERFACE_GENERALIZATION : FlashUmlRelationship.GENERALIZATION,
+                    myEdges, edgeKeys);
           }
         }
       }
@@ -310,7 +325,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
           DiagramNode<Object> source = findNode(psiClass);
           DiagramNode<Object> target = findNode(inter);
           if (source != null && target != null && source != target) {
-            addEdge(source, target, FlashUmlRelationship.REALIZATION);
+            addEdge(source, target, FlashUmlRelationship.REALIZATION, myEdges, edgeKeys);
           }
         }
       }
@@ -323,7 +338,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
             DiagramNode<Object> source = findNode(psiClass);
             DiagramNode<Object> target = findNode(inter);
             if (source != null && target != null && source != target) {
-              addEdge(source, target, FlashUmlRelationship.INTERFACE_GENERALIZATION);
+              addEdge(source, target, FlashUmlRelationship.INTERFACE_GENERALIZATION, myEdges, edgeKeys);
             }
           }
         }
@@ -352,7 +367,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
             DiagramNode<Object> source = findNode(psiClass);
             DiagramNode<Object> target = findNode(inter);
             if (source != null && target != null && source != target) {
-              addEdge(source, target, FlashUmlRelationship.REALIZATION);
+              addEdge(source, target, FlashUmlRelationship.REALIZATION, myEdges, edgeKeys);
             }
             faces.remove(inter);
           }
@@ -367,27 +382,29 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
     if (isShowDependencies()) {
       final EnumSet<FlashUmlDependenciesSettingsOption> options = FlashUmlDependenciesSettingsOption.getEnabled();
       for (JSClass psiClass : classes) {
-        showDependenciesFor(psiClass, options);
+        ProgressManager.checkCanceled();
+        showDependenciesFor(psiClass, options, edgeKeys);
       }
     }
     //merge!
     mergeWithBackup(myNodes, myNodesOld);
+    invalidateNodeIndex();
     mergeWithBackup(myEdges, myEdgesOld);
     mergeWithBackup(myDependencyEdges, myDependencyEdgesOld);
   }
 
-  private void showDependenciesFor(final JSClass clazz, final EnumSet<FlashUmlDependenciesSettingsOption> options) {
+  private void showDependenciesFor(final JSClass clazz,
+                                   final EnumSet<FlashUmlDependenciesSettingsOption> options,
+                                   final Set<EdgeKey> edgeKeys) {
     DiagramNode<Object> mainNode = findNode(clazz);
     if (mainNode == null) return;
 
-    FlashUmlDependencyProvider provider = new FlashUmlDependencyProvider(clazz);
-
-    Collection<Pair<JSClass, FlashUmlRelationship>> list = provider.computeUsedClasses();
+    Collection<Pair<JSClass, FlashUmlRelationship>> list = FlashUmlDependencyProvider.getUsedClasses(clazz);
     for (Pair<JSClass, FlashUmlRelationship> pair : list) {
       if (shouldShow(options, clazz, pair.first, pair.second)) {
         DiagramNode<Object> node = findNode(pair.first);
         if (node != null) {
-          addDependencyEdge(mainNode, node, pair.second);
+          addEdge(mainNode, node, pair.second, myDependencyEdges, edgeKeys);
         }
       }
     }
@@ -484,6 +501,54 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
     return addEdge(from, to, relationship, myDependencyEdges);
   }
 
+  private void addEdge(DiagramNode<Object> from,
+                       DiagramNode<Object> to,
+                       DiagramRelationshipInfo relationship,
+                       Collection<DiagramEdge<Object>> storage,
+                       Set<EdgeKey> edgeKeys) {
+    if (edgeKeys.add(new EdgeKey(from, to, relationship, storage == myDependencyEdges))) {
+      storage.add(new FlashUmlEdge(from, to, relationship));
+    }
+  }
+
+  /**
+   * Identity of an edge for the check for duplicates: nodes are compared by reference, relationships with equals().
+   */
+  private static final class EdgeKey {
+    private final DiagramNode<Object> mySource;
+    private final DiagramNode<Object> myTarget;
+    private final DiagramRelationshipInfo myRelationship;
+    private final boolean myDependency;
+
+    private EdgeKey(DiagramEdge<Object> edge, boolean dependency) {
+      this(edge.getSource(), edge.getTarget(), edge.getRelationship(), dependency);
+    }
+
+    private EdgeKey(DiagramNode<Object> source, DiagramNode<Object> target, DiagramRelationshipInfo relationship, boolean dependency) {
+      mySource = source;
+      myTarget = target;
+      myRelationship = relationship;
+      myDependency = dependency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof EdgeKey)) return false;
+      EdgeKey key = (EdgeKey)o;
+      return mySource == key.mySource && myTarget == key.myTarget && myDependency == key.myDependency &&
+             myRelationship.equals(key.myRelationship);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(mySource);
+      result = 31 * result + System.identityHashCode(myTarget);
+      result = 31 * result + myRelationship.hashCode();
+      return 31 * result + (myDependency ? 1 : 0);
+    }
+  }
+
   private static FlashUmlEdge addEdge(DiagramNode<Object> from,
                                    DiagramNode<Object> to,
                                    DiagramRelationshipInfo relationship,
@@ -527,6 +592,15 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
   @Nullable
   public DiagramNode<Object> findNode(Object object) {
     String objectFqn = getFqn(object);
+    if (objectFqn != null && (object instanceof JSClass || object instanceof String)) {
+      final long modificationCount = getModificationTracker().getModificationCount();
+      if (myClassNodesByFqn == null || myNodeIndexModificationCount != modificationCount) {
+        buildNodeIndex();
+        myNodeIndexModificationCount = modificationCount;
+      }
+      return (object instanceof JSClass ? myClassNodesByFqn : myPackageNodesByFqn).get(objectFqn);
+    }
+
     for (DiagramNode<Object> node : getNodes()) {
       final String fqn = getFqn(getIdentifyingElement(node));
       if (fqn != null && fqn.equals(objectFqn)) {
@@ -539,6 +613,26 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
     return null; //ptr == null ? null : findNode(ptr.getElement());
   }
 
+  private void buildNodeIndex() {
+    myClassNodesByFqn = new HashMap<>();
+    myPackageNodesByFqn = new HashMap<>();
+    for (DiagramNode<Object> node : myNodes) {
+      final String fqn = getFqn(getIdentifyingElement(node));
+      if (fqn == null) continue;
+      if (node instanceof FlashUmlClassNode) {
+        myClassNodesByFqn.putIfAbsent(fqn, node);
+      }
+      else if (node instanceof FlashUmlPackageNode) {
+        myPackageNodesByFqn.putIfAbsent(fqn, node);
+      }
+    }
+  }
+
+  private void invalidateNodeIndex() {
+    myClassNodesByFqn = null;
+    myPackageNodesByFqn = null;
+  }
+
   @Nullable
   private static String getFqn(Object element) {
     if (element instanceof JSQualifiedNamedElement) {
@@ -584,6 +678,7 @@ public final class FlashUmlDataModel extends DiagramDataModel<Object> {
 
 
     myNodes.remove(node);
+    invalidateNodeIndex();
     if (element instanceof JSClass) {
       final JSClass psiClass = (JSClass)element;
       classesRemovedByUser.put(psiClass.getQualifiedName(), spManager.createSmartPsiElementPointer(psiClass));
@@ -13,34 +13,82 @@ import com.intellij.lang.javascript.psi.ecmal4.JSImportStatement;
 import com.intellij.lang.javascript.psi.ecmal4.XmlBackedJSClassFactory;
 import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.uml.FlashUmlRelationship.Factory;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.*;
 import com.intellij.psi.css.CssDeclaration;
 import com.intellij.psi.css.CssElementVisitor;
 import com.intellij.psi.css.CssFunction;
 import com.intellij.psi.css.CssString;
 import com.intellij.psi.scope.PsiScopeProcessor;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.*;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xml.XmlAttributeDescriptor;
 import com.intellij.xml.XmlElementDescriptor;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 public class FlashUmlDependencyProvider {
   private static final Language CSS = Language.findLanguageByID("CSS");
 
   private final JSClass myClazz;
+  // files the declarations of the class come from: its own file, included and script source files
+  private final Set<PsiFile> myVisitedFiles = new HashSet<>();
 
   public FlashUmlDependencyProvider(final JSClass clazz) {
     myClazz = clazz;
   }
 
+  /**
+   * Cached version of {@link #computeUsedClasses()}: resolving all references of a class is expensive,
+   * and the diagram is rebuilt on every PSI change, while most of its classes stay the same.
+   * The result depends on the files the class is declared in, the files of its supers and of the classes it uses;
+   * references to classes which don't exist yet are resolved again when files are added, removed or renamed, or when project roots change.
+   */
+  public static Collection<Pair<JSClass, FlashUmlRelationship>> getUsedClasses(@NotNull final JSClass clazz) {
+    return CachedValuesManager.getCachedValue(clazz, () -> {
+      final FlashUmlDependencyProvider provider = new FlashUmlDependencyProvider(clazz);
+      final Collection<Pair<JSClass, FlashUmlRelationship>> usedClasses = provider.computeUsedClasses();
+
+      final Set<Object> dependencies = new HashSet<>();
+      addContainingFile(clazz, dependencies);
+      for (PsiFile file : provider.myVisitedFiles) {
+        addContainingFile(file, dependencies);
+      }
+      addSupersFiles(clazz, new HashSet<>(), dependencies);
+      for (Pair<JSClass, FlashUmlRelationship> pair : usedClasses) {
+        addContainingFile(pair.first, dependencies);
+      }
+      dependencies.add(VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+      dependencies.add(ProjectRootModificationTracker.getInstance(clazz.getProject()));
+
+      return CachedValueProvider.Result.create(Collections.unmodifiableCollection(usedClasses), dependencies.toArray());
+    });
+  }
+
+  private static void addSupersFiles(final JSClass clazz, final Set<JSClass> visited, final Set<Object> dependencies) {
+    for (JSClass superClass : clazz.getSupers()) {
+      if (visited.add(superClass)) {
+        addContainingFile(superClass, dependencies);
+        addSupersFiles(superClass, visited, dependencies);
+      }
+    }
+  }
+
+  private static void addContainingFile(final PsiElement element, final Set<Object> dependencies) {
+    final PsiFile file = InjectedLanguageManager.getInstance(element.getProject()).getTopLevelFile(element);
+    if (file != null) {
+      dependencies.add(file);
+    }
+  }
+
   public Collection<Pair<JSClass, FlashUmlRelationship>> computeUsedClasses() {
     final Collection<Pair<JSClass, FlashUmlRelationship>> result = new ArrayList<>();
     final JSElementVisitor visitor = new JSElementVisitor() {
@@ -148,6 +196,7 @@ public class FlashUmlDependencyProvider {
     if (myClazz instanceof XmlBackedJSClassImpl) {
       // TODO process attributes
       ((XmlBackedJSClassImpl)myClazz).processInjectedFiles(jsFile -> {
+        myVisitedFiles.add(jsFile);
         jsFile.accept(visitor);
         return true;
       });
@@ -252,6 +301,7 @@ public class FlashUmlDependencyProvider {
     myClazz.processDeclarations(new PsiScopeProcessor() {
       @Override
       public boolean execute(@NotNull final PsiElement element, @NotNull final ResolveState state) {
+        ContainerUtil.addIfNotNull(myVisitedFiles, element.getContainingFile());
         element.accept(visitor);
         return true;
       }